@@ -0,0 +1,119 @@
+package benchmark;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.SwingUtilities;
+
+import view.UserSelectionPanel;
+import view.util.GUIConstants;
+import view.util.GlyphAtlas;
+import view.util.PixelLabel;
+import view.util.ViewResources;
+
+/**
+ * Compares <code>JLabel</code> against <code>PixelLabel</code> across a list of 1,000 rows of track names, measuring 
+ * how long the labels take to create, how much memory they hold on to, and how long painting all of them takes.
+ * 
+ * <p>Run it from the project directory so that the fonts can be found, e.g. 
+ * <code>java -Djava.awt.headless=true -cp bin benchmark.LabelBenchmark</code>.
+ * 
+ * @author Adam
+ */
+public class LabelBenchmark {
+	private static final int ROWS = 1000;
+	private static final int WIDTH = 360;
+	private static final int WARMUP_PASSES = 20;
+	private static final int PASSES = 50;
+	
+	/**
+	 * Runs the benchmark and prints the results.
+	 * @param args these aren't used.
+	 * @throws Exception if the benchmark couldn't be run on the EDT.
+	 */
+	public static void main(String[] args) throws Exception {
+		ViewResources.get().loadFontsFromDirectory("res/fonts", new String[] {".ttf"});
+		Font font = ViewResources.get().getFont("prstart.ttf", 12.0f);
+		
+		SwingUtilities.invokeAndWait(() -> {
+			// Rasterizes the atlas up front, since every row shares it.
+			long startNanos = System.nanoTime();
+			GlyphAtlas.get(font, Color.BLACK, GUIConstants.COLOR_SECONDARY);
+			System.out.println(String.format("atlas       %8.2f ms to rasterize", (System.nanoTime() - startNanos) / 1e6));
+			
+			for (int round = 0; round < 6; round++) {
+				measure("JLabel", name -> {
+					JLabel label = new JLabel(name);
+					label.setFont(font);
+					label.setForeground(Color.BLACK);
+					label.setBackground(GUIConstants.COLOR_SECONDARY);
+					label.setOpaque(true);
+					return label;
+				});
+				measure("PixelLabel", name -> {
+					PixelLabel label = new PixelLabel(name);
+					label.setFont(font);
+					label.setForeground(Color.BLACK);
+					label.setBackground(GUIConstants.COLOR_SECONDARY);
+					return label;
+				});
+			}
+		});
+	}
+	
+	/**
+	 * Creates a list of labels, then paints every one of them over and over, and prints the results.
+	 * @param name the name of the label being measured.
+	 * @param factory creates a label showing the given text.
+	 */
+	private static void measure(String name, Function<String, JComponent> factory) {
+		long startNanos = System.nanoTime();
+		List<JComponent> labels = new ArrayList<JComponent>();
+		for (int i = 0; i < ROWS; i++) {
+			JComponent label = factory.apply(String.format("track %04d with a long name to clip", i));
+			label.setBounds(0, 0, WIDTH, label.getPreferredSize().height);
+			labels.add(label);
+		}
+		long createNanos = System.nanoTime() - startNanos;
+		
+		BufferedImage screen = new BufferedImage(WIDTH, UserSelectionPanel.PANEL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		for (int pass = -WARMUP_PASSES; pass < PASSES; pass++) {
+			if (pass == 0)
+				startNanos = System.nanoTime();
+			for (JComponent label : labels) {
+				Graphics graphics = screen.createGraphics();
+				label.paint(graphics);
+				graphics.dispose();
+			}
+		}
+		long paintNanos = (System.nanoTime() - startNanos) / PASSES;
+		
+		// The labels are measured by how much memory is freed once they are gone.
+		long retainedBytes = getUsedBytes();
+		labels.clear();
+		retainedBytes -= getUsedBytes();
+		
+		System.out.println(String.format("%-12s%8.2f ms to create, %6d KB retained, %8.2f ms to paint %d rows", name, 
+				createNanos / 1e6, retainedBytes / 1024, paintNanos / 1e6, ROWS));
+	}
+	
+	/**
+	 * Collects garbage, then returns how much of the heap is in use.
+	 * @return the used heap in bytes.
+	 */
+	private static long getUsedBytes() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 3; i++)
+			System.gc();
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+}
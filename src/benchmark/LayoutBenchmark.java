@@ -0,0 +1,251 @@
+package benchmark;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.lang.management.ManagementFactory;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SpringLayout;
+import javax.swing.SwingUtilities;
+
+import view.UserSelectionPanel;
+import view.util.ControlButton;
+import view.util.CustomSlider;
+import view.util.DirectLayout;
+import view.util.GUIConstants;
+import view.util.ViewResources;
+
+/**
+ * Measures how long a list of user selections takes to lay out as the window is resized, comparing the 
+ * <code>DirectLayout</code> the panels use against a copy of the <code>SpringLayout</code> placement they used before. 
+ * Both lists hold as many rows as <code>ContentPanel</code> keeps for a full screen, and each pass resizes the list and 
+ * lays out it and every row inside it, which is what validating the window does after a resize. Binding the rows to 
+ * user selections is left out, since it costs the same with either layout.
+ * 
+ * <p>Run it from the project directory so that the fonts and images can be found, e.g. 
+ * <code>java -Djava.awt.headless=true -cp bin benchmark.LayoutBenchmark</code>.
+ * 
+ * @author Adam
+ */
+public class LayoutBenchmark {
+	private static final int ROWS = 22;
+	private static final int WARMUP_PASSES = 5000;
+	private static final int PASSES = 20000;
+	
+	/**
+	 * Runs the benchmark and prints the results.
+	 * @param args these aren't used.
+	 * @throws Exception if the benchmark couldn't be run on the EDT.
+	 */
+	public static void main(String[] args) throws Exception {
+		ViewResources.get().loadImagesFromDirectory("res/images", new String[] {".png"});
+		ViewResources.get().loadFontsFromDirectory("res/fonts", new String[] {".ttf"});
+		ControlButton.init();
+		
+		SwingUtilities.invokeAndWait(() -> {
+			int height = ROWS * UserSelectionPanel.PANEL_HEIGHT;
+			SpringList springList = new SpringList();
+			DirectList directList = new DirectList();
+			for (int round = 0; round < 3; round++) {
+				report("SpringLayout", measure(springList, height, true));
+				report("DirectLayout", measure(directList, height, false));
+			}
+		});
+	}
+	
+	/**
+	 * Resizes and lays out a list many times over.
+	 * @param list the list to lay out.
+	 * @param height the height of the list.
+	 * @param placeFirst whether or not the list's constraints need to be put before it is laid out, as the 
+	 * <code>SpringLayout</code> panels did whenever they were resized.
+	 * @return the average time and allocation of one pass, in nanoseconds and bytes.
+	 */
+	private static long[] measure(JPanel list, int height, boolean placeFirst) {
+		for (int i = 0; i < WARMUP_PASSES; i++)
+			resize(list, 400 + (i % 200), height, placeFirst);
+		
+		long startBytes = getAllocatedBytes();
+		long startNanos = System.nanoTime();
+		for (int i = 0; i < PASSES; i++)
+			resize(list, 400 + (i % 200), height, placeFirst);
+		long nanos = System.nanoTime() - startNanos;
+		long bytes = getAllocatedBytes() - startBytes;
+		return new long[] { nanos / PASSES, bytes / PASSES };
+	}
+	
+	/**
+	 * Resizes a list and lays it out.
+	 * @param list the list to resize.
+	 * @param width the new width of the list.
+	 * @param height the new height of the list.
+	 * @param placeFirst whether or not the list's constraints need to be put first.
+	 */
+	private static void resize(JPanel list, int width, int height, boolean placeFirst) {
+		list.setSize(width, height);
+		if (placeFirst)
+			((SpringList)list).place();
+		layoutTree(list);
+	}
+	
+	/**
+	 * Lays out a container and everything inside of it, the same way that validating it would.
+	 * @param container the container to lay out.
+	 */
+	private static void layoutTree(Container container) {
+		container.doLayout();
+		for (Component component : container.getComponents()) {
+			if (component instanceof Container)
+				layoutTree((Container)component);
+		}
+	}
+	
+	/**
+	 * Prints the result of a measurement.
+	 * @param name the name of the layout that was measured.
+	 * @param result the average time and allocation of one pass.
+	 */
+	private static void report(String name, long[] result) {
+		System.out.println(String.format("%-14s%8.2f us/pass %8d bytes/pass", name, result[0] / 1000.0, result[1]));
+	}
+	
+	/**
+	 * Returns how many bytes the current thread has allocated so far, if the JVM keeps track of it.
+	 * @return the allocated bytes, or 0 if they aren't known.
+	 */
+	private static long getAllocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return 0;
+	}
+	
+	/**
+	 * A list of rows placed with <code>SpringLayout</code>, the way <code>ContentPanel</code> placed them before.
+	 * 
+	 * @author Adam
+	 */
+	@SuppressWarnings("serial")
+	private static class SpringList extends JPanel {
+		private SpringLayout layout;
+		private SpringRow[] rows;
+		
+		/**
+		 * Creates a new <code>SpringList</code>.
+		 */
+		public SpringList() {
+			layout = new SpringLayout();
+			setLayout(layout);
+			rows = new SpringRow[ROWS];
+			for (int i = 0; i < ROWS; i++) {
+				rows[i] = new SpringRow(String.format("track %04d", i));
+				add(rows[i]);
+			}
+		}
+		
+		/**
+		 * Puts the constraints of every row, then of everything inside each row.
+		 */
+		public void place() {
+			int yOffset = 0;
+			for (SpringRow row : rows) {
+				layout.putConstraint(SpringLayout.NORTH, row, yOffset, SpringLayout.NORTH, this);
+				layout.putConstraint(SpringLayout.WEST, row, 0, SpringLayout.WEST, this);
+				Dimension size = new Dimension(getWidth(), UserSelectionPanel.PANEL_HEIGHT);
+				row.setSize(size);
+				row.setPreferredSize(size);
+				row.place();
+				
+				yOffset += UserSelectionPanel.PANEL_HEIGHT;
+			}
+		}
+	}
+	
+	/**
+	 * A list of <code>UserSelectionPanel</code> rows placed with <code>DirectLayout</code>, the way 
+	 * <code>ContentPanel</code> places them now.
+	 * 
+	 * @author Adam
+	 */
+	@SuppressWarnings("serial")
+	private static class DirectList extends JPanel {
+		private UserSelectionPanel[] rows;
+		
+		/**
+		 * Creates a new <code>DirectList</code>.
+		 */
+		public DirectList() {
+			setLayout(new DirectLayout(() -> place()));
+			rows = new UserSelectionPanel[ROWS];
+			for (int i = 0; i < ROWS; i++) {
+				rows[i] = new UserSelectionPanel();
+				rows[i].bind(String.format("track %04d", i), 100, false, null);
+				add(rows[i]);
+			}
+		}
+		
+		/**
+		 * Places every row.
+		 */
+		private void place() {
+			int yOffset = 0;
+			for (UserSelectionPanel row : rows) {
+				row.setBounds(0, yOffset, getWidth(), UserSelectionPanel.PANEL_HEIGHT);
+				yOffset += UserSelectionPanel.PANEL_HEIGHT;
+			}
+		}
+	}
+	
+	/**
+	 * A row placed with <code>SpringLayout</code>, the way <code>UserSelectionPanel</code> placed its children before.
+	 * 
+	 * @author Adam
+	 */
+	@SuppressWarnings("serial")
+	private static class SpringRow extends JPanel {
+		private SpringLayout layout;
+		private ControlButton controlButton;
+		private JLabel nameLabel;
+		private CustomSlider volumeSlider;
+		
+		/**
+		 * Creates a new <code>SpringRow</code>.
+		 * @param name the text of the row's label.
+		 */
+		public SpringRow(String name) {
+			layout = new SpringLayout();
+			setLayout(layout);
+			controlButton = new ControlButton();
+			nameLabel = new JLabel(name);
+			nameLabel.setFont(ViewResources.get().getFont("prstart.ttf", 12.0f));
+			volumeSlider = new CustomSlider(0, 100, 100);
+			add(controlButton);
+			add(nameLabel);
+			add(volumeSlider);
+		}
+		
+		/**
+		 * Puts the constraints of the control button, volume slider, and name label.
+		 */
+		public void place() {
+			layout.putConstraint(SpringLayout.NORTH, controlButton, (getHeight() / 2) - 
+					(controlButton.getSize().height / 2), SpringLayout.NORTH, this);
+			layout.putConstraint(SpringLayout.WEST, controlButton, GUIConstants.SIZE_PADDING, SpringLayout.WEST, this);
+			
+			layout.putConstraint(SpringLayout.NORTH, volumeSlider, (getHeight() / 2) - 
+					(volumeSlider.getSize().height / 2), SpringLayout.NORTH, this);
+			layout.putConstraint(SpringLayout.EAST, volumeSlider, -GUIConstants.SIZE_PADDING, SpringLayout.EAST, this);
+			
+			int width = getWidth() - controlButton.getWidth() - volumeSlider.getWidth() - (GUIConstants.SIZE_PADDING * 4);
+			Dimension size = new Dimension(width, nameLabel.getPreferredSize().height);
+			nameLabel.setSize(size);
+			nameLabel.setPreferredSize(size);
+			layout.putConstraint(SpringLayout.NORTH, nameLabel, (getHeight() / 2) - (nameLabel.getSize().height / 2), 
+					SpringLayout.NORTH, this);
+			layout.putConstraint(SpringLayout.WEST, nameLabel, GUIConstants.SIZE_PADDING, SpringLayout.EAST, 
+					controlButton);
+		}
+	}
+}
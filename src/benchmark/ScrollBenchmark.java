@@ -0,0 +1,181 @@
+package benchmark;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+import javax.swing.JPanel;
+import javax.swing.JScrollBar;
+import javax.swing.SwingUtilities;
+
+import view.ContentPanel;
+import view.util.ControlButton;
+import view.util.ViewResources;
+
+/**
+ * Measures how many frames per second the content panel can scroll through 1,000 user selections, comparing the blit 
+ * scrolling it does now against repainting the whole panel on each scroll tick. The panel draws to an image standing 
+ * in for the screen, so that the benchmark can run headless.
+ * 
+ * <p>Run it from the project directory so that the fonts and images can be found, e.g. 
+ * <code>java -Djava.awt.headless=true -cp bin benchmark.ScrollBenchmark</code>.
+ * 
+ * @author Adam
+ */
+public class ScrollBenchmark {
+	private static final int USER_SELECTIONS = 1000;
+	private static final int WIDTH = 572;
+	private static final int HEIGHT = 417;
+	private static final int PIXELS_PER_FRAME = 4;
+	private static final int WARMUP_FRAMES = 5000;
+	private static final int FRAMES = 20000;
+	
+	/**
+	 * Runs the benchmark and prints the results.
+	 * @param args these aren't used.
+	 * @throws Exception if the benchmark couldn't be run on the EDT.
+	 */
+	public static void main(String[] args) throws Exception {
+		ViewResources.get().loadImagesFromDirectory("res/images", new String[] {".png"});
+		ViewResources.get().loadFontsFromDirectory("res/fonts", new String[] {".ttf"});
+		ControlButton.init();
+		
+		SwingUtilities.invokeAndWait(() -> {
+			ScreenContentPanel contentPanel = new ScreenContentPanel();
+			JPanel parent = new JPanel(null);
+			parent.add(contentPanel);
+			contentPanel.setBounds(0, 0, WIDTH, HEIGHT);
+			for (int i = 0; i < USER_SELECTIONS; i++)
+				contentPanel.addUserSelection(String.format("track %04d", i));
+			layoutTree(contentPanel);
+			
+			for (int round = 0; round < 3; round++) {
+				report("repaint", measure(contentPanel, false));
+				report("blit", measure(contentPanel, true));
+			}
+		});
+	}
+	
+	/**
+	 * Scrolls the panel back and forth through the list one frame at a time.
+	 * @param contentPanel the panel to scroll.
+	 * @param blit whether the panel may blit, or has to be repainted completely each frame.
+	 * @return the frames per second.
+	 */
+	private static double measure(ScreenContentPanel contentPanel, boolean blit) {
+		contentPanel.blit = blit;
+		JScrollBar scrollbar = contentPanel.getScrollbar();
+		int maximum = scrollbar.getMaximum() - scrollbar.getVisibleAmount();
+		int direction = PIXELS_PER_FRAME;
+		
+		long startNanos = 0;
+		for (int frame = -WARMUP_FRAMES; frame < FRAMES; frame++) {
+			if (frame == 0)
+				startNanos = System.nanoTime();
+			
+			int value = scrollbar.getValue() + direction;
+			if (value < 0 || value > maximum) {
+				direction = -direction;
+				value = scrollbar.getValue() + direction;
+			}
+			scrollbar.setValue(value);
+			if (!blit)
+				contentPanel.paintScreen();
+		}
+		return FRAMES / ((System.nanoTime() - startNanos) / 1e9);
+	}
+	
+	/**
+	 * Lays out a container and everything inside of it, the same way that validating it would.
+	 * @param container the container to lay out.
+	 */
+	private static void layoutTree(Container container) {
+		container.doLayout();
+		for (Component component : container.getComponents()) {
+			if (component instanceof Container)
+				layoutTree((Container)component);
+		}
+	}
+	
+	/**
+	 * Prints the result of a measurement.
+	 * @param name the name of the scrolling that was measured.
+	 * @param framesPerSecond the frames per second.
+	 */
+	private static void report(String name, double framesPerSecond) {
+		System.out.println(String.format("%-10s%10.0f frames/s", name, framesPerSecond));
+	}
+	
+	/**
+	 * A <code>ContentPanel</code> that acts as though it is on screen, drawing to an image instead.
+	 * 
+	 * @author Adam
+	 */
+	@SuppressWarnings("serial")
+	private static class ScreenContentPanel extends ContentPanel {
+		private BufferedImage screen;
+		private BufferedImage backBuffer;
+		private boolean blit;
+		
+		/**
+		 * Creates a new <code>ScreenContentPanel</code>.
+		 */
+		public ScreenContentPanel() {
+			screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+			backBuffer = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		}
+		
+		/**
+		 * Returns the scrollbar of this panel.
+		 * @return the scrollbar.
+		 */
+		public JScrollBar getScrollbar() {
+			for (Component component : getComponents()) {
+				if (component instanceof JScrollBar)
+					return (JScrollBar)component;
+			}
+			return null;
+		}
+		
+		/**
+		 * Paints the rows of this panel to the screen image, as a repaint of the panel would.
+		 */
+		public void paintScreen() {
+			Graphics graphics = screen.createGraphics();
+			graphics.clipRect(0, 0, getWidth() - getScrollbar().getWidth(), getHeight());
+			paint(graphics);
+			graphics.dispose();
+		}
+		
+		@Override
+		public boolean isShowing() {
+			return true;
+		}
+		
+		@Override
+		public Graphics getGraphics() {
+			return blit ? screen.createGraphics() : null;
+		}
+		
+		/**
+		 * Paints a region of this panel to a back buffer and copies it to the screen image, as the 
+		 * <code>RepaintManager</code> would for a panel on screen.
+		 * @param x the x coordinate of the region.
+		 * @param y the y coordinate of the region.
+		 * @param width the width of the region.
+		 * @param height the height of the region.
+		 */
+		@Override
+		public void paintImmediately(int x, int y, int width, int height) {
+			Graphics graphics = backBuffer.createGraphics();
+			graphics.clipRect(x, y, width, height);
+			paint(graphics);
+			graphics.dispose();
+			
+			graphics = screen.createGraphics();
+			graphics.drawImage(backBuffer, x, y, x + width, y + height, x, y, x + width, y + height, null);
+			graphics.dispose();
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+
+import model.SearchIndex;
+import view.UserSelectionModel;
+
+/**
+ * Measures how long filtering a library of 50,000 audio files takes for each keystroke typed into the search field, 
+ * which is everything the EDT does before the rows are bound: searching the <code>SearchIndex</code>, handing the 
+ * result to the <code>UserSelectionModel</code> and reading a screenful of visible rows. Queries are typed a character 
+ * at a time, from broad prefixes matching most of the library to narrow ones matching a handful of files.
+ * 
+ * <p>Keystrokes right after an audio file has been added are measured separately, since the index is stale then and 
+ * has to be sorted again, which should happen in the background rather than during the keystroke. Each of them waits 
+ * for that sort to finish before the next audio file is added, so that the keystrokes don't compete with it for the 
+ * CPU, and then searches again without timing it, as the controller does once a sort has been published. How long 
+ * sorting the index takes is reported as well.
+ * 
+ * <p>Run it with <code>java -cp bin benchmark.SearchBenchmark</code>.
+ * 
+ * @author Adam
+ */
+public class SearchBenchmark {
+	private static final int ENTRIES = 50000;
+	private static final int VISIBLE_ROWS = 22;
+	private static final int WARMUP_PASSES = 50;
+	private static final int PASSES = 200;
+	private static final int ADDS = 50;
+	private static final String[] WORDS = {"rain", "thunder", "window", "fireplace", "forest", "river", "stream", 
+			"wind", "ocean", "waves", "night", "crickets", "birds", "morning", "cafe", "train", "city", "storm", "soft",
+			"heavy", "light", "distant", "roof", "tent", "cabin", "snow", "fan", "brown", "noise", "drizzle"};
+	private static final String[] TAGS = {"indoor", "outdoor", "nature", "urban", "water", "weather", "calm", "loud"};
+	private static final String[] QUERIES = {"rain window", "thunder storm", "fi", "ocean waves night", "c"};
+	
+	/**
+	 * Runs the benchmark and prints the results.
+	 * @param args these aren't used.
+	 * @throws InterruptedException if the benchmark was interrupted while waiting for the index to be sorted.
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		SearchIndex index = new SearchIndex();
+		UserSelectionModel model = new UserSelectionModel();
+		Random random = new Random(42);
+		for (int i = 0; i < ENTRIES; i++) {
+			String name = createName(random, i);
+			index.put(name, Arrays.asList(TAGS[random.nextInt(TAGS.length)], TAGS[random.nextInt(TAGS.length)]));
+			model.add(name);
+		}
+		
+		long startNanos = System.nanoTime();
+		index.prepare();
+		System.out.println(String.format("%-14s%8.2f ms", "sort index", (System.nanoTime() - startNanos) / 1e6));
+		
+		Semaphore sorted = new Semaphore(0);
+		index.setUpdateListener(() -> sorted.release());
+		// Searching a snapshot for the first time takes other paths than typing does, which need warming up as well.
+		measureAfterAdds(index, model, random, sorted);
+		for (int round = 0; round < 3; round++) {
+			report("keystroke", measureTyping(index, model));
+			report("after add", measureAfterAdds(index, model, random, sorted));
+		}
+		System.exit(0);
+	}
+	
+	/**
+	 * Types every query a character at a time, many times over.
+	 * @param index the index to search.
+	 * @param model the model to filter.
+	 * @return the average, the 99th percentile and the longest time of one keystroke, in nanoseconds.
+	 */
+	private static long[] measureTyping(SearchIndex index, UserSelectionModel model) {
+		for (int i = 0; i < WARMUP_PASSES; i++) {
+			for (String prefix : getPrefixes())
+				type(index, model, prefix);
+		}
+		
+		List<Long> times = new ArrayList<Long>();
+		for (int i = 0; i < PASSES; i++) {
+			for (String prefix : getPrefixes())
+				times.add(type(index, model, prefix));
+		}
+		return summarize(times);
+	}
+	
+	/**
+	 * Adds audio files to the index one at a time, typing a keystroke right after each one while the index is stale. 
+	 * Once the index has been sorted again, the same keystroke is repeated as a refresh, which isn't timed.
+	 * @param index the index to search.
+	 * @param model the model to filter.
+	 * @param random where to draw the names of the added audio files from.
+	 * @param sorted released each time the index has been sorted again.
+	 * @return the average, the 99th percentile and the longest time of one keystroke, in nanoseconds.
+	 * @throws InterruptedException if interrupted while waiting for the index to be sorted.
+	 */
+	private static long[] measureAfterAdds(SearchIndex index, UserSelectionModel model, Random random, 
+			Semaphore sorted) throws InterruptedException {
+		List<String> prefixes = getPrefixes();
+		List<Long> times = new ArrayList<Long>();
+		for (int i = 0; i < ADDS; i++) {
+			index.put(createName(random, ENTRIES + random.nextInt(ENTRIES)), Arrays.asList(TAGS[0]));
+			String prefix = prefixes.get(i % prefixes.size());
+			times.add(type(index, model, prefix));
+			sorted.acquire();
+			type(index, model, prefix);
+		}
+		return summarize(times);
+	}
+	
+	/**
+	 * Returns every prefix of every query, in the order they are typed.
+	 * @return the prefixes.
+	 */
+	private static List<String> getPrefixes() {
+		List<String> prefixes = new ArrayList<String>();
+		for (String query : QUERIES) {
+			for (int length = 1; length <= query.length(); length++)
+				prefixes.add(query.substring(0, length));
+		}
+		return prefixes;
+	}
+	
+	/**
+	 * Types a single keystroke: searches for what has been typed so far, filters the model by the result and reads a 
+	 * screenful of visible rows.
+	 * @param index the index to search.
+	 * @param model the model to filter.
+	 * @param prefix what has been typed so far.
+	 * @return how long the keystroke took, in nanoseconds.
+	 */
+	private static long type(SearchIndex index, UserSelectionModel model, String prefix) {
+		long startNanos = System.nanoTime();
+		model.setFilter(index.search(prefix));
+		int rows = Math.min(VISIBLE_ROWS, model.getVisibleCount());
+		for (int row = 0; row < rows; row++)
+			model.getVisibleName(row);
+		return System.nanoTime() - startNanos;
+	}
+	
+	/**
+	 * Works out the average, the 99th percentile and the longest of some times.
+	 * @param times the times, which get sorted.
+	 * @return the average, the 99th percentile and the longest time.
+	 */
+	private static long[] summarize(List<Long> times) {
+		long total = 0;
+		for (long time : times)
+			total += time;
+		Collections.sort(times);
+		return new long[] { total / times.size(), times.get(times.size() * 99 / 100), times.get(times.size() - 1) };
+	}
+	
+	/**
+	 * Makes up the identifier of an audio file from a few random words.
+	 * @param random where to draw the words from.
+	 * @param number a number to make the identifier unique.
+	 * @return the identifier.
+	 */
+	private static String createName(Random random, int number) {
+		StringBuilder name = new StringBuilder();
+		for (int i = 0, words = 2 + random.nextInt(3); i < words; i++)
+			name.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+		return name.append(number).append(".wav").toString();
+	}
+	
+	/**
+	 * Prints the result of a measurement.
+	 * @param name what was measured.
+	 * @param result the average, the 99th percentile and the longest time of one keystroke.
+	 */
+	private static void report(String name, long[] result) {
+		System.out.println(String.format("%-14s%8.2f us/keystroke %8.2f us 99th %8.2f us longest", name, 
+				result[0] / 1000.0, result[1] / 1000.0, result[2] / 1000.0));
+	}
+}
@@ -1,19 +1,48 @@
 package controller;
 
 import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.swing.event.ChangeEvent;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
+import controller.util.AudioEngine;
+import controller.util.DiagnosticsLog;
 import controller.util.TrackPlayer;
 import model.AudioFileList;
+import model.TagIndex;
 import model.Track;
+import model.TrackAnalysis;
+import model.util.AnalysisCache;
+import model.util.AudioDirectoryWatcher;
 import model.util.AudioFileLoader;
+import model.util.DirectoryResourceProvider;
+import model.util.JarResourceProvider;
+import model.util.ResourcePack;
+import model.util.ResourceProvider;
+import model.util.TrackCatalog;
+import model.util.TrackMemoryManager;
+import view.ContentPanel;
+import view.DiagnosticsPanel;
 import view.MainUI;
-import view.UserSelectionPanel;
 import view.util.ViewResources;
 import view.util.ControlButton;
 import view.util.EDTDispatcher;
+import view.util.PowerButton;
+import view.util.PowerStats;
+import view.util.UIStats;
 
 /**
  * Acts as the messenger between the view and the model portions of the program.
@@ -21,98 +50,427 @@ import view.util.EDTDispatcher;
  * @author Adam
  */
 public class Controller {
+	private static final String DIAGNOSTICS_LOG_PATH = "retrorain-diagnostics.log";
+	private static final String RESOURCE_DIRECTORY = "res";
+	private static final String RESOURCE_PACK_PROPERTY = "retrorain.pack";
+	private static final String IMAGE_DIRECTORY = "images";
+	private static final String FONT_DIRECTORY = "fonts";
+	private static final String AUDIO_DIRECTORY = "audio";
+	private static final String[] AUDIO_EXTENSIONS = {".wav"};
+	private static final int LOADER_THREADS = 4;
+	
+	private ResourceProvider resources;
+	private File audioDirectory;
 	private AudioFileList audioFileList;
+	private TrackCatalog trackCatalog;
+	private AudioDirectoryWatcher audioDirectoryWatcher;
+	private AnalysisCache analysisCache;
+	private CompletableFuture<Void> analysisCacheLoaded;
+	private ExecutorService analysisWorkers;
+	private ExecutorService converter;
+	private Map<String, TrackAnalysis> analyses;
 	private MainUI mainUI;
+	private DiagnosticsLog diagnosticsLog;
+	private volatile CompletableFuture<Void> viewShown;
+	private ConcurrentLinkedQueue<Runnable> viewTasks;
+	private boolean searchRefreshPending;
 	
-	private LinkedList<UserSelectionPanel> userSelections;
+	private LinkedList<String> userSelections;
+	private Map<String, TrackPlayer> trackPlayers;
 	
 	/**
 	 * Creates a new <code>Controller</code> instance.
 	 */
 	public Controller() {
-		userSelections = new LinkedList<UserSelectionPanel>();
+		userSelections = new LinkedList<String>();
+		trackPlayers = new HashMap<String, TrackPlayer>();
+		diagnosticsLog = new DiagnosticsLog(DIAGNOSTICS_LOG_PATH, () -> getDiagnosticsLines());
+		viewShown = new CompletableFuture<Void>();
+		viewTasks = new ConcurrentLinkedQueue<Runnable>();
+		analysisCacheLoaded = CompletableFuture.completedFuture(null);
+		analyses = new ConcurrentHashMap<String, TrackAnalysis>();
+		analysisWorkers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+			Thread thread = new Thread(runnable, "analysis");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+		converter = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "convert");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.NORM_PRIORITY);
+			return thread;
+		});
 	}
 	
 	/**
 	 * Invokes the creation of the view and model and sets up relaying communication between them.
+	 * 
+	 * <p>Resources are loaded in parallel on a small pool of loader threads. The window is shown as soon as the view 
+	 * resources are ready, and a user selection is added for each audio file as soon as its metadata has been read. 
+	 * Once every audio file has loaded, they are analyzed in the background, or their analyses are read from the cache.
 	 */
 	public void start() {
-		initializeModel();
-		initializeView();
+		ExecutorService loader = Executors.newFixedThreadPool(LOADER_THREADS, runnable -> {
+			Thread thread = new Thread(runnable, "loader");
+			thread.setDaemon(true);
+			return thread;
+		});
+		
+		resources = openResources();
+		CompletableFuture<Void> audioLoaded = initializeModel(loader);
+		initializeView(loader);
+		audioLoaded.whenComplete((result, exception) -> {
+			audioFileList.getSearchIndex().prepare();
+			loader.shutdown();
+			scheduleAnalyses(new ArrayList<String>(audioFileList.getAllAudioFileIdentifiers()));
+		});
 		
 		EDTDispatcher.doAndWait(() -> {
-			addAudioSelections();
 			mainUI.getOverlayPanel().getControlPanel().getControlButton().addActionListener((ActionEvent e) -> onMasterControlButtonPressed());
 			mainUI.getOverlayPanel().getControlPanel().getVolumeSlider().addChangeListener((ChangeEvent e) -> onMasterVolumeSliderChange());
+			onMasterVolumeSliderChange();
+			mainUI.getOverlayPanel().getContentPanel().addPropertyChangeListener("userSelectionToggled", propertyChange -> onControlButtonPressed((String)propertyChange.getNewValue()));
+			mainUI.getOverlayPanel().getContentPanel().addPropertyChangeListener("userSelectionVolumeChanged", propertyChange -> onVolumeSliderChange((String)propertyChange.getNewValue()));
+			mainUI.getOverlayPanel().getDiagnosticsPanel().addSection("audio engine", () -> AudioEngine.get().getStats().toLines());
+			mainUI.getOverlayPanel().getDiagnosticsPanel().addSection("ui", () -> UIStats.get().toLines());
+			mainUI.getOverlayPanel().getDiagnosticsPanel().addSection("pcm memory", () -> TrackMemoryManager.get().toLines());
+			mainUI.getOverlayPanel().getDiagnosticsPanel().addSection("power", () -> PowerStats.get().toLines());
+			mainUI.addPropertyChangeListener("windowHidden", propertyChange -> onWindowHiddenChanged((Boolean)propertyChange.getNewValue()));
+			mainUI.getOverlayPanel().getToolbarPanel().getDiagnosticsButton().addActionListener((ActionEvent e) -> onDiagnosticsButtonPressed());
+			mainUI.getOverlayPanel().getToolbarPanel().getPowerButton().setLowPower(AudioEngine.get().isLowPower());
+			mainUI.getOverlayPanel().getToolbarPanel().getPowerButton().addActionListener((ActionEvent e) -> onPowerButtonPressed());
+			mainUI.getOverlayPanel().getToolbarPanel().getSearchField().getDocument().addDocumentListener(new DocumentListener() {
+				@Override
+				public void insertUpdate(DocumentEvent e) {
+					onSearchChanged();
+				}
+				
+				@Override
+				public void removeUpdate(DocumentEvent e) {
+					onSearchChanged();
+				}
+				
+				@Override
+				public void changedUpdate(DocumentEvent e) {
+					onSearchChanged();
+				}
+			});
 			mainUI.setVisible(true);
 		});
+		viewShown.complete(null);
 	}
 	
 	/**
-	 * Loads all audio files and dumps them into an <code>AudioFileList</code> object.
+	 * Opens the resource pack named by the <code>retrorain.pack</code> system property. If no pack is named, the 
+	 * resources inside the jar the program was started from are used instead, and failing that, the resource 
+	 * directory.
+	 * @return where to load every resource from.
 	 */
-	private void initializeModel() {
+	private static ResourceProvider openResources() {
+		String packPath = System.getProperty(RESOURCE_PACK_PROPERTY);
+		if (packPath != null) {
+			try {
+				return ResourcePack.open(new File(packPath));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		
+		File jarFile = JarResourceProvider.getJarFile(Controller.class);
+		if (jarFile != null) {
+			try {
+				JarResourceProvider jarResources = JarResourceProvider.open(jarFile);
+				if (jarResources != null)
+					return jarResources;
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		return new DirectoryResourceProvider(new File(RESOURCE_DIRECTORY));
+	}
+	
+	/**
+	 * Starts loading all audio files into an <code>AudioFileList</code> object in the background. Each audio file gets 
+	 * a user selection once it has loaded and the main UI is showing.
+	 * 
+	 * <p>If the audio files are in a directory, the directory is also watched from here on, so that files dropped into 
+	 * it or deleted from it are added to or removed from the UI while the program runs. Audio files in a resource pack 
+	 * can't change, so they are simply loaded.
+	 * @param loader the executor to load the audio files on.
+	 * @return a future that completes once every audio file has loaded.
+	 */
+	private CompletableFuture<Void> initializeModel(ExecutorService loader) {
 		audioFileList = new AudioFileList();
-		AudioFileLoader.get().loadFromDirectory("res/audio", new String[] {".wav"}, audioFileList);
+		audioFileList.getSearchIndex().setUpdateListener(() -> doWhenShown(() -> scheduleSearchRefresh()));
+		audioDirectory = resources.getFile(AUDIO_DIRECTORY);
+		if (audioDirectory == null)
+			return AudioFileLoader.get().loadFromProvider(resources, AUDIO_DIRECTORY, AUDIO_EXTENSIONS, audioFileList, 
+					loader, identifier -> scheduleAudioSelection(identifier));
+		trackCatalog = new TrackCatalog(audioDirectory);
+		analysisCache = new AnalysisCache(audioDirectory);
+		analysisCacheLoaded = CompletableFuture.runAsync(() -> analysisCache.load(), analysisWorkers) 
+				.exceptionally(exception -> logFailure(exception));
+		
+		// Watching starts before the directory is listed so that nothing added in between is missed.
+		audioDirectoryWatcher = new AudioDirectoryWatcher(audioDirectory, AUDIO_EXTENSIONS, trackCatalog, 
+				new AudioDirectoryWatcher.Listener() {
+					@Override
+					public void onFilesAdded(List<String> identifiers) {
+						onAudioFilesAdded(identifiers);
+					}
+					
+					@Override
+					public void onFilesRemoved(List<String> identifiers) {
+						onAudioFilesRemoved(identifiers);
+					}
+				});
+		audioDirectoryWatcher.start();
+		
+		return AudioFileLoader.get().loadFromDirectory(audioDirectory.getPath(), AUDIO_EXTENSIONS, audioFileList, 
+				trackCatalog, loader, identifier -> scheduleAudioSelection(identifier));
 	}
 	
 	/**
-	 * Loads view resources and creates the main UI.
+	 * Loads view resources and creates the main UI. This waits for the view resources, since the UI can't be created 
+	 * without them.
+	 * @param loader the executor to load the view resources on.
 	 */
-	private void initializeView() {
-		ViewResources.get().loadImagesFromDirectory("res/images", new String[] {".png"});
-		ViewResources.get().loadFontsFromDirectory("res/fonts", new String[] {".ttf"});
+	private void initializeView(ExecutorService loader) {
+		CompletableFuture.allOf( 
+				ViewResources.get().loadImages(resources, IMAGE_DIRECTORY, new String[] {".png"}, loader),
+				ViewResources.get().loadFonts(resources, FONT_DIRECTORY, new String[] {".ttf"}, loader)).join();
 		ControlButton.init();
 		mainUI = new MainUI();
 		EDTDispatcher.doAndWait(() -> mainUI.create());
 	}
 	
 	/**
-	 * Adds user selections to the content panel representing each of the loaded audio files.
+	 * Adds a user selection for one of the loaded audio files on the EDT, once the main UI is showing. Safe to invoke 
+	 * from any thread.
+	 * @param audioFileIdentifier the identifier of the audio file in the audio file list.
+	 */
+	private void scheduleAudioSelection(String audioFileIdentifier) {
+		doWhenShown(() -> addAudioSelection(audioFileIdentifier));
+	}
+	
+	/**
+	 * Runs a task on the EDT once the main UI is showing. Safe to invoke from any thread. Tasks run in the order they 
+	 * were scheduled, even when they pile up while the window is minimized, so that an audio file that is added and 
+	 * then removed meanwhile ends up without a user selection.
+	 * @param task the task to run.
+	 */
+	private void doWhenShown(Runnable task) {
+		viewTasks.add(task);
+		viewShown.thenRun(() -> EDTDispatcher.doLater(() -> runViewTasks()));
+	}
+	
+	/**
+	 * Runs every task waiting for the main UI, oldest first. If the window has been minimized again in the meantime, 
+	 * they wait for it to be restored once more. Invoked on the EDT.
+	 */
+	private void runViewTasks() {
+		if (!viewShown.isDone()) {
+			viewShown.thenRun(() -> EDTDispatcher.doLater(() -> runViewTasks()));
+			return;
+		}
+		
+		Runnable task;
+		while ((task = viewTasks.poll()) != null)
+			task.run();
+	}
+	
+	/**
+	 * Adds a user selection to the content panel representing one of the loaded audio files, along with its waveform 
+	 * if the audio file has already been analyzed. Nothing happens if the audio file already has a user selection.
+	 * @param audioFileIdentifier the identifier of the audio file in the audio file list.
+	 */
+	private void addAudioSelection(String audioFileIdentifier) {
+		ContentPanel contentPanel = mainUI.getOverlayPanel().getContentPanel();
+		if (contentPanel.containsUserSelection(audioFileIdentifier))
+			return;
+		
+		contentPanel.addUserSelection(audioFileIdentifier);
+		TrackAnalysis analysis = analyses.get(audioFileIdentifier);
+		if (analysis != null)
+			contentPanel.setUserSelectionWaveform(audioFileIdentifier, analysis.getWaveform());
+		scheduleSearchRefresh();
+	}
+	
+	/**
+	 * Removes the user selection of an audio file that no longer exists. If it was playing, it is stopped.
+	 * @param audioFileIdentifier the identifier the audio file had in the audio file list.
+	 */
+	private void removeAudioSelection(String audioFileIdentifier) {
+		ContentPanel contentPanel = mainUI.getOverlayPanel().getContentPanel();
+		if (!contentPanel.containsUserSelection(audioFileIdentifier))
+			return;
+		
+		if (userSelections.remove(audioFileIdentifier) && contentPanel.getModel().isPlaying(audioFileIdentifier)) {
+			stopTrack(audioFileIdentifier);
+			if (userSelections.isEmpty())
+				mainUI.getOverlayPanel().getControlPanel().getControlButton().switchMode();
+		}
+		contentPanel.removeUserSelection(audioFileIdentifier);
+	}
+	
+	/**
+	 * Loads audio files that were added to the audio directory while the program is running, and adds a user selection 
+	 * for each new one. Invoked on the directory watcher's thread, so the EDT never waits on the files.
+	 * @param identifiers the identifiers of the added or changed audio files.
+	 */
+	private void onAudioFilesAdded(List<String> identifiers) {
+		for (String identifier : identifiers) {
+			boolean isNew = !audioFileList.containsAudioFile(identifier);
+			TrackMemoryManager.get().remove(identifier);
+			if (AudioFileLoader.get().loadFile(audioDirectory, identifier, audioFileList, trackCatalog) && 
+					isNew)
+				scheduleAudioSelection(identifier);
+		}
+		audioFileList.getSearchIndex().prepare();
+		trackCatalog.updateDirectory();
+		trackCatalog.save();
+		scheduleAnalyses(identifiers);
+	}
+	
+	/**
+	 * Forgets audio files that were removed from the audio directory while the program is running, and removes their 
+	 * user selections. Invoked on the directory watcher's thread.
+	 * @param identifiers the identifiers of the removed audio files.
+	 */
+	private void onAudioFilesRemoved(List<String> identifiers) {
+		for (String identifier : identifiers) {
+			audioFileList.removeAudioFile(identifier);
+			trackCatalog.remove(identifier);
+			analysisCache.remove(identifier);
+			analyses.remove(identifier);
+			TrackMemoryManager.get().remove(identifier);
+		}
+		audioFileList.getSearchIndex().prepare();
+		trackCatalog.updateDirectory();
+		trackCatalog.save();
+		doWhenShown(() -> {
+			for (String identifier : identifiers)
+				removeAudioSelection(identifier);
+		});
+	}
+	
+	/**
+	 * Queues some audio files to be analyzed, or to have their analyses read from the cache, on the analysis threads. 
+	 * There is one analysis thread per core, each analyzing a different file. The cache is saved once all of them are 
+	 * done, even if some of them failed.
+	 * @param identifiers the identifiers of the audio files.
+	 */
+	private void scheduleAnalyses(List<String> identifiers) {
+		List<CompletableFuture<Void>> analyses = new ArrayList<CompletableFuture<Void>>();
+		for (String identifier : identifiers)
+			analyses.add(analysisCacheLoaded.thenCompose(result -> scheduleAnalysis(identifier)) 
+					.exceptionally(exception -> logFailure(exception)));
+		if (analysisCache != null)
+			CompletableFuture.allOf(analyses.toArray(new CompletableFuture<?>[analyses.size()])) 
+					.thenRun(() -> analysisCache.save());
+	}
+	
+	/**
+	 * Queues a single audio file to be analyzed on the analysis threads once the main UI is showing. If the window has 
+	 * been minimized again by the time a thread gets to it, it waits for the window to be restored once more, so that 
+	 * no new analysis starts while the window is minimized.
+	 * @param identifier the identifier of the audio file.
+	 * @return a future that completes once the analysis has been loaded.
+	 */
+	private CompletableFuture<Void> scheduleAnalysis(String identifier) {
+		return viewShown.thenComposeAsync(result -> {
+			if (!viewShown.isDone())
+				return scheduleAnalysis(identifier);
+			loadAnalysis(identifier);
+			return CompletableFuture.completedFuture(null);
+		}, analysisWorkers);
+	}
+	
+	/**
+	 * Prints the exception a background task failed with, so that the failure isn't lost with the task's future. The 
+	 * future it is chained to then completes normally, and whatever waits on it still runs.
+	 * @param exception the exception the task failed with.
+	 * @return <code>null</code>, the result of the future.
+	 */
+	private static Void logFailure(Throwable exception) {
+		exception.printStackTrace();
+		return null;
+	}
+	
+	/**
+	 * Reads the analysis of an audio file from the cache, or decodes and analyzes the audio file if it isn't cached or 
+	 * the file has changed. Its waveform is then handed to the audio file's user selection, and its normalization gain 
+	 * and loop points to its track player if it is playing. An audio file that can't be decoded is left without an 
+	 * analysis. Invoked on an analysis thread.
+	 * @param identifier the identifier of the audio file.
 	 */
-	private void addAudioSelections() {
-		for (String audioFileIdentifier : audioFileList.getAllAudioFileIdentifiers()) {
-			UserSelectionPanel userSelection = new UserSelectionPanel(audioFileIdentifier);
-			userSelection.getControlButton().addActionListener((ActionEvent e) -> onControlButtonPressed(userSelection));
-			userSelection.getVolumeSlider().addChangeListener((ChangeEvent e) -> onVolumeSliderChange(userSelection));
-			mainUI.getOverlayPanel().getContentPanel().addUserSelection(userSelection);
+	private void loadAnalysis(String identifier) {
+		if (!audioFileList.containsAudioFile(identifier))
+			return;
+		
+		File audioFile = audioFileList.getAudioFile(identifier);
+		boolean cached = analysisCache != null && audioFile != null;
+		TrackAnalysis analysis = cached ? analysisCache.get(identifier, audioFile) : null;
+		if (analysis == null) {
+			Track track = TrackMemoryManager.get().acquire(identifier, () -> createTrack(identifier));
+			try {
+				// A file that failed to decode is empty, and its analysis would be cached as though it were silent.
+				if (!track.isDecoded())
+					return;
+				analysis = TrackAnalysis.analyze(track);
+			} finally {
+				TrackMemoryManager.get().release(identifier, track);
+			}
+			if (cached)
+				analysisCache.put(identifier, audioFile, analysis);
 		}
+		
+		TrackAnalysis result = analysis;
+		analyses.put(identifier, result);
+		EDTDispatcher.doLater(() -> {
+			TrackPlayer trackPlayer = trackPlayers.get(identifier);
+			if (trackPlayer != null)
+				applyAnalysis(trackPlayer, result);
+		});
+		doWhenShown(() -> 
+				mainUI.getOverlayPanel().getContentPanel().setUserSelectionWaveform(identifier, result.getWaveform()));
 	}
 	
 	/**
 	 * Plays / stops audio whenever a control button is pressed.
-	 * @param userSelection the user selection containing the control button acted on.
-	 * @param trackPlayer the <code>TrackPlayer</code> object associated with the given user selection.
+	 * @param name the name of the user selection containing the control button acted on.
 	 */
-	private void onControlButtonPressed(UserSelectionPanel userSelection) {
+	private void onControlButtonPressed(String name) {
+		ContentPanel contentPanel = mainUI.getOverlayPanel().getContentPanel();
 		if (mainUI.getOverlayPanel().getControlPanel().getControlButton().getMode() == ControlButton.ControlMode.PAUSE) {
 			userSelections.clear();
 			mainUI.getOverlayPanel().getControlPanel().getControlButton().switchMode();
 		}
 		
-		if (userSelection.getControlButton().getMode() == ControlButton.ControlMode.PAUSE) {
-			userSelections.add(userSelection);
-			userSelection.getTrackPlayer().setTrack(new Track(audioFileList.getAudioFile(userSelection.getNameLabel().getText())));
-			userSelection.getTrackPlayer().play(TrackPlayer.PLAY_INDEFINITELY);
-			onVolumeSliderChange(userSelection);
+		if (!contentPanel.getModel().isPlaying(name)) {
+			userSelections.add(name);
+			playTrack(name);
+			contentPanel.setUserSelectionPlaying(name, true);
 		} else {
-			userSelections.remove(userSelection);
-			userSelection.getTrackPlayer().stop();
+			userSelections.remove(name);
+			stopTrack(name);
+			contentPanel.setUserSelectionPlaying(name, false);
 			if (userSelections.isEmpty())
 				mainUI.getOverlayPanel().getControlPanel().getControlButton().switchMode();
 		}
-		userSelection.getControlButton().switchMode();
 	}
 	
 	/**
 	 * Adjusts volume whenever a volume slider is used.
-	 * @param userSelection the user selection containing the volume slider acted on.
-	 * @param trackPlayer the <code>TrackPlayer</code> object associated with the given user selection.
+	 * @param name the name of the user selection containing the volume slider acted on.
 	 */
-	private void onVolumeSliderChange(UserSelectionPanel userSelection) {
-		float masterVolume = mainUI.getOverlayPanel().getControlPanel().getVolumeSlider().getValue() / 100.0f;
-		float userSelectionVolume = userSelection.getVolumeSlider().getValue() / 100.0f;
-		userSelection.getTrackPlayer().setVolume(userSelectionVolume * masterVolume);
+	private void onVolumeSliderChange(String name) {
+		TrackPlayer trackPlayer = trackPlayers.get(name);
+		if (trackPlayer == null)
+			return;
+		
+		trackPlayer.setVolume(mainUI.getOverlayPanel().getContentPanel().getModel().getVolume(name) / 100.0f);
 	}
 	
 	/**
@@ -120,27 +478,212 @@ public class Controller {
 	 */
 	private void onMasterControlButtonPressed() {
 		if (!userSelections.isEmpty()) {
-			for (UserSelectionPanel userSelection : userSelections) {
-				if (mainUI.getOverlayPanel().getControlPanel().getControlButton().getMode() == ControlButton.ControlMode.PAUSE) {
-					userSelection.getTrackPlayer().setTrack(new Track(audioFileList.getAudioFile(userSelection.getNameLabel().getText())));
-					userSelection.getTrackPlayer().play(TrackPlayer.PLAY_INDEFINITELY);
-					onVolumeSliderChange(userSelection);
-				} else
-					userSelection.getTrackPlayer().stop();
-				userSelection.getControlButton().switchMode();
+			boolean play = mainUI.getOverlayPanel().getControlPanel().getControlButton().getMode() == 
+					ControlButton.ControlMode.PAUSE;
+			for (String name : userSelections) {
+				if (play)
+					playTrack(name);
+				else
+					stopTrack(name);
+				mainUI.getOverlayPanel().getContentPanel().setUserSelectionPlaying(name, play);
 			}
 			mainUI.getOverlayPanel().getControlPanel().getControlButton().switchMode();
 		}
 	}
 	
 	/**
-	 * Adjusts the master volume whenever the master volume slider is used.
+	 * Adjusts the master volume whenever the master volume slider is used. The audio engine applies it to every track, 
+	 * so this doesn't depend on how many tracks are playing.
 	 */
 	private void onMasterVolumeSliderChange() {
-		if (!userSelections.isEmpty()) {
-			for (UserSelectionPanel userSelection : userSelections) {
-				onVolumeSliderChange(userSelection);
-			}
+		AudioEngine.get().setMasterVolume(mainUI.getOverlayPanel().getControlPanel().getVolumeSlider().getValue() / 100.0f);
+	}
+	
+	/**
+	 * Starts playing the audio file of a user selection on a new <code>TrackPlayer</code>. Its decoded track is held by 
+	 * the {@link TrackMemoryManager}, so playing it again only decodes it again if it was evicted in the meantime.
+	 * @param name the name of the user selection, which is the identifier of its audio file.
+	 */
+	private void playTrack(String name) {
+		TrackPlayer trackPlayer = new TrackPlayer();
+		trackPlayer.setTrack(acquireTrack(name, AudioEngine.get().isLowPower()));
+		TrackAnalysis analysis = analyses.get(name);
+		if (analysis != null)
+			applyAnalysis(trackPlayer, analysis);
+		trackPlayer.play(TrackPlayer.PLAY_INDEFINITELY);
+		trackPlayers.put(name, trackPlayer);
+		onVolumeSliderChange(name);
+	}
+	
+	/**
+	 * Switches the low-power mode on or off whenever the low-power button is pressed.
+	 */
+	private void onPowerButtonPressed() {
+		PowerButton powerButton = mainUI.getOverlayPanel().getToolbarPanel().getPowerButton();
+		powerButton.setLowPower(!powerButton.isLowPower());
+		setLowPower(powerButton.isLowPower());
+	}
+	
+	/**
+	 * Switches the audio engine's low-power mode on or off while the program runs. The engine switches right away, and 
+	 * the tracks playing are converted to the new mode's format in the background and swapped in once they are ready, 
+	 * so nothing stops while they convert. They convert on a thread of their own at normal priority, rather than 
+	 * waiting behind the analyses queued on the analysis threads. Invoked on the EDT.
+	 * @param lowPower true to switch the low-power mode on, false to switch it off.
+	 */
+	private void setLowPower(boolean lowPower) {
+		if (AudioEngine.get().isLowPower() == lowPower)
+			return;
+		
+		AudioEngine.get().setLowPower(lowPower);
+		for (Map.Entry<String, TrackPlayer> entry : trackPlayers.entrySet()) {
+			String name = entry.getKey();
+			TrackPlayer trackPlayer = entry.getValue();
+			CompletableFuture.supplyAsync(() -> acquireTrack(name, lowPower), converter).thenAccept(track -> 
+					EDTDispatcher.doLater(() -> swapTrack(name, trackPlayer, track, lowPower))) 
+					.exceptionally(exception -> logFailure(exception));
+		}
+	}
+	
+	/**
+	 * Swaps a track that was converted for a new mode into the track player that was playing it, and releases the 
+	 * track it replaces. If the player has stopped or the mode has changed again in the meantime, the converted track 
+	 * is released instead.
+	 * @param name the name of the user selection, which is the identifier of its audio file.
+	 * @param trackPlayer the track player that was playing the audio file.
+	 * @param track the converted track.
+	 * @param lowPower whether the track was converted for the low-power mode.
+	 */
+	private void swapTrack(String name, TrackPlayer trackPlayer, Track track, boolean lowPower) {
+		if (trackPlayers.get(name) != trackPlayer || AudioEngine.get().isLowPower() != lowPower) {
+			TrackMemoryManager.get().release(name, track);
+			return;
+		}
+		Track previous = trackPlayer.getTrack();
+		trackPlayer.swapTrack(track);
+		TrackMemoryManager.get().release(name, previous);
+	}
+	
+	/**
+	 * Acquires the decoded track of an audio file from the {@link TrackMemoryManager}, in the format the audio engine 
+	 * mixes in, so that the engine doesn't have to convert it while playing. It must be released once it is no longer 
+	 * played.
+	 * @param identifier the identifier of the audio file.
+	 * @param lowPower true to acquire the track for the engine's low-power mode, false to acquire it as decoded.
+	 * @return the decoded <code>Track</code>.
+	 */
+	private Track acquireTrack(String identifier, boolean lowPower) {
+		if (lowPower)
+			return TrackMemoryManager.get().acquire(identifier, AudioEngine.LOW_POWER_SAMPLE_RATE, 
+					AudioEngine.LOW_POWER_CHANNELS, () -> createTrack(identifier));
+		return TrackMemoryManager.get().acquire(identifier, () -> createTrack(identifier));
+	}
+	
+	/**
+	 * Hands what was learned by analyzing an audio file to the track player playing it.
+	 * @param trackPlayer the track player, whose track has been set.
+	 * @param analysis the analysis of the audio file.
+	 */
+	private static void applyAnalysis(TrackPlayer trackPlayer, TrackAnalysis analysis) {
+		trackPlayer.setNormalizationGain(analysis.getNormalizationGain());
+		trackPlayer.setLoopPoints(analysis.getLoopStart(), analysis.getLoopEnd());
+	}
+	
+	/**
+	 * Decodes an audio file, from its file if it has one or from the resources otherwise.
+	 * @param identifier the identifier of the audio file.
+	 * @return the decoded <code>Track</code>.
+	 */
+	private Track createTrack(String identifier) {
+		File audioFile = audioFileList.getAudioFile(identifier);
+		if (audioFile != null)
+			return new Track(audioFile);
+		return new Track(resources, ResourceProvider.resolve(AUDIO_DIRECTORY, identifier));
+	}
+	
+	/**
+	 * Stops playing the audio file of a user selection, if it is playing, and releases its decoded track.
+	 * @param name the name of the user selection, which is the identifier of its audio file.
+	 */
+	private void stopTrack(String name) {
+		TrackPlayer trackPlayer = trackPlayers.remove(name);
+		if (trackPlayer != null) {
+			trackPlayer.stop();
+			TrackMemoryManager.get().release(name, trackPlayer.getTrack());
 		}
 	}
+	
+	/**
+	 * Filters the user selections down to the audio files matching the search field whenever its text changes. Text 
+	 * with an <code>AND</code> or <code>OR</code> operator, such as <code>"rain AND indoor"</code>, is looked up in the 
+	 * tag index, and anything else is matched against the start of the words in each audio file's name and tags.
+	 */
+	private void onSearchChanged() {
+		String query = mainUI.getOverlayPanel().getToolbarPanel().getSearchField().getText();
+		if (query.trim().isEmpty())
+			mainUI.getOverlayPanel().getContentPanel().setFilter(null);
+		else if (TagIndex.isQuery(query))
+			mainUI.getOverlayPanel().getContentPanel().setFilter( 
+					audioFileList.getSearchIndex().select(audioFileList.getTagIndex().query(query)));
+		else
+			mainUI.getOverlayPanel().getContentPanel().setFilter(audioFileList.getSearchIndex().search(query));
+	}
+	
+	/**
+	 * Searches again once the EDT is free, so that user selections added while a search is showing are filtered too, 
+	 * as are audio files that only made it into the search index once it was sorted again in the background. Many 
+	 * additions in a row only lead to a single search.
+	 */
+	private void scheduleSearchRefresh() {
+		if (searchRefreshPending || mainUI.getOverlayPanel().getToolbarPanel().getSearchField().getText().trim().isEmpty())
+			return;
+		
+		searchRefreshPending = true;
+		EDTDispatcher.doLater(() -> {
+			searchRefreshPending = false;
+			onSearchChanged();
+		});
+	}
+	
+	/**
+	 * Shows / hides the diagnostics overlay whenever the diagnostics button is pressed. The UI is only timed, and the 
+	 * statistics are only dumped to a log file, for as long as the overlay is showing.
+	 */
+	private void onDiagnosticsButtonPressed() {
+		DiagnosticsPanel diagnosticsPanel = mainUI.getOverlayPanel().getDiagnosticsPanel();
+		diagnosticsPanel.setVisible(!diagnosticsPanel.isVisible());
+		UIStats.get().setEnabled(diagnosticsPanel.isVisible());
+		if (diagnosticsPanel.isVisible())
+			diagnosticsLog.start();
+		else
+			diagnosticsLog.stop();
+	}
+	
+	/**
+	 * Holds back work meant for the UI while the main UI is minimized, and catches up on it once it is restored. 
+	 * User selections and waveforms for audio files that change meanwhile wait until the window is restored, and so 
+	 * do analyses that haven't started yet. Playback is left alone.
+	 * @param hidden true if the window was minimized, false if it was restored.
+	 */
+	private void onWindowHiddenChanged(boolean hidden) {
+		if (hidden == !viewShown.isDone())
+			return;
+		
+		if (hidden)
+			viewShown = new CompletableFuture<Void>();
+		else
+			viewShown.complete(null);
+	}
+	
+	/**
+	 * Gathers the engine, UI, PCM memory and power statistics for the diagnostics log.
+	 * @return the lines to log.
+	 */
+	private static List<String> getDiagnosticsLines() {
+		List<String> lines = new ArrayList<String>(AudioEngine.get().getStats().toLines());
+		lines.addAll(UIStats.get().toLines());
+		lines.addAll(TrackMemoryManager.get().toLines());
+		lines.addAll(PowerStats.get().toLines());
+		return lines;
+	}
 }
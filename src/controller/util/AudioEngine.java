@@ -0,0 +1,359 @@
+package controller.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * Mixes every playing <code>TrackPlayer</code> into a single stream of audio and writes it to an <code>AudioSink</code>. 
+ * Mixing happens in fixed-size blocks on a dedicated render thread, which is started the first time a track is played 
+ * and idles whenever nothing is playing.
+ * 
+ * <p>The sink defaults to the sound card. It can be chosen with the <code>retrorain.sink</code> system property, which 
+ * may be <code>line</code>, <code>null</code>, <code>null-unthrottled</code>, or <code>file:&lt;path&gt;</code>. If 
+ * the sound card can't be opened, a real-time null sink is used instead so that playback still runs.
+ * 
+ * <p>In the low-power mode, which is meant for thin clients and laptops on battery, the whole mix is rendered in mono 
+ * at half the sample rate, which is plenty for background ambience, and upsampled once on its way to the sink. Players 
+ * then do a quarter of the mixing work, or less once their tracks are converted to the same format. The mode can be 
+ * switched while playing: the first block in the new mode is bent to meet the last block of the old one, so the 
+ * switch doesn't click. It starts out on if the <code>retrorain.lowPower</code> system property is <code>true</code>.
+ *
+ * @author Adam
+ */
+public class AudioEngine {
+	public static final float SAMPLE_RATE = 44100.0f;
+	public static final int CHANNELS = 2;
+	public static final int BLOCK_FRAMES = 512;
+	public static final int LOW_POWER_FACTOR = 2;
+	public static final float LOW_POWER_SAMPLE_RATE = SAMPLE_RATE / LOW_POWER_FACTOR;
+	public static final int LOW_POWER_CHANNELS = 1;
+	
+	private static final int LINE_BUFFER_BLOCKS = 4;
+	private static final String SINK_PROPERTY = "retrorain.sink";
+	private static final String LOW_POWER_PROPERTY = "retrorain.lowPower";
+	
+	private static AudioEngine instance;
+	
+	private List<TrackPlayer> players;
+	private EngineStats stats;
+	private Object idleLock;
+	
+	private AudioFormat format;
+	private AudioSink sink;
+	private Thread renderThread;
+	private volatile boolean running;
+	private volatile float masterVolume;
+	private volatile boolean lowPower;
+	
+	/**
+	 * Creates a new <code>AudioEngine</code> instance. Private for the Singleton pattern.
+	 */
+	private AudioEngine() {
+		players = new CopyOnWriteArrayList<TrackPlayer>();
+		stats = new EngineStats();
+		idleLock = new Object();
+		format = new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false);
+		masterVolume = 1.0f;
+		lowPower = Boolean.getBoolean(LOW_POWER_PROPERTY);
+		
+		// Gives sinks such as the file sink a chance to finish up when the program exits.
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> shutdown(), "audio shutdown"));
+	}
+	
+	/**
+	 * Returns the Singleton instance of this class.
+	 * @return the single <code>AudioEngine</code> instance.
+	 */
+	public static synchronized AudioEngine get() {
+		if (instance == null)
+			instance = new AudioEngine();
+		return instance;
+	}
+	
+	/**
+	 * Returns the statistics gathered by the render thread.
+	 * @return the <code>EngineStats</code> of this engine.
+	 */
+	public EngineStats getStats() {
+		return stats;
+	}
+	
+	/**
+	 * Sets the volume that every player's own volume is scaled by. The render thread reads it once per block, so this 
+	 * costs the same no matter how many players there are.
+	 * @param volume a value between 0 and 1, where 0 is no volume and 1 is full volume.
+	 */
+	public void setMasterVolume(float volume) {
+		if (volume < 0 || volume > 1)
+			throw new IllegalArgumentException("volume must be a value between 0 and 1");
+		masterVolume = volume;
+	}
+	
+	/**
+	 * Switches the low-power mode on or off. The render thread picks up the change from the next block.
+	 * @param lowPower true to render in mono at {@link #LOW_POWER_SAMPLE_RATE}, false to render in stereo at 
+	 * {@link #SAMPLE_RATE}.
+	 */
+	public void setLowPower(boolean lowPower) {
+		this.lowPower = lowPower;
+	}
+	
+	/**
+	 * Returns whether or not the engine is in its low-power mode.
+	 * @return true if the low-power mode is on, false otherwise.
+	 */
+	public boolean isLowPower() {
+		return lowPower;
+	}
+	
+	/**
+	 * Sets where the engine sends its audio. This only has an effect before the first track is played, or after the 
+	 * engine has been shut down.
+	 * @param sink the <code>AudioSink</code> to write to.
+	 */
+	public synchronized void setSink(AudioSink sink) {
+		if (renderThread == null)
+			this.sink = sink;
+	}
+	
+	/**
+	 * Stops the render thread and closes the sink. The engine starts again the next time a track is played.
+	 */
+	public void shutdown() {
+		Thread thread;
+		synchronized (this) {
+			thread = renderThread;
+			if (thread == null)
+				return;
+			running = false;
+		}
+		synchronized (idleLock) {
+			idleLock.notifyAll();
+		}
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		synchronized (this) {
+			sink.close();
+			renderThread = null;
+		}
+	}
+	
+	/**
+	 * Starts mixing a player into the output, starting the render thread if it isn't running yet.
+	 * @param player the <code>TrackPlayer</code> to mix.
+	 */
+	void addPlayer(TrackPlayer player) {
+		start();
+		synchronized (idleLock) {
+			players.add(player);
+			idleLock.notifyAll();
+		}
+	}
+	
+	/**
+	 * Stops mixing a player into the output.
+	 * @param player the <code>TrackPlayer</code> to no longer mix.
+	 */
+	void removePlayer(TrackPlayer player) {
+		players.remove(player);
+	}
+	
+	/**
+	 * Opens the sink and starts the render thread, if this hasn't been done already.
+	 */
+	private synchronized void start() {
+		if (renderThread != null)
+			return;
+		
+		if (sink == null)
+			sink = createDefaultSink();
+		int bufferSize = BLOCK_FRAMES * format.getFrameSize() * LINE_BUFFER_BLOCKS;
+		try {
+			sink.open(format, bufferSize);
+		} catch (LineUnavailableException | IOException e) {
+			e.printStackTrace();
+			System.err.println("Audio output unavailable, falling back to a null sink.");
+			sink = new NullAudioSink(true);
+			try {
+				sink.open(format, bufferSize);
+			} catch (LineUnavailableException | IOException fallbackException) {
+				fallbackException.printStackTrace();
+				return;
+			}
+		}
+		
+		running = true;
+		renderThread = new Thread(() -> renderLoop(), "audio render");
+		renderThread.setDaemon(true);
+		renderThread.setPriority(Thread.MAX_PRIORITY);
+		renderThread.start();
+	}
+	
+	/**
+	 * Creates the sink requested by the <code>retrorain.sink</code> system property.
+	 * @return the requested <code>AudioSink</code>, or a <code>LineAudioSink</code> if none was requested.
+	 */
+	private static AudioSink createDefaultSink() {
+		String requested = System.getProperty(SINK_PROPERTY, "line");
+		if (requested.equals("null"))
+			return new NullAudioSink(true);
+		if (requested.equals("null-unthrottled"))
+			return new NullAudioSink(false);
+		if (requested.startsWith("file:"))
+			return new WavFileAudioSink(new File(requested.substring("file:".length())), true);
+		return new LineAudioSink();
+	}
+	
+	/**
+	 * Repeatedly mixes a block from every player and writes it to the sink. The sink's blocking write paces the loop to 
+	 * real time.
+	 */
+	private void renderLoop() {
+		float[] mix = new float[BLOCK_FRAMES * CHANNELS];
+		float[] lowPowerMix = new float[BLOCK_FRAMES / LOW_POWER_FACTOR];
+		float[] lastFrame = new float[CHANNELS];
+		byte[] output = new byte[mix.length * 2];
+		long blockNanos = (long)(BLOCK_FRAMES * 1e9 / SAMPLE_RATE);
+		long nanosPerByte = (long)(1e9 / (SAMPLE_RATE * format.getFrameSize()));
+		long lastGCMillis = getGCMillis();
+		boolean primed = false;
+		boolean renderedLowPower = lowPower;
+		stats.recordMode(renderedLowPower);
+		
+		while (running) {
+			if (players.isEmpty()) {
+				sink.drain();
+				if (!waitForPlayers())
+					break;
+				primed = false;
+				lastGCMillis = getGCMillis();
+				Arrays.fill(lastFrame, 0);
+			}
+			
+			int headroom = sink.available();
+			long queuedNanos = (sink.getBufferSize() - headroom) * nanosPerByte;
+			long startNanos = System.nanoTime();
+			
+			float volume = masterVolume;
+			boolean lowPower = this.lowPower;
+			if (lowPower) {
+				Arrays.fill(lowPowerMix, 0);
+				for (TrackPlayer player : players) {
+					if (!player.render(lowPowerMix, lowPowerMix.length, LOW_POWER_CHANNELS, LOW_POWER_SAMPLE_RATE, 
+							volume))
+						players.remove(player);
+				}
+				upsample(lowPowerMix, (lastFrame[0] + lastFrame[1]) / 2, mix);
+			} else {
+				Arrays.fill(mix, 0);
+				for (TrackPlayer player : players) {
+					if (!player.render(mix, BLOCK_FRAMES, CHANNELS, SAMPLE_RATE, volume))
+						players.remove(player);
+				}
+			}
+			if (lowPower != renderedLowPower) {
+				meet(mix, lastFrame);
+				renderedLowPower = lowPower;
+				stats.recordMode(lowPower);
+			}
+			System.arraycopy(mix, mix.length - CHANNELS, lastFrame, 0, CHANNELS);
+			toPCM(mix, output);
+			
+			long gcMillis = getGCMillis();
+			stats.recordBlock(System.nanoTime() - startNanos, blockNanos, headroom, sink.getBufferSize(), queuedNanos, 
+					primed, gcMillis - lastGCMillis);
+			lastGCMillis = gcMillis;
+			
+			sink.write(output, 0, output.length);
+			primed = true;
+		}
+	}
+	
+	/**
+	 * Blocks the render thread until there is at least one player to mix, or the engine is shut down.
+	 * @return true if there are players to mix, false if the engine was shut down.
+	 */
+	private boolean waitForPlayers() {
+		synchronized (idleLock) {
+			while (running && players.isEmpty()) {
+				try {
+					idleLock.wait();
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
+			return running;
+		}
+	}
+	
+	/**
+	 * Upsamples a block mixed in the low-power mode to the output rate and copies it to every output channel. Each 
+	 * output sample is interpolated between two low-power samples, which delays the block by less than one of them.
+	 * @param lowPowerMix the mono samples mixed at {@link #LOW_POWER_SAMPLE_RATE}.
+	 * @param previous the sample that was output just before the block.
+	 * @param mix where to write the interleaved samples at {@link #SAMPLE_RATE}.
+	 */
+	private static void upsample(float[] lowPowerMix, float previous, float[] mix) {
+		for (int i = 0; i < lowPowerMix.length; i++) {
+			float sample = lowPowerMix[i];
+			for (int step = 1; step <= LOW_POWER_FACTOR; step++) {
+				float value = previous + (sample - previous) * step / LOW_POWER_FACTOR;
+				int frame = i * LOW_POWER_FACTOR + step - 1;
+				for (int channel = 0; channel < CHANNELS; channel++)
+					mix[frame * CHANNELS + channel] = value;
+			}
+			previous = sample;
+		}
+	}
+	
+	/**
+	 * Bends the first block rendered after switching modes so that it starts where the previous block ended. The jump 
+	 * between the two blocks is added back to the block and faded out across it, which turns what would be a click 
+	 * into a gentle slope.
+	 * @param mix the interleaved samples of the block.
+	 * @param lastFrame the last frame output before the block.
+	 */
+	private static void meet(float[] mix, float[] lastFrame) {
+		for (int channel = 0; channel < CHANNELS; channel++) {
+			float jump = lastFrame[channel] - mix[channel];
+			for (int frame = 0; frame < BLOCK_FRAMES; frame++)
+				mix[frame * CHANNELS + channel] += jump * (BLOCK_FRAMES - frame) / BLOCK_FRAMES;
+		}
+	}
+	
+	/**
+	 * Converts a block of mixed samples into 16-bit little-endian PCM, clipping anything out of range.
+	 * @param mix the mixed samples, where 1 is full scale.
+	 * @param output where to write the PCM bytes.
+	 */
+	private static void toPCM(float[] mix, byte[] output) {
+		for (int i = 0; i < mix.length; i++) {
+			float sample = Math.max(-1.0f, Math.min(1.0f, mix[i]));
+			int value = (int)(sample * 32767);
+			output[i * 2] = (byte)value;
+			output[i * 2 + 1] = (byte)(value >> 8);
+		}
+	}
+	
+	/**
+	 * Returns the total time the garbage collectors have spent collecting since the program started.
+	 * @return the collection time in milliseconds.
+	 */
+	private static long getGCMillis() {
+		long total = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+			total += Math.max(0, collector.getCollectionTime());
+		return total;
+	}
+}
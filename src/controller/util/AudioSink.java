@@ -0,0 +1,54 @@
+package controller.util;
+
+import java.io.IOException;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * Represents somewhere the {@link AudioEngine} can send its mixed blocks of PCM audio, such as the sound card or a 
+ * file. Sinks behave like a Java Sound <code>SourceDataLine</code>: they have a buffer of a fixed size, report how much 
+ * of it is free, and block on writes until there is room.
+ * 
+ * @author Adam
+ */
+public interface AudioSink {
+	/**
+	 * Prepares the sink to receive audio.
+	 * @param format the format of the audio that will be written.
+	 * @param bufferSize the requested size of the sink's buffer, in bytes.
+	 * @throws LineUnavailableException thrown if the sink relies on an audio device that can't be opened.
+	 * @throws IOException thrown if the sink relies on a file that can't be opened.
+	 */
+	void open(AudioFormat format, int bufferSize) throws LineUnavailableException, IOException;
+	
+	/**
+	 * Writes audio to the sink, blocking until all of it has been buffered.
+	 * @param data the PCM bytes to write.
+	 * @param offset where in <code>data</code> to start.
+	 * @param length how many bytes to write.
+	 */
+	void write(byte[] data, int offset, int length);
+	
+	/**
+	 * Returns how many bytes can currently be written without blocking.
+	 * @return the free space of the sink's buffer, in bytes.
+	 */
+	int available();
+	
+	/**
+	 * Returns the size of the sink's buffer.
+	 * @return the buffer size, in bytes.
+	 */
+	int getBufferSize();
+	
+	/**
+	 * Blocks until all buffered audio has been consumed.
+	 */
+	void drain();
+	
+	/**
+	 * Releases any resources held by the sink. Nothing can be written afterwards.
+	 */
+	void close();
+}
@@ -0,0 +1,98 @@
+package controller.util;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Periodically appends diagnostic statistics to a log file. Writing happens on a background thread so that neither the 
+ * UI nor the render thread ever waits on the disk.
+ * 
+ * @author Adam
+ */
+public class DiagnosticsLog {
+	private static final long PERIOD_MILLIS = 1000;
+	
+	private String path;
+	private Supplier<List<String>> source;
+	private ScheduledExecutorService executor;
+	private PrintWriter writer;
+	
+	/**
+	 * Creates a new <code>DiagnosticsLog</code>. Nothing is written until {@link #start()} is invoked.
+	 * @param path the path of the log file to append to.
+	 * @param source supplies the lines to write each period.
+	 */
+	public DiagnosticsLog(String path, Supplier<List<String>> source) {
+		this.path = path;
+		this.source = source;
+	}
+	
+	/**
+	 * Opens the log file and starts appending to it once per second.
+	 */
+	public synchronized void start() {
+		if (executor != null)
+			return;
+		
+		try {
+			writer = new PrintWriter(new FileWriter(path, true));
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "diagnostics log");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleAtFixedRate(() -> writeEntry(), 0, PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Stops appending to the log file and closes it.
+	 */
+	public synchronized void stop() {
+		if (executor == null)
+			return;
+		
+		executor.shutdown();
+		try {
+			executor.awaitTermination(PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		executor = null;
+		writer.close();
+		writer = null;
+	}
+	
+	/**
+	 * Returns whether or not the log is currently being written to.
+	 * @return true if the log has been started, false otherwise.
+	 */
+	public synchronized boolean isRunning() {
+		return executor != null;
+	}
+	
+	/**
+	 * Appends a single timestamped entry to the log file.
+	 */
+	private void writeEntry() {
+		PrintWriter writer = this.writer;
+		if (writer == null)
+			return;
+		
+		writer.println("[" + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()) + "]");
+		for (String line : source.get())
+			writer.println("  " + line);
+		writer.flush();
+	}
+}
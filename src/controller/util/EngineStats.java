@@ -0,0 +1,211 @@
+package controller.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects timing information about the {@link AudioEngine}'s render thread, such as how long each block takes to 
+ * render, how many blocks missed their deadline, how much headroom the output line had, and how long the garbage 
+ * collector paused the program while playing.
+ * 
+ * <p>Only the render thread writes to these statistics, so any thread can safely read them at any time.
+ * 
+ * @author Adam
+ */
+public class EngineStats {
+	private volatile long blockNanos;
+	private volatile long blocks;
+	private volatile long lastRenderNanos;
+	private volatile long maxRenderNanos;
+	private volatile long totalRenderNanos;
+	private volatile long deadlineMisses;
+	private volatile long underruns;
+	private volatile int lineBufferSize;
+	private volatile int lastHeadroom;
+	private volatile int minHeadroom;
+	private volatile long gcPauseMillis;
+	private volatile long maxGCPauseMillis;
+	private volatile boolean lowPower;
+	private volatile boolean resetRequested;
+	
+	/**
+	 * Creates a new <code>EngineStats</code> object with all statistics zeroed.
+	 */
+	public EngineStats() {
+		minHeadroom = Integer.MAX_VALUE;
+	}
+	
+	/**
+	 * Asks for all statistics to be zeroed. The reset happens the next time the render thread records a block.
+	 */
+	public void reset() {
+		resetRequested = true;
+	}
+	
+	/**
+	 * Returns the amount of blocks rendered so far.
+	 * @return the block count.
+	 */
+	public long getBlocks() {
+		return blocks;
+	}
+	
+	/**
+	 * Returns how long the most recent block took to render.
+	 * @return the render time in nanoseconds.
+	 */
+	public long getLastRenderNanos() {
+		return lastRenderNanos;
+	}
+	
+	/**
+	 * Returns the longest time any block took to render.
+	 * @return the render time in nanoseconds.
+	 */
+	public long getMaxRenderNanos() {
+		return maxRenderNanos;
+	}
+	
+	/**
+	 * Returns the average time a block took to render.
+	 * @return the render time in nanoseconds, or 0 if nothing has been rendered yet.
+	 */
+	public long getAverageRenderNanos() {
+		long count = blocks;
+		return (count == 0) ? 0 : totalRenderNanos / count;
+	}
+	
+	/**
+	 * Returns how many blocks took longer to render than the audio that was still queued in the output line, meaning 
+	 * the line ran dry before the block arrived.
+	 * @return the deadline miss count.
+	 */
+	public long getDeadlineMisses() {
+		return deadlineMisses;
+	}
+	
+	/**
+	 * Returns how many times the output line was found completely empty before a block was written to it.
+	 * @return the underrun count.
+	 */
+	public long getUnderruns() {
+		return underruns;
+	}
+	
+	/**
+	 * Returns the free space of the output line before the most recent block was written, relative to its size.
+	 * @return a value between 0 and 1, where 1 means the line was empty.
+	 */
+	public float getLastHeadroom() {
+		int size = lineBufferSize;
+		return (size == 0) ? 0 : (float)lastHeadroom / size;
+	}
+	
+	/**
+	 * Returns the smallest free space the output line had before a block was written, relative to its size.
+	 * @return a value between 0 and 1, where 1 means the line was empty.
+	 */
+	public float getMinHeadroom() {
+		int size = lineBufferSize;
+		return (size == 0 || minHeadroom == Integer.MAX_VALUE) ? 0 : (float)minHeadroom / size;
+	}
+	
+	/**
+	 * Returns the total time the garbage collector spent collecting while the engine was playing.
+	 * @return the pause time in milliseconds.
+	 */
+	public long getGCPauseMillis() {
+		return gcPauseMillis;
+	}
+	
+	/**
+	 * Returns the longest time the garbage collector spent collecting during a single block.
+	 * @return the pause time in milliseconds.
+	 */
+	public long getMaxGCPauseMillis() {
+		return maxGCPauseMillis;
+	}
+	
+	/**
+	 * Returns whether or not the most recent block was rendered in the engine's low-power mode.
+	 * @return true if it was rendered in the low-power mode, false otherwise.
+	 */
+	public boolean isLowPower() {
+		return lowPower;
+	}
+	
+	/**
+	 * Formats the statistics into human readable lines, suitable for the diagnostics overlay or a log file.
+	 * @return the formatted statistics.
+	 */
+	public List<String> toLines() {
+		List<String> lines = new ArrayList<String>();
+		lines.add(String.format("blocks     %d", blocks));
+		lines.add(String.format("render     %.2f / %.2f ms", getAverageRenderNanos() / 1e6, maxRenderNanos / 1e6));
+		lines.add(String.format("budget     %.2f ms", blockNanos / 1e6));
+		lines.add(String.format("misses     %d", deadlineMisses));
+		lines.add(String.format("underruns  %d", underruns));
+		lines.add(String.format("headroom   %d%% (min %d%%)", (int)(getLastHeadroom() * 100), 
+				(int)(getMinHeadroom() * 100)));
+		lines.add(String.format("gc pauses  %d ms (max %d)", gcPauseMillis, maxGCPauseMillis));
+		if (lowPower)
+			lines.add(String.format("mode       low power (%d Hz mono)", (int)AudioEngine.LOW_POWER_SAMPLE_RATE));
+		else
+			lines.add(String.format("mode       full (%d Hz stereo)", (int)AudioEngine.SAMPLE_RATE));
+		return lines;
+	}
+	
+	/**
+	 * Records which mode the engine renders in. Invoked by the render thread whenever the mode changes.
+	 * @param lowPower true if blocks are rendered in the low-power mode, false otherwise.
+	 */
+	void recordMode(boolean lowPower) {
+		this.lowPower = lowPower;
+	}
+	
+	/**
+	 * Records a rendered block. Invoked by the render thread before the block is written to the output line.
+	 * @param renderNanos how long the block took to render.
+	 * @param blockNanos how long the block takes to play.
+	 * @param headroom the free space of the output line, in bytes, before the block was written.
+	 * @param lineBufferSize the total size of the output line, in bytes.
+	 * @param queuedNanos how much audio was still queued in the output line when rendering started.
+	 * @param primed whether or not the line has been written to since the engine was last idle. An empty line is only 
+	 * an underrun if it was primed.
+	 * @param gcMillis how long the garbage collector paused the program since the previous block.
+	 */
+	void recordBlock(long renderNanos, long blockNanos, int headroom, int lineBufferSize, long queuedNanos, 
+			boolean primed, long gcMillis) {
+		if (resetRequested) {
+			resetRequested = false;
+			blocks = 0;
+			maxRenderNanos = 0;
+			totalRenderNanos = 0;
+			deadlineMisses = 0;
+			underruns = 0;
+			minHeadroom = Integer.MAX_VALUE;
+			gcPauseMillis = 0;
+			maxGCPauseMillis = 0;
+		}
+		
+		this.blockNanos = blockNanos;
+		this.lineBufferSize = lineBufferSize;
+		blocks++;
+		lastRenderNanos = renderNanos;
+		totalRenderNanos += renderNanos;
+		if (renderNanos > maxRenderNanos)
+			maxRenderNanos = renderNanos;
+		lastHeadroom = headroom;
+		if (primed) {
+			if (headroom < minHeadroom)
+				minHeadroom = headroom;
+			if (headroom >= lineBufferSize)
+				underruns++;
+			if (renderNanos > queuedNanos)
+				deadlineMisses++;
+		}
+		gcPauseMillis += gcMillis;
+		if (gcMillis > maxGCPauseMillis)
+			maxGCPauseMillis = gcMillis;
+	}
+}
@@ -0,0 +1,59 @@
+package controller.util;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Represents an <code>AudioSink</code> that plays audio through the sound card using a Java Sound 
+ * <code>SourceDataLine</code>.
+ * 
+ * @author Adam
+ */
+public class LineAudioSink implements AudioSink {
+	private SourceDataLine line;
+	
+	/**
+	 * Creates a new <code>LineAudioSink</code>. The line itself is obtained when the sink is opened.
+	 */
+	public LineAudioSink() {}
+	
+	@Override
+	public void open(AudioFormat format, int bufferSize) throws LineUnavailableException {
+		try {
+			line = AudioSystem.getSourceDataLine(format);
+		} catch (IllegalArgumentException e) {
+			// Thrown instead of LineUnavailableException when there is no audio device at all.
+			throw new LineUnavailableException(e.getMessage());
+		}
+		line.open(format, bufferSize);
+		line.start();
+	}
+	
+	@Override
+	public void write(byte[] data, int offset, int length) {
+		line.write(data, offset, length);
+	}
+	
+	@Override
+	public int available() {
+		return line.available();
+	}
+	
+	@Override
+	public int getBufferSize() {
+		return line.getBufferSize();
+	}
+	
+	@Override
+	public void drain() {
+		line.drain();
+	}
+	
+	@Override
+	public void close() {
+		line.stop();
+		line.close();
+	}
+}
@@ -0,0 +1,23 @@
+package controller.util;
+
+/**
+ * Represents an <code>AudioSink</code> that discards everything written to it. Useful for running the player on 
+ * machines without a sound card, and for benchmarking the engine when unthrottled.
+ * 
+ * @author Adam
+ */
+public class NullAudioSink extends PacedAudioSink {
+	/**
+	 * Creates a new <code>NullAudioSink</code>.
+	 * @param realTime true to consume audio at the rate it would play, false to consume it as fast as it's written.
+	 */
+	public NullAudioSink(boolean realTime) {
+		super(realTime);
+	}
+	
+	@Override
+	public void close() {}
+	
+	@Override
+	protected void consume(byte[] data, int offset, int length) {}
+}
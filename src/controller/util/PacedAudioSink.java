@@ -0,0 +1,113 @@
+package controller.util;
+
+import java.io.IOException;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * Represents an <code>AudioSink</code> that isn't backed by a sound card, so it has to imitate one. When paced in real 
+ * time, the sink pretends to play its buffer at the rate of the audio format, blocking writes until there is room just 
+ * like a <code>SourceDataLine</code> would. When unthrottled, every write is consumed immediately.
+ * 
+ * @author Adam
+ */
+public abstract class PacedAudioSink implements AudioSink {
+	private boolean realTime;
+	private int bufferSize;
+	private double bytesPerNano;
+	
+	// Bytes written but not yet "played", as of lastUpdateNanos.
+	private long queuedBytes;
+	private long lastUpdateNanos;
+	
+	/**
+	 * Creates a new <code>PacedAudioSink</code>.
+	 * @param realTime true to consume audio at the rate it would play, false to consume it as fast as it's written.
+	 */
+	protected PacedAudioSink(boolean realTime) {
+		this.realTime = realTime;
+	}
+	
+	@Override
+	public void open(AudioFormat format, int bufferSize) throws LineUnavailableException, IOException {
+		this.bufferSize = bufferSize;
+		bytesPerNano = format.getSampleRate() * format.getFrameSize() / 1e9;
+		queuedBytes = 0;
+		lastUpdateNanos = System.nanoTime();
+	}
+	
+	@Override
+	public void write(byte[] data, int offset, int length) {
+		consume(data, offset, length);
+		if (!realTime)
+			return;
+		
+		updateQueue();
+		queuedBytes += length;
+		long excessBytes = queuedBytes - bufferSize;
+		if (excessBytes > 0)
+			sleepNanos((long)(excessBytes / bytesPerNano));
+	}
+	
+	/**
+	 * Returns how many bytes can be written without blocking. An unthrottled sink never has anything queued, but 
+	 * reports a full buffer so that the engine doesn't mistake it for an underrun.
+	 */
+	@Override
+	public int available() {
+		if (!realTime)
+			return 0;
+		
+		updateQueue();
+		return (int)(bufferSize - queuedBytes);
+	}
+	
+	@Override
+	public int getBufferSize() {
+		return bufferSize;
+	}
+	
+	@Override
+	public void drain() {
+		if (realTime) {
+			updateQueue();
+			sleepNanos((long)(queuedBytes / bytesPerNano));
+		}
+	}
+	
+	/**
+	 * Does something with a block of written audio, such as discarding it or saving it to a file.
+	 * @param data the PCM bytes written.
+	 * @param offset where in <code>data</code> the block starts.
+	 * @param length how many bytes the block is.
+	 */
+	protected abstract void consume(byte[] data, int offset, int length);
+	
+	/**
+	 * Removes whatever would have been played since the last update from the queue.
+	 */
+	private void updateQueue() {
+		long now = System.nanoTime();
+		long playedBytes = (long)((now - lastUpdateNanos) * bytesPerNano);
+		if (playedBytes > 0) {
+			queuedBytes = Math.max(0, queuedBytes - playedBytes);
+			lastUpdateNanos = now;
+		}
+	}
+	
+	/**
+	 * Sleeps the calling thread for roughly the given amount of time.
+	 * @param nanos how long to sleep for.
+	 */
+	private static void sleepNanos(long nanos) {
+		if (nanos <= 0)
+			return;
+		
+		try {
+			Thread.sleep(nanos / 1000000, (int)(nanos % 1000000));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
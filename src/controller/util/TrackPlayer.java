@@ -1,16 +1,22 @@
 package controller.util;
 
-import java.io.IOException;
-
-import javax.sound.sampled.Clip;
-import javax.sound.sampled.FloatControl;
-import javax.sound.sampled.LineUnavailableException;
+import java.nio.ShortBuffer;
 
 import model.Track;
 
 /**
- * Represents an audio player for <code>Track</code> objects.
+ * Represents an audio player for <code>Track</code> objects. A playing <code>TrackPlayer</code> is registered with the 
+ * {@link AudioEngine}, which asks it to mix its samples into each block of output.
+ * 
+ * <p>Setting the volume only stores it. The render thread reads it once per block, combines it with the engine's master 
+ * volume, and ramps smoothly to the resulting gain across the block, so the volume can be changed as often as a slider 
+ * moves without any extra work or audible steps. A track's normalization gain, which evens out how loud different 
+ * tracks are, is folded into the same gain, so it costs nothing per sample either.
  * 
+ * <p>A track plays from its start and then loops between its loop points, which default to the whole track. Like the 
+ * volume, they can be set while the track plays and are picked up by the next block. So can the same track in another 
+ * format, such as when the engine switches to its low-power mode, which carries on from the same point in the audio.
+ *
  * @author Adam
  */
 public class TrackPlayer {
@@ -18,15 +24,24 @@ public class TrackPlayer {
 	
 	private static final int LOW_VOLUME = -30;
 	
-	private Track track;
-	private float startVolume;
-	private FloatControl gainControl;
+	private volatile Track track;
+	private volatile float volume;
+	private volatile float normalizationGain;
+	private volatile int[] loop;
+	private volatile boolean playing;
+	
+	// Only touched by the render thread once playing.
+	private Track renderedTrack;
+	private double position;
+	private int loopsRemaining;
+	private float gain;
 	
 	/**
 	 * Creates a new <code>TrackPlayer</code> instance.
 	 */
 	public TrackPlayer() {
-		startVolume = 1.0f;
+		volume = 1.0f;
+		normalizationGain = 1.0f;
 	}
 	
 	/**
@@ -37,6 +52,24 @@ public class TrackPlayer {
 		if (this.track != null)
 			stop();
 		this.track = track;
+		loop = null;
+	}
+	
+	/**
+	 * Replaces the track of this player with the same audio in another format, without interrupting it if it is 
+	 * playing. Playback carries on from the same point in the audio from the next block rendered.
+	 * @param track the <code>Track</code> to switch to, which must have been decoded from the same audio file.
+	 */
+	public void swapTrack(Track track) {
+		this.track = track;
+	}
+	
+	/**
+	 * Returns the <code>Track</code> object that this player plays.
+	 * @return the track, or <code>null</code> if none has been set.
+	 */
+	public Track getTrack() {
+		return track;
 	}
 	
 	/**
@@ -46,50 +79,151 @@ public class TrackPlayer {
 	 * @param times how many times to play the track. A constant is defined for playing indefinitely. 
 	 */
 	public void play(int times) {
-		Clip clip = track.getClip();
-		if (times >= 0 && !clip.isOpen()) {
-			try {
-				clip.open(track.getAudioInputStream());
-				gainControl = (FloatControl)track.getClip().getControl(FloatControl.Type.MASTER_GAIN);
-				if (startVolume != 1.0f)
-					setVolume(startVolume);
-				clip.loop(times - 1);
-			} catch (LineUnavailableException | IOException e) {
-				e.printStackTrace();
-			}
+		if (times >= 0 && !playing && track != null) {
+			renderedTrack = track;
+			position = 0;
+			loopsRemaining = times;
+			gain = -1;
+			playing = true;
+			AudioEngine.get().addPlayer(this);
 		}
 	}
 	
 	/**
-	 * Stops and closes a track if it has already been opened via the <code>play</code> method. Note that once a track 
-	 * is closed it may not be possible to reopen it. In this case, the <code>setTrack</code> method should be invoked 
-	 * first.
+	 * Stops a track if it has already been started via the <code>play</code> method.
 	 */
 	public void stop() {
-		Clip clip = track.getClip();
-		if (clip.isOpen()) {
-			clip.stop();
-			clip.close();
+		if (playing) {
+			playing = false;
+			AudioEngine.get().removePlayer(this);
 		}
 	}
 	
 	/**
-	 * Sets the volume of this particular <code>TrackPlayer</code>. 
+	 * Returns whether or not this player is currently playing its track.
+	 * @return true if the track is playing, false otherwise.
+	 */
+	public boolean isPlaying() {
+		return playing;
+	}
+	
+	/**
+	 * Sets the volume of this particular <code>TrackPlayer</code>. It is scaled by the master volume of the 
+	 * {@link AudioEngine}, and takes effect from the next block rendered.
 	 * @param volume a value between 0 and 1, where 0 is no volume and 1 is full volume.
 	 */
 	public void setVolume(float volume) {
 		if (volume < 0 || volume > 1)
 			throw new IllegalArgumentException("volume must be a value between 0 and 1");
+		this.volume = volume;
+	}
+	
+	/**
+	 * Sets the gain that brings this player's track to a common loudness (see 
+	 * {@link model.TrackAnalysis#getNormalizationGain()}). It takes effect from the next block rendered, ramping like a 
+	 * change of volume does.
+	 * @param normalizationGain the gain to multiply the track's samples by, where 1 leaves them as they are.
+	 */
+	public void setNormalizationGain(float normalizationGain) {
+		if (normalizationGain < 0)
+			throw new IllegalArgumentException("normalizationGain must not be negative");
+		this.normalizationGain = normalizationGain;
+	}
+	
+	/**
+	 * Sets the loop points of this player's track, such as those found by {@link model.util.LoopFinder}. Once 
+	 * playback reaches the end of the loop, it jumps back to the start of the loop. The loop points are frames of the 
+	 * audio file (see {@link Track#getSourceSampleRate()}), so they hold for the track in any format. Loop points 
+	 * outside the track are moved inside it.
+	 * @param loopStart the first frame of the loop.
+	 * @param loopEnd the frame after the last frame of the loop.
+	 */
+	public void setLoopPoints(int loopStart, int loopEnd) {
+		loop = new int[] {loopStart, loopEnd};
+	}
+	
+	/**
+	 * Mixes the next block of this player's track into a mono or stereo mix buffer, resampling to the mix's rate as 
+	 * needed. Invoked by the {@link AudioEngine} on its render thread.
+	 * @param mix the buffer to add samples to, interleaved if stereo.
+	 * @param frames how many frames to render.
+	 * @param mixChannels the amount of channels of the mix buffer, which is 1 or 2.
+	 * @param mixRate the sample rate of the mix buffer.
+	 * @param masterVolume the master volume of the engine, between 0 and 1.
+	 * @return false if the track has finished playing and should no longer be rendered, true otherwise.
+	 */
+	boolean render(float[] mix, int frames, int mixChannels, float mixRate, float masterVolume) {
+		Track track = this.track;
+		if (track != renderedTrack) {
+			position = Math.min(position * track.getSampleRate() / renderedTrack.getSampleRate(), 
+					Math.max(0, track.getFrameCount() - 1));
+			renderedTrack = track;
+		}
+		ShortBuffer samples = track.getSamples();
+		int channels = track.getChannels();
+		int frameCount = track.getFrameCount();
+		if (!playing || frameCount == 0)
+			return false;
+		
+		// The first block starts at its gain, and every block after ramps from the previous block's gain.
+		float targetGain = toGain(volume * masterVolume) * normalizationGain;
+		if (gain < 0)
+			gain = targetGain;
+		float scale = gain / 32768.0f;
+		float scaleStep = (targetGain - gain) / 32768.0f / frames;
+		gain = targetGain;
 		
-		if (track == null)
-			startVolume = volume;
-		else {
-			if (volume == 0)
-				gainControl.setValue(gainControl.getMinimum());
-			else {
-				float value = LOW_VOLUME + (-LOW_VOLUME * volume);
-				gainControl.setValue(value);
+		int loopStart = 0;
+		int loopEnd = frameCount;
+		int[] loop = this.loop;
+		if (loop != null) {
+			float loopScale = track.getSampleRate() / track.getSourceSampleRate();
+			loopEnd = Math.max(1, Math.min((int)(loop[1] * loopScale), frameCount));
+			loopStart = Math.max(0, Math.min((int)(loop[0] * loopScale), loopEnd - 1));
+		}
+		double step = track.getSampleRate() / mixRate;
+		for (int i = 0; i < frames; i++) {
+			int frame = (int)position;
+			int nextFrame = (frame + 1 < loopEnd) ? frame + 1 : loopStart;
+			float fraction = (float)(position - frame);
+			
+			int left = frame * channels;
+			int nextLeft = nextFrame * channels;
+			float leftSample = samples.get(left) + (samples.get(nextLeft) - samples.get(left)) * fraction;
+			float rightSample = leftSample;
+			if (channels > 1)
+				rightSample = samples.get(left + 1) + (samples.get(nextLeft + 1) - samples.get(left + 1)) * fraction;
+			if (mixChannels == 1) {
+				mix[i] += (leftSample + rightSample) * 0.5f * scale;
+			} else {
+				mix[i * 2] += leftSample * scale;
+				mix[i * 2 + 1] += rightSample * scale;
+			}
+			scale += scaleStep;
+			
+			position += step;
+			if (position >= loopEnd) {
+				// Loop points set while playing can end well before the current position, which then restarts the loop.
+				position -= loopEnd - loopStart;
+				if (position >= loopEnd)
+					position = loopStart;
+				if (loopsRemaining != PLAY_INDEFINITELY && --loopsRemaining == 0) {
+					playing = false;
+					return false;
+				}
 			}
 		}
+		return true;
+	}
+	
+	/**
+	 * Converts a volume into a gain, so that the volume sounds like it changes evenly.
+	 * @param volume a value between 0 and 1, where 0 is no volume and 1 is full volume.
+	 * @return the gain to multiply samples by.
+	 */
+	private static float toGain(float volume) {
+		if (volume == 0)
+			return 0;
+		return (float)Math.pow(10, (LOW_VOLUME + (-LOW_VOLUME * volume)) / 20.0);
 	}
 }
@@ -0,0 +1,114 @@
+package controller.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * Represents an <code>AudioSink</code> that records everything written to it into a .wav file. The header's sizes are 
+ * filled in once the sink is closed.
+ * 
+ * @author Adam
+ */
+public class WavFileAudioSink extends PacedAudioSink {
+	private static final int HEADER_SIZE = 44;
+	
+	private File file;
+	private RandomAccessFile output;
+	private long dataSize;
+	
+	/**
+	 * Creates a new <code>WavFileAudioSink</code>.
+	 * @param file the .wav file to write. Any existing file is overwritten.
+	 * @param realTime true to consume audio at the rate it would play, false to consume it as fast as it's written.
+	 */
+	public WavFileAudioSink(File file, boolean realTime) {
+		super(realTime);
+		this.file = file;
+	}
+	
+	@Override
+	public void open(AudioFormat format, int bufferSize) throws LineUnavailableException, IOException {
+		super.open(format, bufferSize);
+		output = new RandomAccessFile(file, "rw");
+		output.setLength(0);
+		writeHeader(format);
+		dataSize = 0;
+	}
+	
+	@Override
+	public synchronized void close() {
+		if (output == null)
+			return;
+		
+		try {
+			output.seek(4);
+			writeIntLE((int)(HEADER_SIZE - 8 + dataSize));
+			output.seek(40);
+			writeIntLE((int)dataSize);
+			output.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		output = null;
+	}
+	
+	@Override
+	protected synchronized void consume(byte[] data, int offset, int length) {
+		if (output == null)
+			return;
+		
+		try {
+			output.write(data, offset, length);
+			dataSize += length;
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Writes a canonical PCM .wav header with placeholder sizes.
+	 * @param format the format of the audio that will follow the header.
+	 * @throws IOException thrown if the header couldn't be written.
+	 */
+	private void writeHeader(AudioFormat format) throws IOException {
+		output.writeBytes("RIFF");
+		writeIntLE(0);
+		output.writeBytes("WAVE");
+		output.writeBytes("fmt ");
+		writeIntLE(16);
+		writeShortLE(1);
+		writeShortLE(format.getChannels());
+		writeIntLE((int)format.getSampleRate());
+		writeIntLE((int)format.getSampleRate() * format.getFrameSize());
+		writeShortLE(format.getFrameSize());
+		writeShortLE(format.getSampleSizeInBits());
+		output.writeBytes("data");
+		writeIntLE(0);
+	}
+	
+	/**
+	 * Writes a little-endian 32-bit integer.
+	 * @param value the value to write.
+	 * @throws IOException thrown if the value couldn't be written.
+	 */
+	private void writeIntLE(int value) throws IOException {
+		output.write(value);
+		output.write(value >> 8);
+		output.write(value >> 16);
+		output.write(value >> 24);
+	}
+	
+	/**
+	 * Writes a little-endian 16-bit integer.
+	 * @param value the value to write.
+	 * @throws IOException thrown if the value couldn't be written.
+	 */
+	private void writeShortLE(int value) throws IOException {
+		output.write(value);
+		output.write(value >> 8);
+	}
+}
@@ -1,49 +1,140 @@
 package model;
 
 import java.io.File;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents a depot of audio files. An audio file is just a file that can be given to a {@link model.Track} 
- * object and played on a {@link controller.util.TrackPlayer}. A {@link HashMap} is used to store these audio files.
+ * object and played on a {@link controller.util.TrackPlayer}. A {@link ConcurrentHashMap} is used to store these audio 
+ * files, so that they can be added by loader threads while the UI reads them. Each audio file may also have 
+ * {@link TrackInfo} metadata associated with it, and tags that are kept in a {@link TagIndex}. Every audio file is 
+ * also kept in a {@link SearchIndex} for filtering by name.
  * 
+ * <p>Identifiers are the paths of the audio files relative to the library's directory, using <code>/</code> as the 
+ * separator, so that files with the same name in different folders don't replace each other. Audio files loaded from 
+ * a resource pack have an identifier but no file.
+ *
  * @author Adam
  */
 public class AudioFileList {
+	private Set<String> identifiers;
 	private Map<String, File> audioFiles;
+	private Map<String, TrackInfo> trackInfos;
+	private TagIndex tagIndex;
+	private SearchIndex searchIndex;
 	
 	/**
 	 * Creates a new <code>AudioFileList</code> object.
 	 */
 	public AudioFileList() {
-		audioFiles = new HashMap<String, File>();
+		identifiers = ConcurrentHashMap.newKeySet();
+		audioFiles = new ConcurrentHashMap<String, File>();
+		trackInfos = new ConcurrentHashMap<String, TrackInfo>();
+		tagIndex = new TagIndex();
+		searchIndex = new SearchIndex();
 	}
 	
 	/**
-	 * Adds an audio file with a given identifier to a map of audio files.
+	 * Adds an audio file with a given identifier to a map of audio files, along with its metadata.
 	 * @param identifier the name referring to this particular audio file.
 	 * @param audioFile the file to store in the map.
+	 * @param trackInfo the metadata of the audio file.
 	 */
-	public void addAudioFile(String identifier, File audioFile) {
+	public void addAudioFile(String identifier, File audioFile, TrackInfo trackInfo) {
+		addAudioFile(identifier, audioFile, trackInfo, Collections.<String>emptySet());
+	}
+	
+	/**
+	 * Adds an audio file with a given identifier to a map of audio files, along with its metadata and tags.
+	 * @param identifier the name referring to this particular audio file.
+	 * @param audioFile the file to store in the map.
+	 * @param trackInfo the metadata of the audio file.
+	 * @param tags the tags of the audio file, such as the folders it is in.
+	 */
+	public void addAudioFile(String identifier, File audioFile, TrackInfo trackInfo, Collection<String> tags) {
 		audioFiles.put(identifier, audioFile);
+		addAudioFile(identifier, trackInfo, tags);
+	}
+	
+	/**
+	 * Adds an audio file that isn't stored as a file of its own, such as one in a resource pack, along with its 
+	 * metadata and tags.
+	 * @param identifier the name referring to this particular audio file.
+	 * @param trackInfo the metadata of the audio file.
+	 * @param tags the tags of the audio file, such as the folders it is in.
+	 */
+	public void addAudioFile(String identifier, TrackInfo trackInfo, Collection<String> tags) {
+		tagIndex.put(identifier, tags);
+		searchIndex.put(identifier, tags);
+		trackInfos.put(identifier, trackInfo);
+		identifiers.add(identifier);
+	}
+	
+	/**
+	 * Removes an audio file, along with its metadata and tags, from the map of audio files.
+	 * @param identifier the name referring to the audio file (i.e., the key).
+	 */
+	public void removeAudioFile(String identifier) {
+		identifiers.remove(identifier);
+		audioFiles.remove(identifier);
+		trackInfos.remove(identifier);
+		tagIndex.remove(identifier);
+		searchIndex.remove(identifier);
+	}
+	
+	/**
+	 * Determines whether an audio file with the given identifier exists.
+	 * @param identifier the name referring to the audio file (i.e., the key).
+	 * @return true if the audio file exists, false otherwise.
+	 */
+	public boolean containsAudioFile(String identifier) {
+		return identifiers.contains(identifier);
 	}
 	
 	/**
 	 * Receives an audio file based on the name given to it.
 	 * @param identifier the name referring to the audio file (i.e., the key).
-	 * @return the file with the associated identifier, or null if it does not exist.
+	 * @return the file with the associated identifier, or null if it does not exist or isn't stored as a file of its 
+	 * own.
 	 */
 	public File getAudioFile(String identifier) {
 		return audioFiles.get(identifier);
 	}
 	
+	/**
+	 * Receives the metadata of an audio file based on the name given to it.
+	 * @param identifier the name referring to the audio file (i.e., the key).
+	 * @return the metadata of the audio file, or null if it does not exist or was added without any.
+	 */
+	public TrackInfo getTrackInfo(String identifier) {
+		return trackInfos.get(identifier);
+	}
+	
 	/**
 	 * Returns a collection of each audio file's identifier.
 	 * @return a set representing the keys of all of the audio files.
 	 */
 	public Set<String> getAllAudioFileIdentifiers() {
-		return audioFiles.keySet();
+		return identifiers;
+	}
+	
+	/**
+	 * Returns the index of every audio file's tags, which answers queries such as <code>"rain AND indoor"</code>.
+	 * @return the <code>TagIndex</code> of this list.
+	 */
+	public TagIndex getTagIndex() {
+		return tagIndex;
+	}
+	
+	/**
+	 * Returns the index used to find audio files by the start of the words in their names and tags.
+	 * @return the <code>SearchIndex</code> of this list.
+	 */
+	public SearchIndex getSearchIndex() {
+		return searchIndex;
 	}
 }
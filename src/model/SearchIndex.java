@@ -0,0 +1,568 @@
+package model;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a prefix index over audio file identifiers (and their tags), used to filter the library as the user types. 
+ * Identifiers and tags are broken into lower case words, and every distinct word is kept in one sorted array along with 
+ * the ordinals of the audio files it came from. All words starting with a given prefix then sit next to each other in 
+ * the array, so a search is a binary search followed by a walk over only the matching words.
+ * 
+ * <p>Searches work on an immutable, sorted snapshot of the index, so their results stay valid even if the index 
+ * changes afterwards. Audio files are numbered in the order they are shown in (see {@link #ORDER}), so a 
+ * {@link Result} iterates in that order and can hand out its matches by position, without building a list of them. 
+ * Prefixes of one or two letters that start many words, which are the slowest to search for, have their matches 
+ * worked out in advance when a snapshot is sorted. A query that only adds to the last one, as typing does, narrows the 
+ * last result down by the words that changed instead of searching the whole snapshot again.
+ * 
+ * <p>A search never sorts the index itself. After audio files have been added or removed, it goes on using the last 
+ * snapshot and has a new one sorted on a background thread, then the update listener is told so that the search can be 
+ * run again. Sorting starts {@link #REBUILD_DELAY_MILLIS} milliseconds later, so that it doesn't compete for the CPU 
+ * with the keystroke that asked for it, and while audio files keep being added, such as while a large library loads, 
+ * snapshots are sorted at most that often. {@link #prepare()} sorts a new snapshot right away on the calling thread.
+ * 
+ * @author Adam
+ */
+public class SearchIndex {
+	/**
+	 * Represents an immutable, sorted copy of the index.
+	 * 
+	 * @author Adam
+	 */
+	private static class Snapshot {
+		private long generation;
+		private String[] words;
+		private int[][] wordOrdinals;
+		private String[] identifiers;
+		private String[][] identifierWords;
+		private int averageWords;
+		private Map<String, Integer> ordinals;
+		private Map<String, BitSet> prefixMatches;
+	}
+	
+	/**
+	 * The order audio files are numbered in, which is also the order search results iterate in: alphabetical, ignoring 
+	 * case unless two identifiers only differ by case.
+	 */
+	public static final Comparator<String> ORDER = 
+			String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.<String>naturalOrder());
+	
+	/**
+	 * How long to wait before sorting the index in the background, both after a search found it had changed and after 
+	 * it changed again while it was being sorted.
+	 */
+	public static final long REBUILD_DELAY_MILLIS = 200;
+	
+	/**
+	 * How long the prefixes whose matches are worked out in advance can be.
+	 */
+	private static final int PRECOMPUTED_PREFIX_LENGTH = 2;
+	
+	/**
+	 * How many postings can be walked in the time it takes to look at one word of an audio file, which means following 
+	 * a few references to memory that is scattered around the heap rather than reading an array in order.
+	 */
+	private static final int WORD_CHECK_COST = 32;
+	
+	private static ScheduledThreadPoolExecutor rebuilder;
+	
+	private Map<String, String[]> wordsByIdentifier;
+	private volatile Snapshot snapshot;
+	private volatile boolean stale;
+	private boolean rebuilding;
+	private long generation;
+	private volatile Runnable updateListener;
+	private volatile Result lastSearch;
+	
+	/**
+	 * Creates a new, empty <code>SearchIndex</code>.
+	 */
+	public SearchIndex() {
+		wordsByIdentifier = new HashMap<String, String[]>();
+		snapshot = build(0, new HashMap<String, String[]>());
+		getRebuilder();
+	}
+	
+	/**
+	 * Sets what to tell whenever a new snapshot has been sorted, such as to run the current search again. The listener 
+	 * is invoked on the thread that sorted the snapshot.
+	 * @param updateListener the listener, or <code>null</code> for none.
+	 */
+	public void setUpdateListener(Runnable updateListener) {
+		this.updateListener = updateListener;
+	}
+	
+	/**
+	 * Adds an audio file to the index, replacing it if it was already indexed.
+	 * @param identifier the identifier of the audio file.
+	 * @param tags the tags of the audio file, which can be searched for as well.
+	 */
+	public synchronized void put(String identifier, Collection<String> tags) {
+		Set<String> words = new LinkedHashSet<String>();
+		Collections.addAll(words, split(identifier));
+		for (String tag : tags)
+			Collections.addAll(words, split(tag));
+		words.remove("");
+		wordsByIdentifier.put(identifier, words.toArray(new String[words.size()]));
+		stale = true;
+	}
+	
+	/**
+	 * Removes an audio file from the index.
+	 * @param identifier the identifier of the audio file.
+	 */
+	public synchronized void remove(String identifier) {
+		if (wordsByIdentifier.remove(identifier) != null)
+			stale = true;
+	}
+	
+	/**
+	 * Finds the audio files matching what the user typed. Every word of the query has to be the start of a word in the 
+	 * audio file's identifier or tags, so <code>"ra win"</code> matches "rain against a window.wav". Audio files added 
+	 * since the last snapshot was sorted are only found once a new one has been sorted.
+	 * @param query the text to search for.
+	 * @return the matching audio files. A blank query matches every audio file.
+	 */
+	public Result search(String query) {
+		Snapshot snapshot = getSnapshot();
+		List<String> prefixes = new ArrayList<String>();
+		for (String prefix : split(query)) {
+			if (!prefix.isEmpty())
+				prefixes.add(prefix);
+		}
+		
+		// Typing mostly adds to the last query, in which case only the words that changed have to be looked up again.
+		Result last = lastSearch;
+		BitSet matches;
+		List<String> changed;
+		if (last != null && last.snapshot == snapshot && isNarrowing(last.prefixes, prefixes)) {
+			matches = (BitSet)last.matches.clone();
+			changed = new ArrayList<String>();
+			for (int i = 0; i < prefixes.size(); i++) {
+				if (i >= last.prefixes.size() || !prefixes.get(i).equals(last.prefixes.get(i)))
+					changed.add(prefixes.get(i));
+			}
+		} else {
+			matches = new BitSet(snapshot.identifiers.length);
+			matches.set(0, snapshot.identifiers.length);
+			changed = prefixes;
+		}
+		for (String prefix : changed)
+			narrow(snapshot, matches, prefix);
+		Result result = new Result(snapshot, matches, prefixes);
+		lastSearch = result;
+		return result;
+	}
+	
+	/**
+	 * Selects audio files by identifier, such as the results of a tag query, in the same form as the results of a 
+	 * search. Identifiers that aren't in the last snapshot are left out.
+	 * @param identifiers the identifiers of the audio files, in any order.
+	 * @return the audio files that are indexed.
+	 */
+	public Result select(Collection<String> identifiers) {
+		Snapshot snapshot = getSnapshot();
+		BitSet matches = new BitSet(snapshot.identifiers.length);
+		for (String identifier : identifiers) {
+			Integer ordinal = snapshot.ordinals.get(identifier);
+			if (ordinal != null)
+				matches.set(ordinal);
+		}
+		return new Result(snapshot, matches, null);
+	}
+	
+	/**
+	 * Sorts a new snapshot right away if the index has changed. Meant to be invoked from a background thread after a 
+	 * batch of audio files has been added or removed.
+	 */
+	public void prepare() {
+		rebuild();
+	}
+	
+	/**
+	 * Returns the last snapshot of the index. If the index has changed since, a new snapshot is sorted in the 
+	 * background a little later.
+	 * @return the last <code>Snapshot</code>.
+	 */
+	private Snapshot getSnapshot() {
+		if (stale) {
+			synchronized (this) {
+				if (stale && !rebuilding) {
+					rebuilding = true;
+					getRebuilder().schedule(() -> rebuildInBackground(), REBUILD_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+				}
+			}
+		}
+		return snapshot;
+	}
+	
+	/**
+	 * Sorts a new snapshot on the background thread, and sorts another one a little later if the index has changed 
+	 * again in the meantime.
+	 */
+	private void rebuildInBackground() {
+		rebuild();
+		synchronized (this) {
+			if (stale)
+				getRebuilder().schedule(() -> rebuildInBackground(), REBUILD_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+			else
+				rebuilding = false;
+		}
+	}
+	
+	/**
+	 * Returns the thread that sorts snapshots in the background, starting it the first time. It is started as soon as 
+	 * an index is created rather than when it is first needed, since starting a thread can take milliseconds that a 
+	 * keystroke shouldn't have to wait for.
+	 * @return the executor of the background thread.
+	 */
+	private static synchronized ScheduledExecutorService getRebuilder() {
+		if (rebuilder == null) {
+			rebuilder = new ScheduledThreadPoolExecutor(1, runnable -> {
+				Thread thread = new Thread(runnable, "search index");
+				thread.setDaemon(true);
+				return thread;
+			});
+			rebuilder.prestartAllCoreThreads();
+		}
+		return rebuilder;
+	}
+	
+	/**
+	 * Sorts a new snapshot if the index has changed, publishes it unless a newer one has been published meanwhile, and 
+	 * tells the update listener. Only copying the index holds the lock; sorting it doesn't.
+	 */
+	private void rebuild() {
+		Map<String, String[]> words;
+		long copyGeneration;
+		synchronized (this) {
+			if (!stale)
+				return;
+			stale = false;
+			words = new HashMap<String, String[]>(wordsByIdentifier);
+			copyGeneration = ++generation;
+		}
+		
+		Snapshot sorted = build(copyGeneration, words);
+		synchronized (this) {
+			if (sorted.generation < snapshot.generation)
+				return;
+			snapshot = sorted;
+		}
+		Runnable listener = updateListener;
+		if (listener != null)
+			listener.run();
+	}
+	
+	/**
+	 * Sorts a snapshot of the index.
+	 * @param generation how many copies of the index had been taken when this one was.
+	 * @param wordsByIdentifier the words of each audio file, copied from the index.
+	 * @return the new <code>Snapshot</code>.
+	 */
+	private static Snapshot build(long generation, Map<String, String[]> wordsByIdentifier) {
+		String[] identifiers = wordsByIdentifier.keySet().toArray(new String[wordsByIdentifier.size()]);
+		Arrays.sort(identifiers, ORDER);
+		String[][] identifierWords = new String[identifiers.length][];
+		Map<String, Integer> ordinals = new HashMap<String, Integer>();
+		Map<String, int[]> postings = new HashMap<String, int[]>();
+		long wordCount = 0;
+		for (int ordinal = 0; ordinal < identifiers.length; ordinal++) {
+			ordinals.put(identifiers[ordinal], ordinal);
+			identifierWords[ordinal] = wordsByIdentifier.get(identifiers[ordinal]);
+			wordCount += identifierWords[ordinal].length;
+			for (String word : identifierWords[ordinal]) {
+				// The first element of each posting is the amount of ordinals in use.
+				int[] posting = postings.get(word);
+				if (posting == null)
+					posting = new int[] {0, 0, 0, 0};
+				else if (posting[0] + 1 == posting.length)
+					posting = Arrays.copyOf(posting, posting.length * 2);
+				posting[++posting[0]] = ordinal;
+				postings.put(word, posting);
+			}
+		}
+		
+		Snapshot sorted = new Snapshot();
+		sorted.generation = generation;
+		sorted.words = postings.keySet().toArray(new String[postings.size()]);
+		Arrays.sort(sorted.words);
+		sorted.wordOrdinals = new int[sorted.words.length][];
+		for (int i = 0; i < sorted.words.length; i++) {
+			int[] posting = postings.get(sorted.words[i]);
+			sorted.wordOrdinals[i] = Arrays.copyOfRange(posting, 1, posting[0] + 1);
+		}
+		sorted.identifiers = identifiers;
+		sorted.identifierWords = identifierWords;
+		sorted.averageWords = (int)(wordCount / Math.max(1, identifiers.length)) + 1;
+		sorted.ordinals = ordinals;
+		sorted.prefixMatches = new HashMap<String, BitSet>();
+		for (int length = 1; length <= PRECOMPUTED_PREFIX_LENGTH; length++)
+			precomputePrefixes(sorted, length);
+		return sorted;
+	}
+	
+	/**
+	 * Works out the matches of the prefixes of some length that start enough words to be slow to search for, that is, 
+	 * whose words have more postings than a bit set of every audio file has 64-bit words. This also keeps the bit sets 
+	 * from taking up more memory than the postings they were made from.
+	 * @param snapshot the snapshot to work them out for.
+	 * @param length the length of the prefixes.
+	 */
+	private static void precomputePrefixes(Snapshot snapshot, int length) {
+		int threshold = snapshot.identifiers.length / Long.SIZE;
+		int start = 0;
+		while (start < snapshot.words.length) {
+			if (snapshot.words[start].length() < length) {
+				start++;
+				continue;
+			}
+			
+			// Words with the same prefix sit next to each other in the sorted array.
+			String prefix = snapshot.words[start].substring(0, length);
+			int end = start;
+			long postings = 0;
+			for (; end < snapshot.words.length && snapshot.words[end].startsWith(prefix); end++)
+				postings += snapshot.wordOrdinals[end].length;
+			if (postings > threshold) {
+				BitSet matches = new BitSet(snapshot.identifiers.length);
+				for (int index = start; index < end; index++) {
+					for (int ordinal : snapshot.wordOrdinals[index])
+						matches.set(ordinal);
+				}
+				snapshot.prefixMatches.put(prefix, matches);
+			}
+			start = end;
+		}
+	}
+	
+	/**
+	 * Determines whether a query only adds to another one, so that everything it matches was also matched by the other 
+	 * one: every word of the other query has to be the start of the word in the same place in this one.
+	 * @param lastPrefixes the words of the other query, or <code>null</code> if it wasn't a search.
+	 * @param prefixes the words of the query.
+	 * @return true if the query only adds to the other one, false otherwise.
+	 */
+	private static boolean isNarrowing(List<String> lastPrefixes, List<String> prefixes) {
+		if (lastPrefixes == null || lastPrefixes.size() > prefixes.size())
+			return false;
+		for (int i = 0; i < lastPrefixes.size(); i++) {
+			if (!prefixes.get(i).startsWith(lastPrefixes.get(i)))
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Narrows matches down to the audio files with a word starting with a prefix, in whichever way visits the fewest 
+	 * audio files: with the matches of the prefix worked out in advance, by walking the postings of every word that 
+	 * starts with the prefix, or by looking at the words of each match.
+	 * @param snapshot the snapshot the matches come from.
+	 * @param matches the ordinals of the matching audio files, which are narrowed down.
+	 * @param prefix the prefix.
+	 */
+	private static void narrow(Snapshot snapshot, BitSet matches, String prefix) {
+		BitSet precomputed = snapshot.prefixMatches.get(prefix);
+		if (precomputed != null) {
+			matches.and(precomputed);
+			return;
+		}
+		
+		int first = getFirstWord(snapshot, prefix);
+		int end = first;
+		long postings = 0;
+		for (; end < snapshot.words.length && snapshot.words[end].startsWith(prefix); end++)
+			postings += snapshot.wordOrdinals[end].length;
+		
+		if ((long)matches.cardinality() * snapshot.averageWords * WORD_CHECK_COST < postings) {
+			for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+				if (!hasWordStartingWith(snapshot.identifierWords[ordinal], prefix))
+					matches.clear(ordinal);
+			}
+		} else {
+			BitSet prefixMatches = new BitSet(snapshot.identifiers.length);
+			for (int index = first; index < end; index++) {
+				for (int ordinal : snapshot.wordOrdinals[index])
+					prefixMatches.set(ordinal);
+			}
+			matches.and(prefixMatches);
+		}
+	}
+	
+	/**
+	 * Determines whether any of an audio file's words starts with a prefix.
+	 * @param words the words of the audio file.
+	 * @param prefix the prefix to look for.
+	 * @return true if a word starts with the prefix, false otherwise.
+	 */
+	private static boolean hasWordStartingWith(String[] words, String prefix) {
+		for (String word : words) {
+			if (word.startsWith(prefix))
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Finds the first word of a snapshot that starts with a prefix, with a binary search.
+	 * @param snapshot the snapshot to look in.
+	 * @param prefix the prefix to look for.
+	 * @return the index of the word, or the index of the first word after the prefix if no word starts with it.
+	 */
+	private static int getFirstWord(Snapshot snapshot, String prefix) {
+		int index = Arrays.binarySearch(snapshot.words, prefix);
+		return (index < 0) ? -index - 1 : index;
+	}
+	
+	/**
+	 * Breaks text into the lower case words that are indexed. Anything that isn't a letter or a digit separates words.
+	 * @param text the text to break up.
+	 * @return the words, which may include empty strings.
+	 */
+	private static String[] split(String text) {
+		return text.toLowerCase().split("[^\\p{L}\\p{N}]+");
+	}
+	
+	/**
+	 * Represents the result of a search as a read only set backed by a bit set of ordinals, so that building the result 
+	 * never has to copy the matching identifiers. It iterates in {@link SearchIndex#ORDER}, its <code>contains</code> 
+	 * method takes constant time, and {@link #get(int)} finds a match by its position without walking the ones before 
+	 * it.
+	 * 
+	 * <p>The ordinal of an audio file is its position in the snapshot the result was taken from, so ordinals can only 
+	 * be compared between results that {@link #hasSameSnapshot(Result) share a snapshot}.
+	 * 
+	 * @author Adam
+	 */
+	public static class Result extends AbstractSet<String> {
+		private Snapshot snapshot;
+		private BitSet matches;
+		private List<String> prefixes;
+		private int size;
+		private long[] bits;
+		private int[] ranks;
+		
+		/**
+		 * Creates a new <code>Result</code>.
+		 * @param snapshot the snapshot that was searched.
+		 * @param matches the ordinals of the matching audio files.
+		 * @param prefixes the words of the query, or <code>null</code> if the result didn't come from a search.
+		 */
+		private Result(Snapshot snapshot, BitSet matches, List<String> prefixes) {
+			this.snapshot = snapshot;
+			this.matches = matches;
+			this.prefixes = prefixes;
+			size = matches.cardinality();
+		}
+		
+		/**
+		 * Returns a match by its position.
+		 * @param index the position of the match, in {@link SearchIndex#ORDER}.
+		 * @return the identifier of the audio file.
+		 * @throws IndexOutOfBoundsException thrown if there is no match at that position.
+		 */
+		public String get(int index) {
+			if (index < 0 || index >= size)
+				throw new IndexOutOfBoundsException("Match " + index + " of " + size);
+			
+			if (ranks == null) {
+				// Counting the matches before each 64-bit word lets a binary search find the word a match is in.
+				bits = matches.toLongArray();
+				ranks = new int[bits.length];
+				for (int i = 1; i < bits.length; i++)
+					ranks[i] = ranks[i - 1] + Long.bitCount(bits[i - 1]);
+			}
+			
+			int word = Arrays.binarySearch(ranks, index);
+			if (word < 0)
+				word = -word - 2;
+			else {
+				// Words without any matches share their rank with the next word.
+				while (bits[word] == 0)
+					word++;
+			}
+			long remaining = bits[word];
+			for (int skipped = ranks[word]; skipped < index; skipped++)
+				remaining &= remaining - 1;
+			return snapshot.identifiers[word * Long.SIZE + Long.numberOfTrailingZeros(remaining)];
+		}
+		
+		/**
+		 * Returns the ordinal of an audio file in the snapshot this result was taken from, whether or not it matched.
+		 * @param identifier the identifier of the audio file.
+		 * @return the ordinal, or -1 if the audio file isn't in the snapshot.
+		 */
+		public int getOrdinal(String identifier) {
+			Integer ordinal = snapshot.ordinals.get(identifier);
+			return (ordinal == null) ? -1 : ordinal;
+		}
+		
+		/**
+		 * Determines whether this result was taken from the same snapshot as another one, so that their ordinals agree.
+		 * @param other the other result.
+		 * @return true if both results share a snapshot, false otherwise.
+		 */
+		public boolean hasSameSnapshot(Result other) {
+			return other != null && other.snapshot == snapshot;
+		}
+		
+		/**
+		 * Narrows this result down to the audio files with some ordinals.
+		 * @param ordinals the ordinals of the audio files to keep, as returned by {@link #getOrdinal(String)}.
+		 * @return the matches with one of the ordinals.
+		 */
+		public Result retain(BitSet ordinals) {
+			BitSet retained = (BitSet)matches.clone();
+			retained.and(ordinals);
+			return new Result(snapshot, retained, null);
+		}
+		
+		@Override
+		public boolean contains(Object identifier) {
+			Integer ordinal = snapshot.ordinals.get(identifier);
+			return ordinal != null && matches.get(ordinal);
+		}
+		
+		@Override
+		public int size() {
+			return size;
+		}
+		
+		@Override
+		public Iterator<String> iterator() {
+			return new Iterator<String>() {
+				private int next = matches.nextSetBit(0);
+				
+				@Override
+				public boolean hasNext() {
+					return next >= 0;
+				}
+				
+				@Override
+				public String next() {
+					if (next < 0)
+						throw new NoSuchElementException();
+					String identifier = snapshot.identifiers[next];
+					next = matches.nextSetBit(next + 1);
+					return identifier;
+				}
+			};
+		}
+	}
+}
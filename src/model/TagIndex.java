@@ -0,0 +1,225 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Represents an inverted index from tags to the audio files that carry them. Each audio file is given a small ordinal, 
+ * and each tag maps to a {@link BitSet} of ordinals, so that a query such as <code>"rain AND indoor"</code> is answered 
+ * by intersecting a couple of bit sets rather than scanning every audio file.
+ * 
+ * <p>Tags are case insensitive. Ordinals of removed audio files are reused by the next ones added, which keeps the bit 
+ * sets dense as the library changes.
+ * 
+ * @author Adam
+ */
+public class TagIndex {
+	private static final String AND = "AND";
+	private static final String OR = "OR";
+	
+	private List<String> identifiers;
+	private List<Set<String>> tagsByOrdinal;
+	private Map<String, Integer> ordinals;
+	private Map<String, BitSet> postings;
+	private BitSet freeOrdinals;
+	
+	/**
+	 * Creates a new, empty <code>TagIndex</code>.
+	 */
+	public TagIndex() {
+		identifiers = new ArrayList<String>();
+		tagsByOrdinal = new ArrayList<Set<String>>();
+		ordinals = new HashMap<String, Integer>();
+		postings = new HashMap<String, BitSet>();
+		freeOrdinals = new BitSet();
+	}
+	
+	/**
+	 * Sets the tags of an audio file, replacing any tags it had before.
+	 * @param identifier the identifier of the audio file.
+	 * @param tags the tags of the audio file.
+	 */
+	public synchronized void put(String identifier, Collection<String> tags) {
+		remove(identifier);
+		
+		int ordinal = freeOrdinals.nextSetBit(0);
+		Set<String> normalizedTags = new LinkedHashSet<String>();
+		for (String tag : tags)
+			normalizedTags.add(normalize(tag));
+		if (ordinal < 0) {
+			ordinal = identifiers.size();
+			identifiers.add(identifier);
+			tagsByOrdinal.add(normalizedTags);
+		} else {
+			freeOrdinals.clear(ordinal);
+			identifiers.set(ordinal, identifier);
+			tagsByOrdinal.set(ordinal, normalizedTags);
+		}
+		ordinals.put(identifier, ordinal);
+		
+		for (String tag : normalizedTags) {
+			BitSet posting = postings.get(tag);
+			if (posting == null) {
+				posting = new BitSet();
+				postings.put(tag, posting);
+			}
+			posting.set(ordinal);
+		}
+	}
+	
+	/**
+	 * Removes an audio file and all of its tags from the index.
+	 * @param identifier the identifier of the audio file.
+	 */
+	public synchronized void remove(String identifier) {
+		Integer ordinal = ordinals.remove(identifier);
+		if (ordinal == null)
+			return;
+		
+		for (String tag : tagsByOrdinal.get(ordinal)) {
+			BitSet posting = postings.get(tag);
+			posting.clear(ordinal);
+			if (posting.isEmpty())
+				postings.remove(tag);
+		}
+		identifiers.set(ordinal, null);
+		tagsByOrdinal.set(ordinal, null);
+		freeOrdinals.set(ordinal);
+	}
+	
+	/**
+	 * Returns the tags of an audio file.
+	 * @param identifier the identifier of the audio file.
+	 * @return the tags of the audio file, which is empty if the audio file isn't in the index.
+	 */
+	public synchronized Set<String> getTags(String identifier) {
+		Integer ordinal = ordinals.get(identifier);
+		if (ordinal == null)
+			return Collections.emptySet();
+		return Collections.unmodifiableSet(new LinkedHashSet<String>(tagsByOrdinal.get(ordinal)));
+	}
+	
+	/**
+	 * Returns every tag carried by at least one audio file.
+	 * @return the tags in the index.
+	 */
+	public synchronized Set<String> getAllTags() {
+		return Collections.unmodifiableSet(new LinkedHashSet<String>(postings.keySet()));
+	}
+	
+	/**
+	 * Finds the audio files that carry every one of the given tags.
+	 * @param tags the tags to look for.
+	 * @return the identifiers of the matching audio files, in no particular order.
+	 */
+	public synchronized List<String> findAll(String... tags) {
+		return toIdentifiers(intersect(tags));
+	}
+	
+	/**
+	 * Finds the audio files that carry at least one of the given tags.
+	 * @param tags the tags to look for.
+	 * @return the identifiers of the matching audio files, in no particular order.
+	 */
+	public synchronized List<String> findAny(String... tags) {
+		BitSet matches = new BitSet();
+		for (String tag : tags) {
+			BitSet posting = postings.get(normalize(tag));
+			if (posting != null)
+				matches.or(posting);
+		}
+		return toIdentifiers(matches);
+	}
+	
+	/**
+	 * Determines whether some text is a query for {@link #query(String)} rather than plain words, meaning it contains 
+	 * an <code>AND</code> or <code>OR</code> operator. Operators have to be in upper case, so that ordinary words such 
+	 * as "or" are never taken for one.
+	 * @param text the text to check.
+	 * @return true if the text contains an operator, false otherwise.
+	 */
+	public static boolean isQuery(String text) {
+		for (String token : text.trim().split("\\s+")) {
+			if (token.equals(AND) || token.equals(OR))
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Finds the audio files matching a query made of tags joined by <code>AND</code> and <code>OR</code>, such as 
+	 * <code>"rain AND indoor OR fireplace"</code>. <code>AND</code> binds tighter than <code>OR</code>, and tags with no 
+	 * operator between them are joined by <code>AND</code>. Operators have to be in upper case.
+	 * @param query the query to evaluate.
+	 * @return the identifiers of the matching audio files, in no particular order.
+	 */
+	public synchronized List<String> query(String query) {
+		BitSet matches = new BitSet();
+		List<String> terms = new ArrayList<String>();
+		for (String token : query.trim().split("\\s+")) {
+			if (token.equals(OR)) {
+				matches.or(intersect(terms.toArray(new String[terms.size()])));
+				terms.clear();
+			} else if (!token.isEmpty() && !token.equals(AND))
+				terms.add(token);
+		}
+		matches.or(intersect(terms.toArray(new String[terms.size()])));
+		return toIdentifiers(matches);
+	}
+	
+	/**
+	 * Returns the ordinals of the audio files that carry every one of the given tags. The rarest tag is taken first so 
+	 * that the intersection shrinks as quickly as possible.
+	 * @param tags the tags to look for.
+	 * @return the matching ordinals, which is empty if no tags were given.
+	 */
+	private BitSet intersect(String[] tags) {
+		if (tags.length == 0)
+			return new BitSet();
+		
+		BitSet[] tagPostings = new BitSet[tags.length];
+		for (int i = 0; i < tags.length; i++) {
+			tagPostings[i] = postings.get(normalize(tags[i]));
+			if (tagPostings[i] == null)
+				return new BitSet();
+		}
+		
+		BitSet rarest = tagPostings[0];
+		for (BitSet posting : tagPostings) {
+			if (posting.cardinality() < rarest.cardinality())
+				rarest = posting;
+		}
+		BitSet matches = (BitSet)rarest.clone();
+		for (BitSet posting : tagPostings)
+			matches.and(posting);
+		return matches;
+	}
+	
+	/**
+	 * Converts a set of ordinals back into audio file identifiers.
+	 * @param ordinals the ordinals to convert.
+	 * @return the identifiers of the audio files.
+	 */
+	private List<String> toIdentifiers(BitSet ordinals) {
+		List<String> matches = new ArrayList<String>(ordinals.cardinality());
+		for (int ordinal = ordinals.nextSetBit(0); ordinal >= 0; ordinal = ordinals.nextSetBit(ordinal + 1))
+			matches.add(identifiers.get(ordinal));
+		return matches;
+	}
+	
+	/**
+	 * Puts a tag into the form it is stored in.
+	 * @param tag the tag as given.
+	 * @return the tag, trimmed and in lower case.
+	 */
+	private static String normalize(String tag) {
+		return tag.trim().toLowerCase();
+	}
+}
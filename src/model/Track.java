@@ -2,48 +2,261 @@ package model;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
 
+import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
-import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
+import model.util.ResourceProvider;
+
 /**
- * Converts an audio file into something that can be played by a <code>TrackPlayer</code>.
+ * Converts an audio file into something that can be played by a <code>TrackPlayer</code>. The audio file is decoded 
+ * up front into 16-bit signed PCM samples, interleaved by channel, at the file's own sample rate.
  * 
+ * <p>The samples are kept in a direct buffer outside the Java heap, so that long tracks don't count against the heap 
+ * or get copied around by the garbage collector. How much memory they take up altogether is kept in check by the 
+ * {@link model.util.TrackMemoryManager}.
+ *
  * @author Adam
  */
 public class Track {
-	private Clip clip;
-	private AudioInputStream audioInputStream;
+	private static final ShortBuffer NO_SAMPLES = ByteBuffer.allocateDirect(0).asShortBuffer();
+	
+	private ShortBuffer samples;
+	private int channels;
+	private float sampleRate;
+	private float sourceSampleRate;
+	private boolean decoded;
 	
 	/**
-	 * Creates a new <code>Track</code> instance and obtains an audio input stream for the provided audio file.
+	 * Creates a new <code>Track</code> instance and decodes the provided audio file into PCM samples. If the file 
+	 * cannot be decoded, the track is left empty (i.e., it has no frames).
 	 * @param audioFile the file that will be used to play audio from.
 	 */
 	public Track(File audioFile) {
-		try {
-			clip = AudioSystem.getClip();
-			audioInputStream = AudioSystem.getAudioInputStream(audioFile);
-		} catch (LineUnavailableException | UnsupportedAudioFileException | IOException e) {
+		samples = NO_SAMPLES;
+		channels = 1;
+		sampleRate = 1;
+		sourceSampleRate = 1;
+		try (AudioInputStream sourceStream = AudioSystem.getAudioInputStream(audioFile)) {
+			decode(sourceStream);
+		} catch (UnsupportedAudioFileException | IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Creates a new <code>Track</code> instance and decodes an audio resource into PCM samples. If the resource cannot 
+	 * be decoded, the track is left empty (i.e., it has no frames).
+	 * @param resources where to read the audio resource from.
+	 * @param path the path of the audio resource.
+	 */
+	public Track(ResourceProvider resources, String path) {
+		samples = NO_SAMPLES;
+		channels = 1;
+		sampleRate = 1;
+		sourceSampleRate = 1;
+		try (InputStream stream = resources.open(path);
+				AudioInputStream sourceStream = AudioSystem.getAudioInputStream(stream)) {
+			decode(sourceStream);
+		} catch (UnsupportedAudioFileException | IOException e) {
 			e.printStackTrace();
 		}
 	}
 	
 	/**
-	 * Returns the <code>Clip</code> associated with this object.
-	 * @return this <code>Track</code>'s <code>Clip</code>.
+	 * Creates a new <code>Track</code> instance from samples that have already been decoded.
+	 * @param samples the 16-bit PCM samples, interleaved by channel.
+	 * @param channels the amount of channels.
+	 * @param sampleRate the sample rate of the samples.
+	 * @param sourceSampleRate the sample rate of the audio file the samples were decoded from.
 	 */
-	public Clip getClip() {
-		return clip;
+	private Track(ShortBuffer samples, int channels, float sampleRate, float sourceSampleRate) {
+		this.samples = samples;
+		this.channels = channels;
+		this.sampleRate = sampleRate;
+		this.sourceSampleRate = sourceSampleRate;
+		decoded = true;
 	}
 	
 	/**
-	 * Returns the audio input stream of this <code>Track</code>'s audio file.
-	 * @return the audio input stream of this <code>Track</code>.
+	 * Returns a copy of this <code>Track</code> converted to another sample rate and amount of channels, such as for 
+	 * a lower quality that takes less memory and is cheaper to mix. When lowering the sample rate, each new sample is 
+	 * the average of the samples it spans, which filters out most of what the lower rate can't hold. When raising 
+	 * it, the samples are interpolated. Channels are averaged when mixing down to mono, and copied otherwise.
+	 * @param sampleRate the sample rate to convert to.
+	 * @param channels the amount of channels to convert to.
+	 * @return the converted <code>Track</code>, or this <code>Track</code> if it already has that format.
 	 */
-	public AudioInputStream getAudioInputStream() {
-		return audioInputStream;
+	public Track convert(float sampleRate, int channels) {
+		if (sampleRate == this.sampleRate && channels == this.channels)
+			return this;
+		
+		double step = this.sampleRate / sampleRate;
+		int frameCount = getFrameCount();
+		int frames = (int)(frameCount / step);
+		ShortBuffer converted = ByteBuffer.allocateDirect(frames * channels * 2).order(ByteOrder.LITTLE_ENDIAN) 
+				.asShortBuffer();
+		for (int frame = 0; frame < frames; frame++) {
+			double position = frame * step;
+			int start = (int)position;
+			int end = Math.min(frameCount, Math.max(start + 1, (int)(position + step)));
+			float fraction = (float)(position - start);
+			for (int channel = 0; channel < channels; channel++) {
+				float value;
+				if (step > 1) {
+					value = 0;
+					for (int sourceFrame = start; sourceFrame < end; sourceFrame++)
+						value += getSample(sourceFrame, channel, channels);
+					value /= end - start;
+				} else {
+					float next = getSample(Math.min(start + 1, frameCount - 1), channel, channels);
+					value = getSample(start, channel, channels);
+					value += (next - value) * fraction;
+				}
+				converted.put(frame * channels + channel, (short)Math.round(value));
+			}
+		}
+		return new Track(converted, channels, sampleRate, sourceSampleRate);
+	}
+	
+	/**
+	 * Returns the decoded samples of this <code>Track</code>, interleaved by channel. The samples are meant to be read 
+	 * with absolute gets, which leave the buffer as it is for every other reader.
+	 * @return the 16-bit PCM samples of this <code>Track</code>. This must not be modified.
+	 */
+	public ShortBuffer getSamples() {
+		return samples;
+	}
+	
+	/**
+	 * Returns the amount of channels of this <code>Track</code> (1 for mono, 2 for stereo).
+	 * @return the channel count.
+	 */
+	public int getChannels() {
+		return channels;
+	}
+	
+	/**
+	 * Returns the sample rate of this <code>Track</code>'s samples, which is the rate it was recorded at unless it has 
+	 * been converted.
+	 * @return the sample rate in Hz.
+	 */
+	public float getSampleRate() {
+		return sampleRate;
+	}
+	
+	/**
+	 * Returns the sample rate of the audio file this <code>Track</code> was decoded from, which differs from its own 
+	 * sample rate once it has been converted. Positions in the audio file, such as loop points, are in frames at this 
+	 * rate.
+	 * @return the sample rate in Hz.
+	 */
+	public float getSourceSampleRate() {
+		return sourceSampleRate;
+	}
+	
+	/**
+	 * Returns the amount of frames (i.e., samples per channel) in this <code>Track</code>.
+	 * @return the frame count.
+	 */
+	public int getFrameCount() {
+		return samples.capacity() / channels;
+	}
+	
+	/**
+	 * Returns whether or not this <code>Track</code> was decoded. A track whose audio file couldn't be decoded is left 
+	 * empty instead.
+	 * @return true if the track was decoded, false if decoding it failed.
+	 */
+	public boolean isDecoded() {
+		return decoded;
+	}
+	
+	/**
+	 * Returns how much memory the samples of this <code>Track</code> take up.
+	 * @return the size of the samples in bytes.
+	 */
+	public long getByteCount() {
+		return samples.capacity() * 2L;
+	}
+	
+	/**
+	 * Returns a sample of this <code>Track</code> as seen from a track with another amount of channels. Every channel 
+	 * is averaged for a mono track, and a mono track is seen the same on every channel.
+	 * @param frame the frame of the sample.
+	 * @param channel the channel of the sample, as seen from the other track.
+	 * @param outputChannels the amount of channels of the other track.
+	 * @return the sample.
+	 */
+	private float getSample(int frame, int channel, int outputChannels) {
+		int index = frame * channels;
+		if (outputChannels == 1 && channels > 1) {
+			float total = 0;
+			for (int sourceChannel = 0; sourceChannel < channels; sourceChannel++)
+				total += samples.get(index + sourceChannel);
+			return total / channels;
+		}
+		return samples.get(index + Math.min(channel, channels - 1));
+	}
+	
+	/**
+	 * Decodes an audio stream into 16-bit PCM samples at its own sample rate.
+	 * @param sourceStream the stream to decode.
+	 * @throws IOException thrown if the stream could not be read.
+	 */
+	private void decode(AudioInputStream sourceStream) throws IOException {
+		AudioFormat sourceFormat = sourceStream.getFormat();
+		AudioFormat pcmFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, sourceFormat.getSampleRate(), 16, 
+				sourceFormat.getChannels(), sourceFormat.getChannels() * 2, sourceFormat.getSampleRate(), false);
+		try (AudioInputStream pcmStream = AudioSystem.getAudioInputStream(pcmFormat, sourceStream)) {
+			samples = readSamples(pcmStream);
+			channels = pcmFormat.getChannels();
+			sampleRate = pcmFormat.getSampleRate();
+			sourceSampleRate = sampleRate;
+			decoded = true;
+		}
+	}
+	
+	/**
+	 * Reads an entire 16-bit little-endian PCM stream into a direct buffer of samples. The buffer is sized from the 
+	 * stream's length when it is known, and grows as needed otherwise.
+	 * @param pcmStream the stream to read from.
+	 * @return the samples contained in the stream.
+	 * @throws IOException thrown if the stream could not be read.
+	 */
+	private static ShortBuffer readSamples(AudioInputStream pcmStream) throws IOException {
+		long frameLength = pcmStream.getFrameLength();
+		long length = frameLength * pcmStream.getFormat().getFrameSize();
+		ByteBuffer bytes = ByteBuffer.allocateDirect((frameLength == AudioSystem.NOT_SPECIFIED || 
+				length > Integer.MAX_VALUE) ? 1 << 20 : (int)length);
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = pcmStream.read(buffer)) != -1) {
+			if (read > bytes.remaining()) {
+				ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(bytes.capacity() * 2, bytes.position() + read));
+				bytes.flip();
+				grown.put(bytes);
+				bytes = grown;
+			}
+			bytes.put(buffer, 0, read);
+		}
+		
+		// A buffer that grew is left a little larger than the samples, so they are copied to one that fits exactly.
+		bytes.flip();
+		int size = bytes.limit() & ~1;
+		if (size != bytes.capacity()) {
+			ByteBuffer exact = ByteBuffer.allocateDirect(size);
+			bytes.limit(size);
+			exact.put(bytes);
+			bytes = exact;
+		}
+		bytes.clear();
+		return bytes.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
 	}
 }
@@ -0,0 +1,119 @@
+package model;
+
+import java.nio.ShortBuffer;
+
+import model.util.LoopFinder;
+import model.util.LoudnessMeter;
+
+/**
+ * Represents everything learned about a track by decoding it once: its {@link Waveform}, its integrated loudness, its 
+ * peak and where it loops most seamlessly (see {@link LoopFinder}). These never change while the audio file doesn't, 
+ * so they are worked out in the background and cached.
+ * 
+ * <p>The loudness gives each track a normalization gain that brings it to {@link #TARGET_LOUDNESS}, so that tracks 
+ * recorded at very different levels sound about as loud as each other at the same volume. The gain never boosts a 
+ * track by more than {@link #MAXIMUM_BOOST} dB, nor so far that its peak would clip.
+ * 
+ * @author Adam
+ */
+public class TrackAnalysis {
+	/**
+	 * The loudness every track is normalized to, in LUFS. This is about as loud as the bundled tracks already are, so 
+	 * normalizing mostly evens them out rather than making everything louder.
+	 */
+	public static final float TARGET_LOUDNESS = -38.0f;
+	
+	/**
+	 * The most a track is boosted by to reach the target loudness, in dB.
+	 */
+	public static final float MAXIMUM_BOOST = 12.0f;
+	
+	private Waveform waveform;
+	private float loudness;
+	private float peak;
+	private int loopStart;
+	private int loopEnd;
+	
+	/**
+	 * Creates a new <code>TrackAnalysis</code> instance.
+	 * @param waveform the waveform of the track.
+	 * @param loudness the integrated loudness of the track in LUFS.
+	 * @param peak the highest absolute sample of the track, where 1 is full scale.
+	 * @param loopStart the first frame of the track's loop.
+	 * @param loopEnd the frame after the last frame of the track's loop.
+	 */
+	public TrackAnalysis(Waveform waveform, float loudness, float peak, int loopStart, int loopEnd) {
+		this.waveform = waveform;
+		this.loudness = loudness;
+		this.peak = peak;
+		this.loopStart = loopStart;
+		this.loopEnd = loopEnd;
+	}
+	
+	/**
+	 * Analyzes a track.
+	 * @param track the decoded track.
+	 * @return the <code>TrackAnalysis</code> of the track.
+	 */
+	public static TrackAnalysis analyze(Track track) {
+		ShortBuffer samples = track.getSamples();
+		int peak = 0;
+		for (int i = 0; i < samples.capacity(); i++)
+			peak = Math.max(peak, Math.abs(samples.get(i)));
+		int[] loop = LoopFinder.find(track);
+		return new TrackAnalysis(Waveform.compute(track), LoudnessMeter.measure(track), peak / 32768.0f, loop[0], 
+				loop[1]);
+	}
+	
+	/**
+	 * Returns the waveform of the track.
+	 * @return the <code>Waveform</code>.
+	 */
+	public Waveform getWaveform() {
+		return waveform;
+	}
+	
+	/**
+	 * Returns the integrated loudness of the track.
+	 * @return the loudness in LUFS, or {@link LoudnessMeter#SILENCE} if the track is silent.
+	 */
+	public float getLoudness() {
+		return loudness;
+	}
+	
+	/**
+	 * Returns the peak of the track.
+	 * @return the highest absolute sample, where 1 is full scale.
+	 */
+	public float getPeak() {
+		return peak;
+	}
+	
+	/**
+	 * Returns the first frame of the track's loop, which playback jumps back to after reaching the loop's end.
+	 * @return the frame index.
+	 */
+	public int getLoopStart() {
+		return loopStart;
+	}
+	
+	/**
+	 * Returns the frame after the last frame of the track's loop.
+	 * @return the frame index.
+	 */
+	public int getLoopEnd() {
+		return loopEnd;
+	}
+	
+	/**
+	 * Returns the gain that brings the track to the target loudness, limited so that it is never boosted by more than 
+	 * the maximum boost or past full scale.
+	 * @return the gain to multiply the track's samples by.
+	 */
+	public float getNormalizationGain() {
+		double gain = Math.pow(10, Math.min(MAXIMUM_BOOST, TARGET_LOUDNESS - loudness) / 20.0);
+		if (peak > 0)
+			gain = Math.min(gain, Math.max(1.0, 1.0 / peak));
+		return (float)gain;
+	}
+}
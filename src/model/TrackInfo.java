@@ -0,0 +1,50 @@
+package model;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Represents the metadata of an audio file, such as its format and length, as read from the file's header. This is 
+ * cheap to obtain compared to decoding the whole file into a {@link Track}.
+ * 
+ * @author Adam
+ */
+public class TrackInfo {
+	private AudioFormat format;
+	private long frameCount;
+	
+	/**
+	 * Creates a new <code>TrackInfo</code> object.
+	 * @param format the format of the audio file.
+	 * @param frameCount the amount of frames in the audio file, or <code>AudioSystem.NOT_SPECIFIED</code> if unknown.
+	 */
+	public TrackInfo(AudioFormat format, long frameCount) {
+		this.format = format;
+		this.frameCount = frameCount;
+	}
+	
+	/**
+	 * Returns the format of the audio file.
+	 * @return the <code>AudioFormat</code> of the audio file.
+	 */
+	public AudioFormat getFormat() {
+		return format;
+	}
+	
+	/**
+	 * Returns the amount of frames in the audio file.
+	 * @return the frame count, or <code>AudioSystem.NOT_SPECIFIED</code> if unknown.
+	 */
+	public long getFrameCount() {
+		return frameCount;
+	}
+	
+	/**
+	 * Returns how long the audio file takes to play once.
+	 * @return the duration in seconds, or 0 if unknown.
+	 */
+	public float getDurationSeconds() {
+		if (frameCount < 0 || format.getFrameRate() <= 0)
+			return 0;
+		return frameCount / format.getFrameRate();
+	}
+}
@@ -0,0 +1,151 @@
+package model;
+
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * Represents an overview of a track's waveform as a pyramid of peaks. Each level splits the track into columns and 
+ * holds the lowest and highest sample of each column, with every level having half as many columns as the one before. 
+ * Drawing the waveform at any width only takes the level with the closest number of columns, so the samples never 
+ * have to be read again.
+ * 
+ * <p>Peaks are kept as 8-bit values, which is plenty for a thumbnail, and every channel is folded into the same peaks. 
+ * Ambient tracks rarely come close to full scale, so the peaks are scaled to make most columns of each track reach 
+ * the top, which shows the track's shape rather than how loud it is. The few columns above {@link #PEAK_PERCENTILE} 
+ * are clipped, so that a handful of loud transients, such as the crackles of a fire, don't flatten everything else.
+ * 
+ * @author Adam
+ */
+public class Waveform {
+	/**
+	 * The number of columns of the finest level.
+	 */
+	public static final int FINEST_COLUMNS = 1024;
+	
+	/**
+	 * The number of columns of the coarsest level.
+	 */
+	public static final int COARSEST_COLUMNS = 32;
+	
+	/**
+	 * The percentage of columns whose peaks fit without being clipped.
+	 */
+	public static final int PEAK_PERCENTILE = 95;
+	
+	private byte[][] minimums;
+	private byte[][] maximums;
+	
+	/**
+	 * Creates a new <code>Waveform</code> from its levels, finest first.
+	 * @param minimums the lowest peak of each column, for each level.
+	 * @param maximums the highest peak of each column, for each level.
+	 */
+	public Waveform(byte[][] minimums, byte[][] maximums) {
+		this.minimums = minimums;
+		this.maximums = maximums;
+	}
+	
+	/**
+	 * Computes the waveform of a track.
+	 * @param track the decoded track.
+	 * @return the <code>Waveform</code> of the track.
+	 */
+	public static Waveform compute(Track track) {
+		return compute(track.getSamples(), track.getChannels());
+	}
+	
+	/**
+	 * Computes the waveform of some 16-bit samples, building the finest level from the samples and every coarser 
+	 * level from the level before it.
+	 * @param samples the samples, interleaved by channel.
+	 * @param channels the amount of channels.
+	 * @return the <code>Waveform</code> of the samples.
+	 */
+	public static Waveform compute(ShortBuffer samples, int channels) {
+		int levelCount = Integer.numberOfTrailingZeros(FINEST_COLUMNS / COARSEST_COLUMNS) + 1;
+		byte[][] minimums = new byte[levelCount][];
+		byte[][] maximums = new byte[levelCount][];
+		minimums[0] = new byte[FINEST_COLUMNS];
+		maximums[0] = new byte[FINEST_COLUMNS];
+		
+		int[] columnMinimums = new int[FINEST_COLUMNS];
+		int[] columnMaximums = new int[FINEST_COLUMNS];
+		int[] columnPeaks = new int[FINEST_COLUMNS];
+		long frames = samples.capacity() / channels;
+		for (int column = 0; column < FINEST_COLUMNS; column++) {
+			int start = (int)(column * frames / FINEST_COLUMNS) * channels;
+			int end = (int)((column + 1) * frames / FINEST_COLUMNS) * channels;
+			int minimum = 0;
+			int maximum = 0;
+			for (int i = start; i < end; i++) {
+				short sample = samples.get(i);
+				if (sample < minimum)
+					minimum = sample;
+				else if (sample > maximum)
+					maximum = sample;
+			}
+			columnMinimums[column] = minimum;
+			columnMaximums[column] = maximum;
+			columnPeaks[column] = Math.max(-minimum, maximum);
+		}
+		
+		Arrays.sort(columnPeaks);
+		int peak = Math.max(1, columnPeaks[FINEST_COLUMNS * PEAK_PERCENTILE / 100]);
+		for (int column = 0; column < FINEST_COLUMNS; column++) {
+			minimums[0][column] = (byte)Math.max(-127, columnMinimums[column] * 127 / peak);
+			maximums[0][column] = (byte)Math.min(127, columnMaximums[column] * 127 / peak);
+		}
+		
+		for (int level = 1; level < levelCount; level++) {
+			int columns = minimums[level - 1].length / 2;
+			minimums[level] = new byte[columns];
+			maximums[level] = new byte[columns];
+			for (int column = 0; column < columns; column++) {
+				minimums[level][column] = (byte)Math.min(minimums[level - 1][column * 2], 
+						minimums[level - 1][column * 2 + 1]);
+				maximums[level][column] = (byte)Math.max(maximums[level - 1][column * 2], 
+						maximums[level - 1][column * 2 + 1]);
+			}
+		}
+		return new Waveform(minimums, maximums);
+	}
+	
+	/**
+	 * Returns the amount of levels in the pyramid.
+	 * @return the level count.
+	 */
+	public int getLevelCount() {
+		return minimums.length;
+	}
+	
+	/**
+	 * Returns the level to draw the waveform from at a given width, which is the coarsest level with at least one 
+	 * column per pixel, or the finest level if none has that many.
+	 * @param width the width to draw the waveform at, in pixels.
+	 * @return the index of the level.
+	 */
+	public int getLevel(int width) {
+		int level = minimums.length - 1;
+		while (level > 0 && minimums[level].length < width)
+			level--;
+		return level;
+	}
+	
+	/**
+	 * Returns the lowest peak of each column of a level.
+	 * @param level the index of the level, where 0 is the finest.
+	 * @return the lowest peaks, from -128 to 0. This must not be modified.
+	 */
+	public byte[] getMinimums(int level) {
+		return minimums[level];
+	}
+	
+	/**
+	 * Returns the highest peak of each column of a level.
+	 * @param level the index of the level, where 0 is the finest.
+	 * @return the highest peaks, from 0 to 127. This must not be modified.
+	 */
+	public byte[] getMaximums(int level) {
+		return maximums[level];
+	}
+}
@@ -0,0 +1,195 @@
+package model.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import model.TrackAnalysis;
+import model.Waveform;
+
+/**
+ * Represents an on-disk cache of the {@link TrackAnalysis} of each audio file in a directory tree, so that a file only 
+ * has to be decoded and analyzed once. Like the {@link TrackCatalog}, each analysis is only trusted while the file's 
+ * size and last modified time still match.
+ * 
+ * <p>The cache is stored in a binary file in the user's cache directory, one per audio directory.
+ * 
+ * @author Adam
+ */
+public class AnalysisCache {
+	private static final int MAGIC = 0x5252414E; // "RRAN"
+	private static final int VERSION = 2;
+	
+	private File directory;
+	private File cacheFile;
+	private Map<String, Entry> entries;
+	private boolean dirty;
+	
+	/**
+	 * Creates a new, empty <code>AnalysisCache</code> for an audio directory. Nothing is read until {@link #load()} is 
+	 * invoked.
+	 * @param directory the audio directory the cache describes.
+	 */
+	public AnalysisCache(File directory) {
+		this.directory = directory.getAbsoluteFile();
+		cacheFile = new File(TrackCatalog.getCacheDirectory(), "analyses-" + 
+				Integer.toHexString(this.directory.getPath().hashCode()) + ".bin");
+		entries = new LinkedHashMap<String, Entry>();
+	}
+	
+	/**
+	 * Reads the cache from disk, replacing any analyses in memory. A missing, unreadable or corrupt cache simply leaves 
+	 * the cache empty.
+	 * @return true if the cache was read, false otherwise.
+	 */
+	public synchronized boolean load() {
+		entries.clear();
+		dirty = false;
+		if (!cacheFile.isFile())
+			return false;
+		
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION || !input.readUTF().equals(directory.getPath()))
+				return false;
+			
+			int count = input.readInt();
+			Map<String, Entry> loaded = new LinkedHashMap<String, Entry>();
+			for (int i = 0; i < count; i++) {
+				String name = input.readUTF();
+				long size = input.readLong();
+				long lastModified = input.readLong();
+				float loudness = input.readFloat();
+				float peak = input.readFloat();
+				int loopStart = input.readInt();
+				int loopEnd = input.readInt();
+				int levelCount = input.readInt();
+				byte[][] minimums = new byte[levelCount][];
+				byte[][] maximums = new byte[levelCount][];
+				for (int level = 0; level < levelCount; level++) {
+					minimums[level] = new byte[input.readInt()];
+					maximums[level] = new byte[minimums[level].length];
+					input.readFully(minimums[level]);
+					input.readFully(maximums[level]);
+				}
+				loaded.put(name, new Entry(size, lastModified, 
+						new TrackAnalysis(new Waveform(minimums, maximums), loudness, peak, loopStart, loopEnd)));
+			}
+			entries = loaded;
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		} catch (RuntimeException e) {
+			// Lengths that make no sense, such as a negative waveform length, mean the cache is corrupt.
+			e.printStackTrace();
+			dirty = true;
+			return false;
+		}
+	}
+	
+	/**
+	 * Writes the cache to disk if it has changed since it was loaded or last saved.
+	 */
+	public synchronized void save() {
+		if (!dirty)
+			return;
+		
+		File temporaryFile = new File(cacheFile.getPath() + ".tmp");
+		cacheFile.getParentFile().mkdirs();
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream( 
+				new FileOutputStream(temporaryFile)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeUTF(directory.getPath());
+			output.writeInt(entries.size());
+			for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+				Entry entry = mapEntry.getValue();
+				output.writeUTF(mapEntry.getKey());
+				output.writeLong(entry.size);
+				output.writeLong(entry.lastModified);
+				output.writeFloat(entry.analysis.getLoudness());
+				output.writeFloat(entry.analysis.getPeak());
+				output.writeInt(entry.analysis.getLoopStart());
+				output.writeInt(entry.analysis.getLoopEnd());
+				Waveform waveform = entry.analysis.getWaveform();
+				output.writeInt(waveform.getLevelCount());
+				for (int level = 0; level < waveform.getLevelCount(); level++) {
+					output.writeInt(waveform.getMinimums(level).length);
+					output.write(waveform.getMinimums(level));
+					output.write(waveform.getMaximums(level));
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		
+		// Replace the old cache in one step so that a crash never leaves a half-written cache behind.
+		cacheFile.delete();
+		if (temporaryFile.renameTo(cacheFile))
+			dirty = false;
+	}
+	
+	/**
+	 * Returns the cached analysis of a file, as long as the file hasn't changed since it was cached.
+	 * @param name the file path, relative to the audio directory.
+	 * @param file the file itself.
+	 * @return the analysis of the file, or <code>null</code> if it isn't cached or the file has changed.
+	 */
+	public synchronized TrackAnalysis get(String name, File file) {
+		Entry entry = entries.get(name);
+		if (entry == null || entry.size != file.length() || entry.lastModified != file.lastModified())
+			return null;
+		return entry.analysis;
+	}
+	
+	/**
+	 * Adds or replaces the cached analysis of a file.
+	 * @param name the file path, relative to the audio directory.
+	 * @param file the file itself, whose size and last modified time are recorded.
+	 * @param analysis the analysis of the file.
+	 */
+	public synchronized void put(String name, File file, TrackAnalysis analysis) {
+		entries.put(name, new Entry(file.length(), file.lastModified(), analysis));
+		dirty = true;
+	}
+	
+	/**
+	 * Removes the cached analysis of a file.
+	 * @param name the file path, relative to the audio directory.
+	 */
+	public synchronized void remove(String name) {
+		if (entries.remove(name) != null)
+			dirty = true;
+	}
+	
+	/**
+	 * Represents the cached analysis of a single audio file.
+	 * 
+	 * @author Adam
+	 */
+	private static class Entry {
+		private long size;
+		private long lastModified;
+		private TrackAnalysis analysis;
+		
+		/**
+		 * Creates a new cache <code>Entry</code>.
+		 * @param size the size of the audio file in bytes.
+		 * @param lastModified the last modified time of the audio file.
+		 * @param analysis the analysis of the audio file.
+		 */
+		public Entry(long size, long lastModified, TrackAnalysis analysis) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.analysis = analysis;
+		}
+	}
+}
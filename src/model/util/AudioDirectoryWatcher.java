@@ -0,0 +1,288 @@
+package model.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches an audio directory and all of its subdirectories for files being added, changed, or removed while the 
+ * program is running. Changes are debounced and reported in batches on the watcher's own thread, so that copying in a 
+ * large file or a whole folder of files results in a single notification once the directory has settled.
+ * 
+ * <p>Files are reported by their identifiers, as determined by {@link AudioFileLoader#getIdentifier(Path, Path)}. A 
+ * change to a sidecar tags file is reported as a change to its audio file, and removing a folder reports every audio 
+ * file that was in it as removed. If events were lost, the directory tree is walked again, and only the files that are 
+ * new or no longer match their {@link TrackCatalog} entry are reported as added.
+ * 
+ * @author Adam
+ */
+public class AudioDirectoryWatcher {
+	/**
+	 * Receives batches of changes from an <code>AudioDirectoryWatcher</code>. Both methods are invoked on the watcher's 
+	 * thread.
+	 * 
+	 * @author Adam
+	 */
+	public static interface Listener {
+		/**
+		 * Invoked when audio files have been added to the directory, or have changed.
+		 * @param identifiers the identifiers of the added or changed files.
+		 */
+		void onFilesAdded(List<String> identifiers);
+		
+		/**
+		 * Invoked when audio files have been removed from the directory.
+		 * @param identifiers the identifiers of the removed files.
+		 */
+		void onFilesRemoved(List<String> identifiers);
+	}
+	
+	private static final long DEBOUNCE_MILLIS = 500;
+	
+	private File directory;
+	private Path root;
+	private String[] supportedExtensions;
+	private Listener listener;
+	private TrackCatalog catalog;
+	private WatchService watchService;
+	private Map<WatchKey, Path> watchedDirectories;
+	private Thread thread;
+	
+	// Only touched by the watcher thread.
+	private TreeSet<String> knownIdentifiers;
+	private Set<String> addedIdentifiers;
+	private Set<String> removedIdentifiers;
+	private boolean overflowed;
+	
+	/**
+	 * Creates a new <code>AudioDirectoryWatcher</code>. Nothing is watched until {@link #start()} is invoked.
+	 * @param directory the directory to watch.
+	 * @param supportedExtensions a list of valid audio file extensions (ex: ".wav", ".mp3"). Other files are ignored.
+	 * @param catalog the catalog of the audio directory, which tells which files have changed after events were lost.
+	 * @param listener notified of each batch of changes.
+	 */
+	public AudioDirectoryWatcher(File directory, String[] supportedExtensions, TrackCatalog catalog, 
+			Listener listener) {
+		this.directory = directory;
+		this.supportedExtensions = supportedExtensions;
+		this.catalog = catalog;
+		this.listener = listener;
+		root = directory.toPath();
+		watchedDirectories = new ConcurrentHashMap<WatchKey, Path>();
+		knownIdentifiers = new TreeSet<String>();
+		addedIdentifiers = new LinkedHashSet<String>();
+		removedIdentifiers = new LinkedHashSet<String>();
+	}
+	
+	/**
+	 * Starts watching the directory on a background thread. The directory tree is walked on that thread as well, so 
+	 * this returns right away.
+	 */
+	public synchronized void start() {
+		if (thread != null)
+			return;
+		
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		thread = new Thread(() -> watchLoop(), "audio directory watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Stops watching the directory. Any changes that haven't been reported yet are dropped.
+	 */
+	public synchronized void stop() {
+		if (thread == null)
+			return;
+		
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		watchedDirectories.clear();
+		thread = null;
+	}
+	
+	/**
+	 * Registers the directory tree, then waits for changes, collects them until the directory has been quiet for a 
+	 * moment, and reports them.
+	 */
+	private void watchLoop() {
+		try {
+			knownIdentifiers.addAll(register(root));
+			while (true) {
+				collect(watchService.take());
+				WatchKey key;
+				while ((key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null)
+					collect(key);
+				report();
+			}
+		} catch (ClosedWatchServiceException | InterruptedException e) {
+			// Stopped.
+		}
+	}
+	
+	/**
+	 * Starts watching a directory and every directory inside it.
+	 * @param path the directory to register.
+	 * @return the identifiers of the audio files found in the registered directories.
+	 */
+	private List<String> register(Path path) {
+		List<String> identifiers = new ArrayList<String>();
+		List<String> directories = new ArrayList<String>();
+		AudioFileLoader.walk(path,  supportedExtensions, identifiers, directories);
+		for (String name : directories) {
+			Path subdirectory = path.resolve(name);
+			try {
+				watchedDirectories.put(subdirectory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, 
+						StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), subdirectory);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		
+		List<String> rootIdentifiers = new ArrayList<String>();
+		for (String identifier : identifiers)
+			rootIdentifiers.add(AudioFileLoader.getIdentifier(root, path.resolve(identifier)));
+		return rootIdentifiers;
+	}
+	
+	/**
+	 * Adds the events of a watch key to the pending changes. A file that is added and then removed (or vice versa) 
+	 * within the same batch only counts as its latest change.
+	 * @param key the signalled watch key.
+	 */
+	private void collect(WatchKey key) {
+		Path parent = watchedDirectories.get(key);
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW || parent == null) {
+				overflowed = true;
+				continue;
+			}
+			
+			Path path = parent.resolve((Path)event.context());
+			String name = path.getFileName().toString();
+			String identifier = AudioFileLoader.getIdentifier(root, path);
+			if (name.startsWith("."))
+				continue;
+			
+			if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+				if (AudioFileLoader.hasSupportedExtension(name, supportedExtensions))
+					markRemoved(identifier);
+				else if (name.endsWith(AudioFileLoader.TAGS_EXTENSION))
+					markTagsChanged(identifier);
+				else {
+					// Possibly a folder, in which case everything known to be inside it is gone.
+					for (String known : knownIdentifiers.subSet(identifier + "/", identifier + "/\uffff"))
+						markRemoved(known);
+				}
+			} else if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+				for (String added : register(path))
+					markAdded(added);
+			} else if (AudioFileLoader.hasSupportedExtension(name, supportedExtensions))
+				markAdded(identifier);
+			else if (name.endsWith(AudioFileLoader.TAGS_EXTENSION))
+				markTagsChanged(identifier);
+		}
+		if (!key.reset())
+			watchedDirectories.remove(key);
+	}
+	
+	/**
+	 * Marks an audio file as added or changed in the pending changes.
+	 * @param identifier the identifier of the audio file.
+	 */
+	private void markAdded(String identifier) {
+		removedIdentifiers.remove(identifier);
+		addedIdentifiers.add(identifier);
+	}
+	
+	/**
+	 * Marks an audio file as removed in the pending changes.
+	 * @param identifier the identifier of the audio file.
+	 */
+	private void markRemoved(String identifier) {
+		addedIdentifiers.remove(identifier);
+		removedIdentifiers.add(identifier);
+	}
+	
+	/**
+	 * Marks the audio files belonging to a sidecar tags file as changed, so that their tags are read again.
+	 * @param tagsIdentifier the identifier of the sidecar tags file.
+	 */
+	private void markTagsChanged(String tagsIdentifier) {
+		String base = tagsIdentifier.substring(0, tagsIdentifier.length() - AudioFileLoader.TAGS_EXTENSION.length());
+		for (String extension : supportedExtensions) {
+			if (knownIdentifiers.contains(base + extension) || addedIdentifiers.contains(base + extension))
+				markAdded(base + extension);
+		}
+	}
+	
+	/**
+	 * Reports the pending changes to the listener and clears them. If events were lost, the whole directory tree is 
+	 * walked again and compared against the known audio files and the catalog so that nothing is missed, while files 
+	 * that haven't changed aren't reported at all.
+	 */
+	private void report() {
+		if (overflowed) {
+			Set<String> current = new TreeSet<String>(register(root));
+			for (String known : knownIdentifiers) {
+				if (!current.contains(known))
+					markRemoved(known);
+			}
+			for (String identifier : current) {
+				if (!knownIdentifiers.contains(identifier) || !isCataloged(identifier))
+					markAdded(identifier);
+			}
+			overflowed = false;
+		}
+		
+		List<String> added = new ArrayList<String>();
+		for (String identifier : addedIdentifiers) {
+			if (new File(directory, identifier).isFile())
+				added.add(identifier);
+		}
+		List<String> removed = new ArrayList<String>(removedIdentifiers);
+		knownIdentifiers.removeAll(removed);
+		knownIdentifiers.addAll(added);
+		addedIdentifiers.clear();
+		removedIdentifiers.clear();
+		
+		if (!removed.isEmpty())
+			listener.onFilesRemoved(removed);
+		if (!added.isEmpty())
+			listener.onFilesAdded(added);
+	}
+	
+	/**
+	 * Determines whether an audio file and its sidecar tags file are unchanged since they were cataloged.
+	 * @param identifier the identifier of the audio file.
+	 * @return true if the catalog entry of the file still matches it, false if it has changed or isn't cataloged.
+	 */
+	private boolean isCataloged(String identifier) {
+		TrackCatalog.Entry entry = catalog.get(identifier);
+		File audioFile = new File(directory, identifier);
+		return entry != null && entry.matches(audioFile, AudioFileLoader.getTagsFile(audioFile));
+	}
+}
@@ -1,15 +1,43 @@
 package model.util;
 
 import java.io.File;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
 
 import model.AudioFileList;
+import model.TrackInfo;
 
 /**
- * Used to load all audio files from a directory and store them in an <code>AudioFileList</code>. 
+ * Used to load all audio files from a directory and its subdirectories and store them in an <code>AudioFileList</code>. 
+ * The folders an audio file is in become its categories, which are added to its tags.
  * 
+ * <p>Audio files can also be loaded from any {@link ResourceProvider}, such as a {@link ResourcePack}, in which case 
+ * there are no files to watch or catalog, so every header is read from the provider.
+ *
  * @author Adam
  */
 public class AudioFileLoader {
+	public static final String TAGS_EXTENSION = ".tags";
+	
 	private static AudioFileLoader instance;
 	
 	/**
@@ -21,7 +49,7 @@ public class AudioFileLoader {
 	 * Returns the Singleton instance of this class.
 	 * @return an <code>AudioFileLoader</code> instance.
 	 */
-	public static AudioFileLoader get() {
+	public static synchronized AudioFileLoader get() {
 		if (instance == null)
 			instance = new AudioFileLoader();
 		return instance;
@@ -29,25 +57,385 @@ public class AudioFileLoader {
 	
 	/**
 	 * Loads all files ending in a valid audio file extension and stores it in an <code>AudioFileList</code>.  
-	 * @param directory the directory containing the audio files.
+	 * @param directory the directory containing the audio files. Its subdirectories are searched too.
 	 * @param supportedExtensions a list of valid audio file extensions (ex: ".wav", ".mp3").
-	 * @param audioFileList where to store the audio files. The identifier given to the audio file is determined by the 
-	 * method {@link File#getName()}.
+	 * @param audioFileList where to store the audio files. The identifier given to the audio file is its path relative 
+	 * to the directory, as determined by {@link #getIdentifier(Path, Path)}.
 	 */
 	public void loadFromDirectory(String directory, String supportedExtensions[], AudioFileList audioFileList) {
-		File audioFilesDirectory = new File(directory);
-		File[] audioFiles = audioFilesDirectory.listFiles((File file, String name) -> {
-			boolean hasSupportedExtension = false;
-			for (String extension : supportedExtensions) {
-				if (name.endsWith(extension)) {
-					hasSupportedExtension = true;
-					break;
-				}
+		loadFromDirectory(directory, supportedExtensions, audioFileList, Runnable::run, identifier -> {}).join();
+	}
+	
+	/**
+	 * Loads all files ending in a valid audio file extension and stores them in an <code>AudioFileList</code>, reading 
+	 * each file's metadata in parallel.
+	 * @param directory the directory containing the audio files. Its subdirectories are searched too.
+	 * @param supportedExtensions a list of valid audio file extensions (ex: ".wav", ".mp3").
+	 * @param audioFileList where to store the audio files. The identifier given to the audio file is its path relative 
+	 * to the directory, as determined by {@link #getIdentifier(Path, Path)}.
+	 * @param executor runs the directory listing and the reading of each file's metadata.
+	 * @param onLoaded notified with the identifier of each audio file once it has been added to the list. This is 
+	 * invoked from whichever thread loaded the file. Files whose metadata can't be read are not added.
+	 * @return a future that completes once every audio file has been loaded.
+	 */
+	public CompletableFuture<Void> loadFromDirectory(String directory, String supportedExtensions[], 
+			AudioFileList audioFileList, Executor executor, Consumer<String> onLoaded) {
+		return loadFromDirectory(directory, supportedExtensions, audioFileList, null, executor, onLoaded);
+	}
+	
+	/**
+	 * Loads all files ending in a valid audio file extension and stores them in an <code>AudioFileList</code>, using a 
+	 * <code>TrackCatalog</code> to avoid listing the directories and reading headers where possible.
+	 * 
+	 * <p>The directories are only listed if files were added to or removed from any of them since the catalog was 
+	 * saved, and a file's header is only read if the file changed. The catalog is updated and saved once everything 
+	 * has loaded.
+	 * @param directory the directory containing the audio files. Its subdirectories are searched too.
+	 * @param supportedExtensions a list of valid audio file extensions (ex: ".wav", ".mp3").
+	 * @param audioFileList where to store the audio files. The identifier given to the audio file is its path relative 
+	 * to the directory, as determined by {@link #getIdentifier(Path, Path)}.
+	 * @param catalog the catalog of the directory, or <code>null</code> to always list the directories and read headers.
+	 * @param executor runs the directory listing and the reading of each file's metadata.
+	 * @param onLoaded notified with the identifier of each audio file once it has been added to the list. This is 
+	 * invoked from whichever thread loaded the file. Files whose metadata can't be read are not added.
+	 * @return a future that completes once every audio file has been loaded.
+	 */
+	public CompletableFuture<Void> loadFromDirectory(String directory, String supportedExtensions[], 
+			AudioFileList audioFileList, TrackCatalog catalog, Executor executor, Consumer<String> onLoaded) {
+		File root = new File(directory);
+		CompletableFuture<Void> loaded = CompletableFuture.supplyAsync(() -> {
+			if (catalog == null)
+				return listIdentifiers(root, supportedExtensions, null);
+			return listIdentifiers(root, supportedExtensions, catalog);
+		}, executor).thenCompose(identifiers -> {
+			CompletableFuture<?>[] loads = new CompletableFuture<?>[identifiers.size()];
+			for (int i = 0; i < loads.length; i++) {
+				String identifier = identifiers.get(i);
+				loads[i] = CompletableFuture.runAsync(() -> {
+					if (loadFile(root, identifier, audioFileList, catalog))
+						onLoaded.accept(identifier);
+				}, executor);
 			}
-			return hasSupportedExtension;
+			return CompletableFuture.allOf(loads);
 		});
 		
-		for (File audioFile : audioFiles)
-			audioFileList.addAudioFile(audioFile.getName(), audioFile);
+		if (catalog == null)
+			return loaded;
+		return loaded.thenRun(() -> catalog.save());
+	}
+	
+	/**
+	 * Loads all resources ending in a valid audio file extension from a <code>ResourceProvider</code> and stores them 
+	 * in an <code>AudioFileList</code>, reading each one's metadata in parallel.
+	 * @param resources where to load the audio files from.
+	 * @param directory the path of the directory containing the audio files. Its subdirectories are searched too.
+	 * @param supportedExtensions a list of valid audio file extensions (ex: ".wav", ".mp3").
+	 * @param audioFileList where to store the audio files. The identifier given to the audio file is its path relative 
+	 * to the directory.
+	 * @param executor runs the listing and the reading of each audio file's metadata.
+	 * @param onLoaded notified with the identifier of each audio file once it has been added to the list. This is 
+	 * invoked from whichever thread loaded the file. Files whose metadata can't be read are not added.
+	 * @return a future that completes once every audio file has been loaded.
+	 */
+	public CompletableFuture<Void> loadFromProvider(ResourceProvider resources, String directory, 
+			String supportedExtensions[], AudioFileList audioFileList, Executor executor, Consumer<String> onLoaded) {
+		return CompletableFuture.supplyAsync(() -> resources.list(directory, supportedExtensions), executor) 
+				.thenCompose(identifiers -> {
+					CompletableFuture<?>[] loads = new CompletableFuture<?>[identifiers.size()];
+					for (int i = 0; i < loads.length; i++) {
+						String identifier = identifiers.get(i);
+						loads[i] = CompletableFuture.runAsync(() -> {
+							if (loadResource(resources, directory, identifier, audioFileList))
+								onLoaded.accept(identifier);
+						}, executor);
+					}
+					return CompletableFuture.allOf(loads);
+				});
+	}
+	
+	/**
+	 * Loads a single audio file from a <code>ResourceProvider</code> and stores it in an <code>AudioFileList</code>, 
+	 * the same way as {@link #loadFile(File, String, AudioFileList, TrackCatalog)} but without a file or catalog.
+	 * @param resources where to load the audio file from.
+	 * @param directory the path of the directory the identifier is relative to.
+	 * @param identifier the path of the audio file relative to the directory.
+	 * @param audioFileList where to store the audio file.
+	 * @return true if the audio file was added to the list, false if it was skipped.
+	 */
+	public boolean loadResource(ResourceProvider resources, String directory, String identifier, 
+			AudioFileList audioFileList) {
+		String path = ResourceProvider.resolve(directory, identifier);
+		TrackInfo trackInfo;
+		try (InputStream stream = resources.open(path)) {
+			trackInfo = probe(stream);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+		if (trackInfo == null)
+			return false;
+		
+		List<String> sidecarTags = new ArrayList<String>();
+		String tagsPath = getTagsPath(path);
+		if (resources.contains(tagsPath)) {
+			try (InputStream stream = resources.open(tagsPath)) {
+				sidecarTags = readTags(stream);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		audioFileList.addAudioFile(identifier, trackInfo, getTags(identifier, sidecarTags));
+		return true;
+	}
+	
+	/**
+	 * Loads a single audio file and stores it in an <code>AudioFileList</code>, replacing any audio file with the same 
+	 * identifier. Files whose header can't be read wouldn't be playable anyway, so they are skipped.
+	 * 
+	 * <p>The audio file is tagged with the name of each folder it is in, relative to the directory, along with any tags 
+	 * listed in its sidecar tags file (see {@link #getTagsFile(File)}).
+	 * @param directory the directory the identifier is relative to.
+	 * @param identifier the path of the audio file relative to the directory, as determined by 
+	 * {@link #getIdentifier(Path, Path)}.
+	 * @param audioFileList where to store the audio file.
+	 * @param catalog the catalog of the directory, or <code>null</code> to always read the file's header and tags.
+	 * @return true if the file was added to the list, false if it was skipped.
+	 */
+	public boolean loadFile(File directory, String identifier, AudioFileList audioFileList, TrackCatalog catalog) {
+		File audioFile = new File(directory, identifier);
+		File tagsFile = getTagsFile(audioFile);
+		TrackCatalog.Entry entry = (catalog == null) ? null : catalog.get(identifier);
+		
+		TrackInfo trackInfo;
+		List<String> sidecarTags;
+		if (entry != null && entry.matches(audioFile, tagsFile)) {
+			trackInfo = entry.getTrackInfo();
+			sidecarTags = entry.getTags();
+		} else {
+			trackInfo = probe(audioFile);
+			if (trackInfo == null)
+				return false;
+			sidecarTags = readTags(tagsFile);
+			if (catalog != null)
+				catalog.put(identifier, audioFile, tagsFile, trackInfo, sidecarTags);
+		}
+		
+		audioFileList.addAudioFile(identifier, audioFile, trackInfo, getTags(identifier, sidecarTags));
+		return true;
+	}
+	
+	/**
+	 * Reads the metadata of an audio file from its header without decoding the audio itself.
+	 * @param audioFile the file to read.
+	 * @return the metadata of the file, or <code>null</code> if it could not be read.
+	 */
+	public TrackInfo probe(File audioFile) {
+		try {
+			AudioFileFormat fileFormat = AudioSystem.getAudioFileFormat(audioFile);
+			return new TrackInfo(fileFormat.getFormat(), fileFormat.getFrameLength());
+		} catch (UnsupportedAudioFileException | IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	/**
+	 * Reads the metadata of an audio file from the header at the start of a stream without decoding the audio itself.
+	 * @param stream the stream to read, which must support marking.
+	 * @return the metadata of the audio file, or <code>null</code> if it could not be read.
+	 */
+	public TrackInfo probe(InputStream stream) {
+		try {
+			AudioFileFormat fileFormat = AudioSystem.getAudioFileFormat(stream);
+			return new TrackInfo(fileFormat.getFormat(), fileFormat.getFrameLength());
+		} catch (UnsupportedAudioFileException | IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns the identifier of an audio file, which is its path relative to the audio directory with <code>/</code> as 
+	 * the separator, no matter the platform.
+	 * @param directory the audio directory.
+	 * @param audioFile the audio file, somewhere inside the audio directory.
+	 * @return the identifier of the audio file.
+	 */
+	public static String getIdentifier(Path directory, Path audioFile) {
+		StringBuilder identifier = new StringBuilder();
+		for (Path name : directory.relativize(audioFile)) {
+			if (identifier.length() > 0)
+				identifier.append('/');
+			identifier.append(name.toString());
+		}
+		return identifier.toString();
+	}
+	
+	/**
+	 * Returns the sidecar tags file of an audio file, which has the same name as the audio file but with a 
+	 * <code>.tags</code> extension instead (ex: "rain.wav" has "rain.tags"). It lists the audio file's tags, separated 
+	 * by commas or whitespace.
+	 * @param audioFile the audio file.
+	 * @return the sidecar tags file, which may not exist.
+	 */
+	public static File getTagsFile(File audioFile) {
+		String name = audioFile.getName();
+		int dot = name.lastIndexOf('.');
+		return new File(audioFile.getParentFile(), ((dot < 0) ? name : name.substring(0, dot)) + TAGS_EXTENSION);
+	}
+	
+	/**
+	 * Returns the path of the sidecar tags resource of an audio resource, the same way as {@link #getTagsFile(File)}.
+	 * @param path the path of the audio resource.
+	 * @return the path of the sidecar tags resource, which may not exist.
+	 */
+	public static String getTagsPath(String path) {
+		int dot = path.lastIndexOf('.');
+		return ((dot <= path.lastIndexOf('/')) ? path : path.substring(0, dot)) + TAGS_EXTENSION;
+	}
+	
+	/**
+	 * Returns every tag of an audio file, which are the name of each folder it is in followed by its sidecar tags.
+	 * @param identifier the path of the audio file relative to the audio directory.
+	 * @param sidecarTags the tags read from the audio file's sidecar tags file.
+	 * @return the tags of the audio file.
+	 */
+	private static Set<String> getTags(String identifier, List<String> sidecarTags) {
+		Set<String> tags = new LinkedHashSet<String>();
+		String[] folders = identifier.split("/");
+		for (int i = 0; i < folders.length - 1; i++)
+			tags.add(folders[i]);
+		tags.addAll(sidecarTags);
+		return tags;
+	}
+	
+	/**
+	 * Reads the tags listed in a sidecar tags file.
+	 * @param tagsFile the sidecar tags file.
+	 * @return the tags, which is empty if the file doesn't exist or couldn't be read.
+	 */
+	private static List<String> readTags(File tagsFile) {
+		List<String> tags = new ArrayList<String>();
+		if (!tagsFile.isFile())
+			return tags;
+		
+		try {
+			addTags(Files.readAllLines(tagsFile.toPath(), StandardCharsets.UTF_8), tags);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return tags;
+	}
+	
+	/**
+	 * Reads the tags listed in a sidecar tags resource.
+	 * @param stream the contents of the sidecar tags resource.
+	 * @return the tags.
+	 * @throws IOException thrown if the stream couldn't be read.
+	 */
+	private static List<String> readTags(InputStream stream) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+		String line;
+		while ((line = reader.readLine()) != null)
+			lines.add(line);
+		
+		List<String> tags = new ArrayList<String>();
+		addTags(lines, tags);
+		return tags;
+	}
+	
+	/**
+	 * Splits the lines of a sidecar tags file into tags, separated by commas or whitespace.
+	 * @param lines the lines of the sidecar tags file.
+	 * @param tags where to add the tags, in lower case.
+	 */
+	private static void addTags(List<String> lines, List<String> tags) {
+		for (String line : lines) {
+			for (String tag : line.split("[,\\s]+")) {
+				if (!tag.isEmpty())
+					tags.add(tag.toLowerCase());
+			}
+		}
+	}
+	
+	/**
+	 * Lists the identifiers of all audio files in a directory tree, using the names in its catalog instead if none of 
+	 * the directories have changed.
+	 * @param directory the directory containing the audio files.
+	 * @param supportedExtensions a list of valid audio file extensions.
+	 * @param catalog the catalog of the directory, or <code>null</code> to always list the directories. Its entries 
+	 * are pruned if the directories had to be listed.
+	 * @return the identifiers of the audio files.
+	 */
+	private static List<String> listIdentifiers(File directory, String supportedExtensions[], TrackCatalog catalog) {
+		if (catalog != null) {
+			catalog.load();
+			if (catalog.isDirectoryUnchanged())
+				return catalog.getNames();
+		}
+		
+		List<String> identifiers = new ArrayList<String>();
+		List<String> directories = new ArrayList<String>();
+		walk(directory.toPath(), supportedExtensions, identifiers, directories);
+		if (catalog != null) {
+			catalog.setDirectories(directories);
+			catalog.retain(identifiers);
+		}
+		return identifiers;
+	}
+	
+	/**
+	 * Walks a directory tree, collecting the identifiers of all files ending in a valid audio file extension along with 
+	 * the relative path of every directory. Hidden files and directories are skipped.
+	 * @param root the root of the directory tree, which may be in any file system, such as that of a jar.
+	 * @param supportedExtensions a list of valid audio file extensions.
+	 * @param identifiers where to add the identifiers of the audio files.
+	 * @param directories where to add the paths of the directories, relative to the root. The root itself is the 
+	 * empty path.
+	 */
+	static void walk(Path root, String supportedExtensions[], List<String> identifiers, List<String> directories) {
+		try {
+			Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attributes) {
+					if (!path.equals(root) && path.getFileName().toString().startsWith("."))
+						return FileVisitResult.SKIP_SUBTREE;
+					directories.add(getIdentifier(root, path));
+					return FileVisitResult.CONTINUE;
+				}
+				
+				@Override
+				public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) {
+					String name = path.getFileName().toString();
+					if (attributes.isRegularFile() && !name.startsWith(".") && 
+							hasSupportedExtension(name, supportedExtensions))
+						identifiers.add(getIdentifier(root, path));
+					return FileVisitResult.CONTINUE;
+				}
+				
+				@Override
+				public FileVisitResult visitFileFailed(Path path, IOException e) {
+					e.printStackTrace();
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Determines whether a file name ends in one of the supported extensions.
+	 * @param name the file name.
+	 * @param supportedExtensions a list of valid audio file extensions.
+	 * @return true if the extension is supported, false otherwise.
+	 */
+	static boolean hasSupportedExtension(String name, String supportedExtensions[]) {
+		for (String extension : supportedExtensions) {
+			if (name.endsWith(extension))
+				return true;
+		}
+		return false;
 	}
 }
@@ -0,0 +1,50 @@
+package model.util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves resources from plain files inside a directory, such as the <code>res</code> directory next to the program.
+ * 
+ * @author Adam
+ */
+public class DirectoryResourceProvider implements ResourceProvider {
+	private File root;
+	
+	/**
+	 * Creates a new <code>DirectoryResourceProvider</code> instance.
+	 * @param root the directory the resources are in.
+	 */
+	public DirectoryResourceProvider(File root) {
+		this.root = root;
+	}
+	
+	@Override
+	public List<String> list(String directory, String[] supportedExtensions) {
+		List<String> paths = new ArrayList<String>();
+		File filesDirectory = getFile(directory);
+		if (filesDirectory.isDirectory())
+			AudioFileLoader.walk(filesDirectory.toPath(),  supportedExtensions, paths, new ArrayList<String>());
+		return paths;
+	}
+	
+	@Override
+	public boolean contains(String path) {
+		return getFile(path).isFile();
+	}
+	
+	@Override
+	public InputStream open(String path) throws IOException {
+		return new BufferedInputStream(new FileInputStream(getFile(path)));
+	}
+	
+	@Override
+	public File getFile(String path) {
+		return path.isEmpty() ? root : new File(root, path);
+	}
+}
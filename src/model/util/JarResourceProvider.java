@@ -0,0 +1,221 @@
+package model.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Serves resources from inside a jar, such as the <code>res</code> directory packed into <code>retrorain.jar</code>, 
+ * through the jar's zip file system. This lets the program ship as a single jar and start without extracting anything.
+ * 
+ * <p>Reading a compressed entry means inflating it, so audio is best stored in the jar without compression, as done by 
+ * {@link #write(File, File, File)}. A stored entry is read straight out of the jar.
+ * 
+ * @author Adam
+ */
+public class JarResourceProvider implements ResourceProvider {
+	/**
+	 * The directory inside the jar that the resources are in.
+	 */
+	public static final String RESOURCE_DIRECTORY = "res";
+	
+	/**
+	 * The extensions of the resources that are stored in the jar without compression.
+	 */
+	public static final String[] STORED_EXTENSIONS = {".wav"};
+	
+	private Path root;
+	
+	/**
+	 * Creates a new <code>JarResourceProvider</code> instance.
+	 * @param root the directory the resources are in, inside the jar's file system.
+	 */
+	private JarResourceProvider(Path root) {
+		this.root = root;
+	}
+	
+	/**
+	 * Opens the resources inside a jar.
+	 * @param jarFile the jar to open.
+	 * @return the resources of the jar, or <code>null</code> if the jar doesn't hold any resources.
+	 * @throws IOException thrown if the jar couldn't be opened.
+	 */
+	public static JarResourceProvider open(File jarFile) throws IOException {
+		FileSystem fileSystem = FileSystems.newFileSystem(jarFile.toPath(), (ClassLoader)null);
+		Path root = fileSystem.getPath("/", RESOURCE_DIRECTORY);
+		if (!Files.isDirectory(root)) {
+			fileSystem.close();
+			return null;
+		}
+		return new JarResourceProvider(root);
+	}
+	
+	/**
+	 * Returns the jar a class was loaded from.
+	 * @param type the class to look for.
+	 * @return the jar holding the class, or <code>null</code> if it wasn't loaded from a jar (ex: when running from an 
+	 * IDE).
+	 */
+	public static File getJarFile(Class<?> type) {
+		CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+		if (codeSource == null)
+			return null;
+		
+		try {
+			File location = new File(codeSource.getLocation().toURI());
+			return (location.isFile() && location.getName().endsWith(".jar")) ? location : null;
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Writes a copy of a jar with every file of a directory tree added to its <code>res</code> directory, replacing any 
+	 * resources it already held. Audio is stored without compression (see {@link #STORED_EXTENSIONS}), and everything 
+	 * else is compressed as usual. Hidden files and directories are skipped.
+	 * @param jarFile the jar to copy.
+	 * @param directory the directory holding the resources.
+	 * @param outputFile where to write the new jar. This must not be the jar being copied.
+	 * @throws IOException thrown if the jar or a resource couldn't be read, or the new jar couldn't be written.
+	 */
+	public static void write(File jarFile, File directory, File outputFile) throws IOException {
+		// An empty extension matches every file.
+		List<String> paths = new DirectoryResourceProvider(directory).list("", new String[] {""});
+		Collections.sort(paths);
+		
+		try (ZipFile jar = new ZipFile(jarFile);
+				ZipOutputStream output = new ZipOutputStream(new BufferedOutputStream( 
+						new FileOutputStream(outputFile)))) {
+			Enumeration<? extends ZipEntry> entries = jar.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (entry.getName().startsWith(RESOURCE_DIRECTORY + "/"))
+					continue;
+				try (InputStream input = jar.getInputStream(entry)) {
+					writeEntry(output, entry.getName(), readAllBytes(input), false);
+				}
+			}
+			
+			for (String path : paths) {
+				byte[] data = Files.readAllBytes(new File(directory, path).toPath());
+				writeEntry(output, RESOURCE_DIRECTORY + "/" + path, data, 
+						AudioFileLoader.hasSupportedExtension(path, STORED_EXTENSIONS));
+			}
+		}
+	}
+	
+	/**
+	 * Writes a jar with resources from the command line.
+	 * @param args the jar to copy, the directory holding the resources, and where to write the new jar.
+	 * @throws IOException thrown if the jar couldn't be written.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3) {
+			System.err.println("Usage: java model.util.JarResourceProvider <jar> <resource directory> <output jar>");
+			System.exit(1);
+		}
+		write(new File(args[0]), new File(args[1]), new File(args[2]));
+	}
+	
+	@Override
+	public List<String> list(String directory, String[] supportedExtensions) {
+		List<String> paths = new ArrayList<String>();
+		Path filesDirectory = resolve(directory);
+		if (Files.isDirectory(filesDirectory))
+			AudioFileLoader.walk(filesDirectory, supportedExtensions, paths, new ArrayList<String>());
+		return paths;
+	}
+	
+	@Override
+	public boolean contains(String path) {
+		return Files.isRegularFile(resolve(path));
+	}
+	
+	/**
+	 * Opens a resource for reading. The stream supports marking.
+	 * @param path the path of the resource.
+	 * @return a stream of the resource's bytes.
+	 * @throws IOException thrown if the resource doesn't exist or couldn't be opened.
+	 */
+	@Override
+	public InputStream open(String path) throws IOException {
+		return new BufferedInputStream(Files.newInputStream(resolve(path)));
+	}
+	
+	/**
+	 * Resources in a jar are not files of their own.
+	 * @param path the path of the resource or directory.
+	 * @return <code>null</code>.
+	 */
+	@Override
+	public File getFile(String path) {
+		return null;
+	}
+	
+	/**
+	 * Returns where a resource is inside the jar's file system.
+	 * @param path the path of the resource.
+	 * @return the resource's path in the jar.
+	 */
+	private Path resolve(String path) {
+		return path.isEmpty() ? root : root.resolve(path);
+	}
+	
+	/**
+	 * Writes a single entry of a jar.
+	 * @param output the jar being written.
+	 * @param name the name of the entry.
+	 * @param data the contents of the entry.
+	 * @param stored true to store the entry without compression, false to compress it.
+	 * @throws IOException thrown if the entry couldn't be written.
+	 */
+	private static void writeEntry(ZipOutputStream output, String name, byte[] data, boolean stored) 
+			throws IOException {
+		ZipEntry entry = new ZipEntry(name);
+		if (stored) {
+			// The header of an entry comes before its data, so a stored entry has to be described up front.
+			CRC32 crc = new CRC32();
+			crc.update(data);
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(data.length);
+			entry.setCompressedSize(data.length);
+			entry.setCrc(crc.getValue());
+		}
+		output.putNextEntry(entry);
+		output.write(data);
+		output.closeEntry();
+	}
+	
+	/**
+	 * Reads a stream to its end.
+	 * @param input the stream to read.
+	 * @return every byte of the stream.
+	 * @throws IOException thrown if the stream couldn't be read.
+	 */
+	private static byte[] readAllBytes(InputStream input) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = input.read(buffer)) != -1)
+			bytes.write(buffer, 0, read);
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,173 @@
+package model.util;
+
+import java.nio.ShortBuffer;
+
+import model.Track;
+
+/**
+ * Finds where a track loops most seamlessly. Most recordings aren't cut as loops, so jumping from their last sample 
+ * back to their first is often audible. Instead, a short stretch around each of several candidate starts near the 
+ * beginning of the track is compared with every stretch near the end, and the pair that sounds most alike becomes the 
+ * loop, so the jump lands where the audio carries on much as it would have.
+ * 
+ * <p>Stretches are compared by normalized cross-correlation, which for a candidate start is worked out at every 
+ * position near the end at once with FFTs. Channels are mixed down before comparing.
+ * 
+ * @author Adam
+ */
+public class LoopFinder {
+	private static final double MATCH_SECONDS = 0.1;
+	private static final double SEARCH_SECONDS = 3.0;
+	private static final int START_CANDIDATES = 8;
+	
+	/**
+	 * Creates a new <code>LoopFinder</code> instance. Private since every method is static.
+	 */
+	private LoopFinder() {}
+	
+	/**
+	 * Finds the loop points of a track.
+	 * @param track the decoded track.
+	 * @return the first frame of the loop and the frame after its last, in that order.
+	 */
+	public static int[] find(Track track) {
+		return find(track.getSamples(), track.getChannels(), track.getSampleRate());
+	}
+	
+	/**
+	 * Finds the loop points of some 16-bit samples. Tracks too short to search, or silent at either end, loop as a 
+	 * whole.
+	 * @param samples the samples, interleaved by channel.
+	 * @param channels the amount of channels.
+	 * @param sampleRate the sample rate of the samples in Hz.
+	 * @return the first frame of the loop and the frame after its last, in that order.
+	 */
+	public static int[] find(ShortBuffer samples, int channels, float sampleRate) {
+		int frames = samples.capacity() / channels;
+		int match = (int)Math.round(sampleRate * MATCH_SECONDS);
+		int search = Math.min((int)Math.round(sampleRate * SEARCH_SECONDS), frames / 4 - match);
+		if (search < match)
+			return new int[] {0, frames};
+		
+		// The end of the track is transformed once and correlated with the stretch around each candidate start.
+		int tailStart = frames - search - match;
+		int size = Integer.highestOneBit(search + match - 1) << 1;
+		double[] tailReal = mixDown(samples, channels, tailStart, search + match, size);
+		double[] tailImaginary = new double[size];
+		double[] tailEnergies = new double[search + match + 1];
+		for (int i = 0; i < search + match; i++)
+			tailEnergies[i + 1] = tailEnergies[i] + tailReal[i] * tailReal[i];
+		transform(tailReal, tailImaginary, false);
+		
+		int[] loop = {0, frames};
+		double bestScore = 0;
+		for (int candidate = 0; candidate < START_CANDIDATES; candidate++) {
+			int start = match / 2 + candidate * (search - match) / (START_CANDIDATES - 1);
+			double[] real = mixDown(samples, channels, start - match / 2, match, size);
+			double[] imaginary = new double[size];
+			double energy = 0;
+			for (int i = 0; i < match; i++)
+				energy += real[i] * real[i];
+			if (energy == 0)
+				continue;
+			
+			// Multiplying by the conjugate of the candidate's transform correlates it with the end of the track.
+			transform(real, imaginary, false);
+			for (int i = 0; i < size; i++) {
+				double productReal = tailReal[i] * real[i] + tailImaginary[i] * imaginary[i];
+				double productImaginary = tailImaginary[i] * real[i] - tailReal[i] * imaginary[i];
+				real[i] = productReal;
+				imaginary[i] = productImaginary;
+			}
+			transform(real, imaginary, true);
+			
+			for (int offset = 0; offset <= search; offset++) {
+				double tailEnergy = tailEnergies[offset + match] - tailEnergies[offset];
+				if (tailEnergy == 0)
+					continue;
+				double score = real[offset] / Math.sqrt(energy * tailEnergy);
+				if (score > bestScore) {
+					bestScore = score;
+					loop[0] = start;
+					loop[1] = tailStart + offset + match / 2;
+				}
+			}
+		}
+		return loop;
+	}
+	
+	/**
+	 * Mixes a stretch of samples down to a single channel, padded with silence.
+	 * @param samples the samples, interleaved by channel.
+	 * @param channels the amount of channels.
+	 * @param start the first frame to mix down.
+	 * @param length how many frames to mix down.
+	 * @param size the length of the result, which must be at least the amount of frames mixed down.
+	 * @return the mixed down samples, from -1 to 1.
+	 */
+	private static double[] mixDown(ShortBuffer samples, int channels, int start, int length, int size) {
+		double[] mono = new double[size];
+		for (int i = 0; i < length; i++) {
+			int sample = (start + i) * channels;
+			for (int channel = 0; channel < channels; channel++)
+				mono[i] += samples.get(sample + channel);
+			mono[i] /= 32768.0 * channels;
+		}
+		return mono;
+	}
+	
+	/**
+	 * Transforms complex values in place with an iterative radix-2 FFT. The inverse transform is scaled, so that it 
+	 * undoes the forward transform.
+	 * @param real the real parts. Their length must be a power of 2.
+	 * @param imaginary the imaginary parts, as many as there are real parts.
+	 * @param inverse true to perform the inverse transform, false to perform the forward transform.
+	 */
+	private static void transform(double[] real, double[] imaginary, boolean inverse) {
+		int size = real.length;
+		for (int i = 1, j = 0; i < size; i++) {
+			int bit = size >> 1;
+			for (; (j & bit) != 0; bit >>= 1)
+				j ^= bit;
+			j |= bit;
+			if (i < j) {
+				double swap = real[i];
+				real[i] = real[j];
+				real[j] = swap;
+				swap = imaginary[i];
+				imaginary[i] = imaginary[j];
+				imaginary[j] = swap;
+			}
+		}
+		
+		for (int length = 2; length <= size; length <<= 1) {
+			double angle = 2 * Math.PI / length * (inverse ? 1 : -1);
+			double stepReal = Math.cos(angle);
+			double stepImaginary = Math.sin(angle);
+			for (int i = 0; i < size; i += length) {
+				double twiddleReal = 1;
+				double twiddleImaginary = 0;
+				for (int j = 0; j < length / 2; j++) {
+					int even = i + j;
+					int odd = even + length / 2;
+					double oddReal = real[odd] * twiddleReal - imaginary[odd] * twiddleImaginary;
+					double oddImaginary = real[odd] * twiddleImaginary + imaginary[odd] * twiddleReal;
+					real[odd] = real[even] - oddReal;
+					imaginary[odd] = imaginary[even] - oddImaginary;
+					real[even] += oddReal;
+					imaginary[even] += oddImaginary;
+					double nextReal = twiddleReal * stepReal - twiddleImaginary * stepImaginary;
+					twiddleImaginary = twiddleReal * stepImaginary + twiddleImaginary * stepReal;
+					twiddleReal = nextReal;
+				}
+			}
+		}
+		
+		if (inverse) {
+			for (int i = 0; i < size; i++) {
+				real[i] /= size;
+				imaginary[i] /= size;
+			}
+		}
+	}
+}
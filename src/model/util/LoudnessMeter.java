@@ -0,0 +1,161 @@
+package model.util;
+
+import java.nio.ShortBuffer;
+
+import model.Track;
+
+/**
+ * Measures the integrated loudness of a track the way ITU-R BS.1770 does. The samples are K-weighted, which roughly 
+ * models how loud each frequency sounds, and then the mean power of overlapping 400 ms blocks is averaged, leaving out 
+ * silent blocks and blocks much quieter than the rest so that pauses don't make a track seem quieter than it sounds.
+ * 
+ * @author Adam
+ */
+public class LoudnessMeter {
+	/**
+	 * The loudness given to a track that is silent throughout.
+	 */
+	public static final float SILENCE = -70.0f;
+	
+	private static final double BLOCK_SECONDS = 0.4;
+	private static final int BLOCK_STEPS = 4;
+	private static final double ABSOLUTE_GATE = -70.0;
+	private static final double RELATIVE_GATE = -10.0;
+	
+	/**
+	 * Creates a new <code>LoudnessMeter</code> instance. Private since every method is static.
+	 */
+	private LoudnessMeter() {}
+	
+	/**
+	 * Measures the integrated loudness of a track.
+	 * @param track the decoded track.
+	 * @return the loudness in LUFS (loudness units relative to full scale), or {@link #SILENCE} if the track is silent.
+	 */
+	public static float measure(Track track) {
+		return measure(track.getSamples(), track.getChannels(), track.getSampleRate());
+	}
+	
+	/**
+	 * Measures the integrated loudness of some 16-bit samples. Every channel is weighted equally, as the front left and 
+	 * right channels are.
+	 * @param samples the samples, interleaved by channel.
+	 * @param channels the amount of channels.
+	 * @param sampleRate the sample rate of the samples in Hz.
+	 * @return the loudness in LUFS, or {@link #SILENCE} if the samples are silent or shorter than a block.
+	 */
+	public static float measure(ShortBuffer samples, int channels, float sampleRate) {
+		// Blocks overlap by three quarters, so the power is summed over steps of a quarter block.
+		int stepFrames = (int)Math.round(sampleRate * BLOCK_SECONDS / BLOCK_STEPS);
+		int steps = samples.capacity() / channels / stepFrames;
+		if (steps < BLOCK_STEPS)
+			return SILENCE;
+		
+		double[] stepPowers = new double[steps];
+		for (int channel = 0; channel < channels; channel++) {
+			double[] shelf = getShelfCoefficients(sampleRate);
+			double[] highPass = getHighPassCoefficients(sampleRate);
+			double shelf1 = 0;
+			double shelf2 = 0;
+			double highPass1 = 0;
+			double highPass2 = 0;
+			int sample = channel;
+			for (int step = 0; step < steps; step++) {
+				double power = 0;
+				for (int i = 0; i < stepFrames; i++) {
+					// Both filters are biquads in transposed direct form II.
+					double input = samples.get(sample) / 32768.0;
+					double shelved = shelf[0] * input + shelf1;
+					shelf1 = shelf[1] * input - shelf[3] * shelved + shelf2;
+					shelf2 = shelf[2] * input - shelf[4] * shelved;
+					double weighted = highPass[0] * shelved + highPass1;
+					highPass1 = highPass[1] * shelved - highPass[3] * weighted + highPass2;
+					highPass2 = highPass[2] * shelved - highPass[4] * weighted;
+					power += weighted * weighted;
+					sample += channels;
+				}
+				stepPowers[step] += power;
+			}
+		}
+		
+		int blocks = steps - BLOCK_STEPS + 1;
+		double[] blockPowers = new double[blocks];
+		for (int block = 0; block < blocks; block++) {
+			for (int step = block; step < block + BLOCK_STEPS; step++)
+				blockPowers[block] += stepPowers[step];
+			blockPowers[block] /= stepFrames * BLOCK_STEPS;
+		}
+		
+		double gated = getGatedPower(blockPowers, toPower(ABSOLUTE_GATE));
+		if (gated == 0)
+			return SILENCE;
+		gated = getGatedPower(blockPowers, Math.max(toPower(ABSOLUTE_GATE), gated * Math.pow(10, RELATIVE_GATE / 10)));
+		return (float)Math.max(SILENCE, toLoudness(gated));
+	}
+	
+	/**
+	 * Averages the power of every block above a gate.
+	 * @param blockPowers the mean power of each block.
+	 * @param gate the power a block must be above to count.
+	 * @return the average power of the blocks above the gate, or 0 if there are none.
+	 */
+	private static double getGatedPower(double[] blockPowers, double gate) {
+		double total = 0;
+		int count = 0;
+		for (double power : blockPowers) {
+			if (power > gate) {
+				total += power;
+				count++;
+			}
+		}
+		return (count == 0) ? 0 : total / count;
+	}
+	
+	/**
+	 * Converts a mean power into a loudness.
+	 * @param power the mean power of the K-weighted samples.
+	 * @return the loudness in LUFS.
+	 */
+	private static double toLoudness(double power) {
+		return -0.691 + 10 * Math.log10(power);
+	}
+	
+	/**
+	 * Converts a loudness into a mean power.
+	 * @param loudness the loudness in LUFS.
+	 * @return the mean power of the K-weighted samples.
+	 */
+	private static double toPower(double loudness) {
+		return Math.pow(10, (loudness + 0.691) / 10);
+	}
+	
+	/**
+	 * Returns the coefficients of the first stage of the K-weighting filter, a high shelf that boosts frequencies 
+	 * above about 1.5 kHz by 4 dB to account for the head. They are worked out for the sample rate so that any rate 
+	 * gets the same response as the 48 kHz coefficients given by BS.1770.
+	 * @param sampleRate the sample rate in Hz.
+	 * @return the coefficients b0, b1, b2, a1 and a2, normalized so that a0 is 1.
+	 */
+	private static double[] getShelfCoefficients(float sampleRate) {
+		double k = Math.tan(Math.PI * 1681.974450955533 / sampleRate);
+		double q = 0.7071752369554196;
+		double highGain = Math.pow(10, 3.999843853973347 / 20);
+		double bandGain = Math.pow(highGain, 0.4996667741545416);
+		double a0 = 1 + k / q + k * k;
+		return new double[] {(highGain + bandGain * k / q + k * k) / a0, 2 * (k * k - highGain) / a0, 
+				(highGain - bandGain * k / q + k * k) / a0, 2 * (k * k - 1) / a0, (1 - k / q + k * k) / a0};
+	}
+	
+	/**
+	 * Returns the coefficients of the second stage of the K-weighting filter, a high pass that rolls off frequencies 
+	 * below about 40 Hz.
+	 * @param sampleRate the sample rate in Hz.
+	 * @return the coefficients b0, b1, b2, a1 and a2, normalized so that a0 is 1.
+	 */
+	private static double[] getHighPassCoefficients(float sampleRate) {
+		double k = Math.tan(Math.PI * 38.13547087602444 / sampleRate);
+		double q = 0.5003270373238773;
+		double a0 = 1 + k / q + k * k;
+		return new double[] {1, -2, 1, 2 * (k * k - 1) / a0, (1 - k / q + k * k) / a0};
+	}
+}
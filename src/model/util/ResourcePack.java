@@ -0,0 +1,321 @@
+package model.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves resources from a pack, which is a single file holding every resource of a directory tree. Startup only has 
+ * to open and map one file instead of listing directories and opening each resource, which matters most on cold 
+ * caches and network home directories.
+ * 
+ * <p>A pack starts with an index of every resource's path, offset and length, followed by the resources themselves, 
+ * each starting on a multiple of {@link #ALIGNMENT} bytes. The whole pack is memory-mapped when it is opened, but only 
+ * the index is read then. A resource's pages are only read from disk once the resource is opened, and reading it 
+ * copies nothing into the heap beyond what the caller asks for.
+ * 
+ * <p>Packs are made at build time from the <code>res</code> directory by running this class, e.g. 
+ * <code>java -cp bin model.util.ResourcePack res retrorain.pack</code>.
+ * 
+ * @author Adam
+ */
+public class ResourcePack implements ResourceProvider {
+	/**
+	 * The number of bytes every resource is aligned to, so that a resource can be viewed as shorts, ints or longs 
+	 * directly and never shares a cache line with another.
+	 */
+	public static final int ALIGNMENT = 64;
+	
+	private static final int MAGIC = 0x5252504B; // "RRPK"
+	private static final int VERSION = 1;
+	
+	private ByteBuffer buffer;
+	private Map<String, Entry> entries;
+	
+	/**
+	 * Creates a new <code>ResourcePack</code> instance from a pack that has been mapped into memory.
+	 * @param buffer the whole pack.
+	 * @throws IOException thrown if the pack's index is not valid.
+	 */
+	private ResourcePack(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		entries = new LinkedHashMap<String, Entry>();
+		readIndex();
+	}
+	
+	/**
+	 * Opens a pack by memory-mapping it and reading its index.
+	 * @param packFile the pack to open.
+	 * @return the opened <code>ResourcePack</code>.
+	 * @throws IOException thrown if the pack couldn't be mapped or is not a valid pack.
+	 */
+	public static ResourcePack open(File packFile) throws IOException {
+		// The mapping stays valid after the channel is closed.
+		try (FileChannel channel = FileChannel.open(packFile.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("The resource pack \"" + packFile + "\" is too large to map");
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new ResourcePack(buffer);
+		}
+	}
+	
+	/**
+	 * Writes a pack holding every file in a directory tree, except for hidden files and directories. The resources are 
+	 * written in order of their paths, so packing the same files always gives the same pack.
+	 * @param directory the directory holding the resources.
+	 * @param packFile where to write the pack.
+	 * @throws IOException thrown if a resource couldn't be read or the pack couldn't be written.
+	 */
+	public static void write(File directory, File packFile) throws IOException {
+		// An empty extension matches every file.
+		List<String> paths = new DirectoryResourceProvider(directory).list("", new String[] {""});
+		Collections.sort(paths);
+		
+		// The offsets take up the same space whatever they are, so the index's length is known before they are.
+		long[] offsets = new long[paths.size()];
+		long[] lengths = new long[paths.size()];
+		long offset = align(writeIndex(paths, offsets, lengths).length);
+		for (int i = 0; i < paths.size(); i++) {
+			offsets[i] = offset;
+			lengths[i] = new File(directory, paths.get(i)).length();
+			offset = align(offset + lengths[i]);
+		}
+		
+		try (FileChannel channel = FileChannel.open(packFile.toPath(), StandardOpenOption.CREATE, 
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(writeIndex(paths, offsets, lengths)));
+			for (int i = 0; i < paths.size(); i++) {
+				ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(new File(directory, paths.get(i)).toPath()));
+				if (data.remaining() != lengths[i])
+					throw new IOException("The resource \"" + paths.get(i) + "\" changed while it was being packed");
+				channel.position(offsets[i]);
+				while (data.hasRemaining())
+					channel.write(data);
+			}
+		}
+	}
+	
+	/**
+	 * Writes a pack from the command line.
+	 * @param args the directory holding the resources, followed by where to write the pack.
+	 * @throws IOException thrown if the pack couldn't be written.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: java model.util.ResourcePack <resource directory> <pack file>");
+			System.exit(1);
+		}
+		write(new File(args[0]), new File(args[1]));
+	}
+	
+	@Override
+	public List<String> list(String directory, String[] supportedExtensions) {
+		String prefix = directory.isEmpty() ? "" : directory + "/";
+		List<String> paths = new ArrayList<String>();
+		for (String path : entries.keySet()) {
+			if (path.startsWith(prefix) && AudioFileLoader.hasSupportedExtension(path, supportedExtensions))
+				paths.add(path.substring(prefix.length()));
+		}
+		return paths;
+	}
+	
+	@Override
+	public boolean contains(String path) {
+		return entries.containsKey(path);
+	}
+	
+	/**
+	 * Opens a resource for reading straight out of the mapped pack. The stream supports marking, and closing it does 
+	 * nothing.
+	 * @param path the path of the resource.
+	 * @return a stream of the resource's bytes.
+	 * @throws IOException thrown if the pack doesn't hold the resource.
+	 */
+	@Override
+	public InputStream open(String path) throws IOException {
+		return new ByteBufferInputStream(map(path));
+	}
+	
+	/**
+	 * Returns a resource's bytes straight out of the mapped pack, without copying them.
+	 * @param path the path of the resource.
+	 * @return a read-only buffer of the resource's bytes, positioned at its start.
+	 * @throws IOException thrown if the pack doesn't hold the resource.
+	 */
+	public ByteBuffer map(String path) throws IOException {
+		Entry entry = entries.get(path);
+		if (entry == null)
+			throw new FileNotFoundException("The resource pack does not contain \"" + path + "\"");
+		
+		// Each caller gets its own view, since a buffer's position isn't safe to share between threads.
+		ByteBuffer view = buffer.duplicate();
+		view.position(entry.offset);
+		view.limit(entry.offset + entry.length);
+		return view.slice();
+	}
+	
+	/**
+	 * Resources in a pack are not files of their own.
+	 * @param path the path of the resource or directory.
+	 * @return <code>null</code>.
+	 */
+	@Override
+	public File getFile(String path) {
+		return null;
+	}
+	
+	/**
+	 * Reads the index at the start of the pack.
+	 * @throws IOException thrown if the index is not valid.
+	 */
+	private void readIndex() throws IOException {
+		ByteBuffer index = buffer.duplicate();
+		try {
+			if (index.getInt() != MAGIC || index.getInt() != VERSION)
+				throw new IOException("Not a resource pack, or a pack of another version");
+			int count = index.getInt();
+			for (int i = 0; i < count; i++) {
+				byte[] path = new byte[index.getShort() & 0xFFFF];
+				index.get(path);
+				long offset = index.getLong();
+				long length = index.getLong();
+				if (offset < 0 || length < 0 || offset + length > buffer.capacity())
+					throw new IOException("A resource lies outside of the pack");
+				entries.put(new String(path, StandardCharsets.UTF_8), new Entry((int)offset, (int)length));
+			}
+		} catch (RuntimeException e) {
+			throw new IOException("The resource pack's index is cut short", e);
+		}
+	}
+	
+	/**
+	 * Writes the index of a pack.
+	 * @param paths the path of each resource.
+	 * @param offsets the offset of each resource from the start of the pack.
+	 * @param lengths the length of each resource.
+	 * @return the index's bytes.
+	 * @throws IOException thrown if a path is too long to be written.
+	 */
+	private static byte[] writeIndex(List<String> paths, long[] offsets, long[] lengths) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream output = new DataOutputStream(bytes)) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(paths.size());
+			for (int i = 0; i < paths.size(); i++) {
+				byte[] path = paths.get(i).getBytes(StandardCharsets.UTF_8);
+				if (path.length > 0xFFFF)
+					throw new IOException("The path \"" + paths.get(i) + "\" is too long to pack");
+				output.writeShort(path.length);
+				output.write(path);
+				output.writeLong(offsets[i]);
+				output.writeLong(lengths[i]);
+			}
+		}
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * Rounds an offset up to the next multiple of {@link #ALIGNMENT}.
+	 * @param offset the offset to round.
+	 * @return the aligned offset.
+	 */
+	private static long align(long offset) {
+		return (offset + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+	
+	/**
+	 * Represents where a single resource lies in the pack.
+	 * 
+	 * @author Adam
+	 */
+	private static class Entry {
+		private int offset;
+		private int length;
+		
+		/**
+		 * Creates a new <code>Entry</code>.
+		 * @param offset the offset of the resource from the start of the pack.
+		 * @param length the length of the resource in bytes.
+		 */
+		public Entry(int offset, int length) {
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+	
+	/**
+	 * Reads the bytes of a buffer as a stream.
+	 * 
+	 * @author Adam
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+		private ByteBuffer buffer;
+		private int mark;
+		
+		/**
+		 * Creates a new <code>ByteBufferInputStream</code> instance.
+		 * @param buffer the bytes to read, from its position to its limit.
+		 */
+		public ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+		
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+		
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (length == 0)
+				return 0;
+			if (!buffer.hasRemaining())
+				return -1;
+			length = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, length);
+			return length;
+		}
+		
+		@Override
+		public long skip(long count) {
+			int skipped = (int)Math.max(0, Math.min(count, buffer.remaining()));
+			buffer.position(buffer.position() + skipped);
+			return skipped;
+		}
+		
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+		
+		@Override
+		public boolean markSupported() {
+			return true;
+		}
+		
+		@Override
+		public void mark(int readLimit) {
+			mark = buffer.position();
+		}
+		
+		@Override
+		public void reset() {
+			buffer.position(mark);
+		}
+	}
+}
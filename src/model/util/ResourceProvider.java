@@ -0,0 +1,57 @@
+package model.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Serves the program's resources, such as images, fonts and audio, by their path. A path is relative to wherever the 
+ * provider keeps its resources and always uses <code>/</code> as the separator (ex: "images/icon.png"), so the same 
+ * paths work whether the resources are plain files in a directory or packed into a single file.
+ * 
+ * @author Adam
+ */
+public interface ResourceProvider {
+	/**
+	 * Lists every resource in a directory and its subdirectories that has a supported extension. Hidden files and 
+	 * directories are skipped.
+	 * @param directory the path of the directory, or the empty string for the root.
+	 * @param supportedExtensions a list of file extensions supported (ex: {".jpg", ".png"}).
+	 * @return the path of each resource relative to the directory, with <code>/</code> as the separator.
+	 */
+	List<String> list(String directory, String[] supportedExtensions);
+	
+	/**
+	 * Determines whether a resource exists.
+	 * @param path the path of the resource.
+	 * @return true if the resource exists, false otherwise.
+	 */
+	boolean contains(String path);
+	
+	/**
+	 * Opens a resource for reading. The caller must close the stream.
+	 * @param path the path of the resource.
+	 * @return a stream of the resource's bytes.
+	 * @throws IOException thrown if the resource doesn't exist or couldn't be opened.
+	 */
+	InputStream open(String path) throws IOException;
+	
+	/**
+	 * Returns the file a resource is stored in, for the things that can only be done with a real file, such as watching 
+	 * a directory for changes.
+	 * @param path the path of the resource or directory.
+	 * @return the file, or <code>null</code> if the resource isn't stored as a file of its own.
+	 */
+	File getFile(String path);
+	
+	/**
+	 * Joins the path of a directory and the path of a resource relative to it.
+	 * @param directory the path of the directory, or the empty string for the root.
+	 * @param path the path relative to the directory.
+	 * @return the path of the resource.
+	 */
+	static String resolve(String directory, String path) {
+		return directory.isEmpty() ? path : directory + "/" + path;
+	}
+}
@@ -0,0 +1,331 @@
+package model.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sound.sampled.AudioFormat;
+
+import model.TrackInfo;
+
+/**
+ * Represents an on-disk index of the audio files in a directory tree, so that startup doesn't have to list the 
+ * directories or read every file's header again. Each entry records a file's size and last modified time along with 
+ * its {@link TrackInfo} and the tags from its sidecar file; an entry is only trusted while the file's size and modified 
+ * times still match.
+ * 
+ * <p>The last modified time of every directory in the tree is recorded as well, since adding or removing a file only 
+ * changes the time of the directory it is directly in.
+ * 
+ * <p>The catalog is stored in a compact binary file in the user's cache directory, one per audio directory.
+ * 
+ * @author Adam
+ */
+public class TrackCatalog {
+	/**
+	 * Represents the cached information of a single audio file.
+	 * 
+	 * @author Adam
+	 */
+	public static class Entry {
+		private long size;
+		private long lastModified;
+		private long tagsLastModified;
+		private TrackInfo trackInfo;
+		private List<String> tags;
+		
+		/**
+		 * Creates a new catalog <code>Entry</code>.
+		 * @param size the size of the audio file in bytes.
+		 * @param lastModified the last modified time of the audio file.
+		 * @param tagsLastModified the last modified time of the audio file's sidecar tags file, or 0 if it has none.
+		 * @param trackInfo the metadata of the audio file.
+		 * @param tags the tags read from the audio file's sidecar tags file.
+		 */
+		public Entry(long size, long lastModified, long tagsLastModified, TrackInfo trackInfo, List<String> tags) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.tagsLastModified = tagsLastModified;
+			this.trackInfo = trackInfo;
+			this.tags = tags;
+		}
+		
+		/**
+		 * Returns the metadata of the audio file.
+		 * @return the <code>TrackInfo</code> of the audio file.
+		 */
+		public TrackInfo getTrackInfo() {
+			return trackInfo;
+		}
+		
+		/**
+		 * Returns the tags read from the audio file's sidecar tags file.
+		 * @return the sidecar tags, which is empty if the audio file has none.
+		 */
+		public List<String> getTags() {
+			return tags;
+		}
+		
+		/**
+		 * Determines whether this entry still describes a file, based on its size and last modified time and the last 
+		 * modified time of its sidecar tags file.
+		 * @param file the file to check against.
+		 * @param tagsFile the sidecar tags file of the file, which doesn't have to exist.
+		 * @return true if neither file has changed since this entry was made, false otherwise.
+		 */
+		public boolean matches(File file, File tagsFile) {
+			return file.length() == size && file.lastModified() == lastModified && 
+					tagsFile.lastModified() == tagsLastModified;
+		}
+	}
+	
+	private static final int MAGIC = 0x52524354; // "RRCT"
+	private static final int VERSION = 2;
+	
+	private File directory;
+	private File catalogFile;
+	private Map<String, Long> directories;
+	private Map<String, Entry> entries;
+	private boolean dirty;
+	
+	/**
+	 * Creates a new, empty <code>TrackCatalog</code> for an audio directory. Nothing is read until {@link #load()} is 
+	 * invoked.
+	 * @param directory the audio directory the catalog describes.
+	 */
+	public TrackCatalog(File directory) {
+		this.directory = directory.getAbsoluteFile();
+		catalogFile = new File(getCacheDirectory(), "catalog-" + 
+				Integer.toHexString(this.directory.getPath().hashCode()) + ".bin");
+		directories = new LinkedHashMap<String, Long>();
+		entries = new LinkedHashMap<String, Entry>();
+	}
+	
+	/**
+	 * Returns the directory RetroRain keeps its caches in.
+	 * @return the cache directory, which may not exist yet.
+	 */
+	public static File getCacheDirectory() {
+		return new File(System.getProperty("user.home"), ".retrorain");
+	}
+	
+	/**
+	 * Reads the catalog from disk, replacing any entries in memory. A missing, unreadable or corrupt catalog simply 
+	 * leaves the catalog empty, so that the audio directory is scanned again, and a corrupt one is overwritten by the 
+	 * next {@link #save()}.
+	 * @return true if the catalog was read, false otherwise.
+	 */
+	public synchronized boolean load() {
+		entries.clear();
+		directories.clear();
+		dirty = false;
+		if (!catalogFile.isFile())
+			return false;
+		
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(catalogFile)))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION || !input.readUTF().equals(directory.getPath()))
+				return false;
+			
+			int directoryCount = input.readInt();
+			Map<String, Long> loadedDirectories = new LinkedHashMap<String, Long>();
+			for (int i = 0; i < directoryCount; i++)
+				loadedDirectories.put(input.readUTF(), input.readLong());
+			
+			int count = input.readInt();
+			Map<String, Entry> loaded = new LinkedHashMap<String, Entry>();
+			for (int i = 0; i < count; i++) {
+				String name = input.readUTF();
+				long size = input.readLong();
+				long fileLastModified = input.readLong();
+				long tagsLastModified = input.readLong();
+				AudioFormat format = new AudioFormat(new AudioFormat.Encoding(input.readUTF()), input.readFloat(), 
+						input.readInt(), input.readInt(), input.readInt(), input.readFloat(), input.readBoolean());
+				long frameCount = input.readLong();
+				input.readFloat(); // The duration, which is derived from the frame count.
+				int tagCount = input.readInt();
+				List<String> tags = new ArrayList<String>(tagCount);
+				for (int j = 0; j < tagCount; j++)
+					tags.add(input.readUTF());
+				loaded.put(name, new Entry(size, fileLastModified, tagsLastModified, new TrackInfo(format, frameCount), 
+						tags));
+			}
+			entries = loaded;
+			directories = loadedDirectories;
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		} catch (RuntimeException e) {
+			// Counts and formats that make no sense, such as a negative amount of tags, mean the catalog is corrupt.
+			e.printStackTrace();
+			dirty = true;
+			return false;
+		}
+	}
+	
+	/**
+	 * Writes the catalog to disk if it has changed since it was loaded or last saved.
+	 */
+	public synchronized void save() {
+		if (!dirty)
+			return;
+		
+		File temporaryFile = new File(catalogFile.getPath() + ".tmp");
+		catalogFile.getParentFile().mkdirs();
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream( 
+				new FileOutputStream(temporaryFile)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeUTF(directory.getPath());
+			output.writeInt(directories.size());
+			for (Map.Entry<String, Long> mapEntry : directories.entrySet()) {
+				output.writeUTF(mapEntry.getKey());
+				output.writeLong(mapEntry.getValue());
+			}
+			output.writeInt(entries.size());
+			for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+				Entry entry = mapEntry.getValue();
+				AudioFormat format = entry.trackInfo.getFormat();
+				output.writeUTF(mapEntry.getKey());
+				output.writeLong(entry.size);
+				output.writeLong(entry.lastModified);
+				output.writeLong(entry.tagsLastModified);
+				output.writeUTF(format.getEncoding().toString());
+				output.writeFloat(format.getSampleRate());
+				output.writeInt(format.getSampleSizeInBits());
+				output.writeInt(format.getChannels());
+				output.writeInt(format.getFrameSize());
+				output.writeFloat(format.getFrameRate());
+				output.writeBoolean(format.isBigEndian());
+				output.writeLong(entry.trackInfo.getFrameCount());
+				output.writeFloat(entry.trackInfo.getDurationSeconds());
+				output.writeInt(entry.tags.size());
+				for (String tag : entry.tags)
+					output.writeUTF(tag);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		
+		// Replace the old catalog in one step so that a crash never leaves a half-written catalog behind.
+		catalogFile.delete();
+		if (temporaryFile.renameTo(catalogFile))
+			dirty = false;
+	}
+	
+	/**
+	 * Determines whether the files in the audio directory tree are the same as when the catalog was saved, in which 
+	 * case the directories don't need to be listed again.
+	 * @return true if files haven't been added to or removed from any directory since the catalog was saved.
+	 */
+	public synchronized boolean isDirectoryUnchanged() {
+		if (directories.isEmpty())
+			return false;
+		
+		for (Map.Entry<String, Long> mapEntry : directories.entrySet()) {
+			if (new File(directory, mapEntry.getKey()).lastModified() != mapEntry.getValue())
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Records the current state of every directory in the audio directory tree, after the tree has been listed.
+	 * @param names the paths of the directories, relative to the audio directory. The audio directory itself is the 
+	 * empty path.
+	 */
+	public synchronized void setDirectories(List<String> names) {
+		directories.clear();
+		for (String name : names)
+			directories.put(name, new File(directory, name).lastModified());
+		dirty = true;
+	}
+	
+	/**
+	 * Records the current state of the directories already known to the catalog, along with any directories that 
+	 * cataloged files are in, after files have been added or removed. Directories that no longer exist are dropped.
+	 */
+	public synchronized void updateDirectory() {
+		Set<String> names = new LinkedHashSet<String>(directories.keySet());
+		names.add("");
+		for (String name : entries.keySet()) {
+			for (int slash = name.indexOf('/'); slash >= 0; slash = name.indexOf('/', slash + 1))
+				names.add(name.substring(0, slash));
+		}
+		
+		for (String name : names) {
+			File subdirectory = new File(directory, name);
+			Long lastModified = directories.get(name);
+			if (!subdirectory.isDirectory()) {
+				if (directories.remove(name) != null)
+					dirty = true;
+			} else if (lastModified == null || lastModified != subdirectory.lastModified()) {
+				directories.put(name, subdirectory.lastModified());
+				dirty = true;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the name of every file in the catalog.
+	 * @return the file paths, relative to the audio directory.
+	 */
+	public synchronized List<String> getNames() {
+		return new ArrayList<String>(entries.keySet());
+	}
+	
+	/**
+	 * Returns the catalog entry of a file.
+	 * @param name the file path, relative to the audio directory.
+	 * @return the entry of the file, or <code>null</code> if it isn't in the catalog.
+	 */
+	public synchronized Entry get(String name) {
+		return entries.get(name);
+	}
+	
+	/**
+	 * Adds or replaces the catalog entry of a file.
+	 * @param name the file path, relative to the audio directory.
+	 * @param file the file itself, whose size and last modified time are recorded.
+	 * @param tagsFile the sidecar tags file of the file, whose last modified time is recorded. It doesn't have to exist.
+	 * @param trackInfo the metadata of the file.
+	 * @param tags the tags read from the sidecar tags file.
+	 */
+	public synchronized void put(String name, File file, File tagsFile, TrackInfo trackInfo, List<String> tags) {
+		entries.put(name, new Entry(file.length(), file.lastModified(), tagsFile.lastModified(), trackInfo, tags));
+		dirty = true;
+	}
+	
+	/**
+	 * Removes the catalog entry of a file.
+	 * @param name the file path, relative to the audio directory.
+	 */
+	public synchronized void remove(String name) {
+		if (entries.remove(name) != null)
+			dirty = true;
+	}
+	
+	/**
+	 * Removes every entry whose name isn't in a given collection, such as files that have been deleted. The names are 
+	 * copied into a set first, so this takes linear time however many there are.
+	 * @param names the names to keep.
+	 */
+	public synchronized void retain(Collection<String> names) {
+		if (entries.keySet().retainAll(new HashSet<String>(names)))
+			dirty = true;
+	}
+}
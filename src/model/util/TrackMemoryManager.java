@@ -0,0 +1,271 @@
+package model.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import model.Track;
+
+/**
+ * Keeps decoded tracks in memory so that they can be shared and played again without decoding them again, while 
+ * capping how much memory their samples take up altogether. Each track is acquired while it is used, such as while it 
+ * plays, and released afterwards. Once the samples of every track held add up to more than the budget, the tracks 
+ * that aren't in use are evicted, least recently used first. An evicted track is simply decoded again the next time it 
+ * is acquired.
+ * 
+ * <p>A track can also be acquired converted to another format, such as the lower sample rate of a low-power mode 
+ * (see {@link Track#convert(float, int)}). It is then converted once when it is decoded, and held apart from the same 
+ * track in other formats.
+ *
+ * <p>A track that couldn't be decoded is handed out empty but never held, so that it is decoded again the next time 
+ * it is acquired rather than staying silent until it is evicted.
+ * 
+ * <p>The budget is 256 MB unless set with the <code>retrorain.pcmBudget</code> system property, in megabytes. Tracks 
+ * in use are never evicted, so the budget can be exceeded while enough of them are playing at once.
+ * 
+ * @author Adam
+ */
+public class TrackMemoryManager {
+	private static final String BUDGET_PROPERTY = "retrorain.pcmBudget";
+	private static final int DEFAULT_BUDGET_MEGABYTES = 256;
+	private static final char FORMAT_SEPARATOR = '\0';
+	
+	private static TrackMemoryManager instance;
+	
+	private Map<String, Entry> entries;
+	private Map<Track, Entry> entriesByTrack;
+	private long budget;
+	private long usedBytes;
+	private long peakBytes;
+	private int loads;
+	private int reloads;
+	private int hits;
+	private int evictions;
+	private Map<String, Set<String>> evicted;
+	
+	/**
+	 * Creates a new <code>TrackMemoryManager</code> instance. Private for the Singleton pattern.
+	 */
+	private TrackMemoryManager() {
+		// Iterating an access-ordered map visits the least recently used tracks first.
+		entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+		budget = Integer.getInteger(BUDGET_PROPERTY, DEFAULT_BUDGET_MEGABYTES) * 1024L * 1024L;
+		entriesByTrack = new IdentityHashMap<Track, Entry>();
+		evicted = new HashMap<String, Set<String>>();
+	}
+	
+	/**
+	 * Returns the Singleton instance of this class.
+	 * @return the single <code>TrackMemoryManager</code> instance.
+	 */
+	public static synchronized TrackMemoryManager get() {
+		if (instance == null)
+			instance = new TrackMemoryManager();
+		return instance;
+	}
+	
+	/**
+	 * Sets how much memory the samples of the tracks held may take up before tracks are evicted. Tracks are evicted 
+	 * right away if they no longer fit.
+	 * @param budget the budget in bytes.
+	 */
+	public synchronized void setBudget(long budget) {
+		if (budget < 0)
+			throw new IllegalArgumentException("budget must not be negative");
+		this.budget = budget;
+		evict();
+	}
+	
+	/**
+	 * Returns a decoded track for use, as it was decoded. See {@link #acquire(String, float, int, Supplier)}.
+	 * @param key what identifies the track, such as the identifier of its audio file.
+	 * @param loader decodes the track. Invoked on the calling thread.
+	 * @return the decoded <code>Track</code>.
+	 */
+	public Track acquire(String key, Supplier<Track> loader) {
+		return acquire(key, 0, 0, loader);
+	}
+	
+	/**
+	 * Returns a decoded track for use in a given format, decoding and converting it if it isn't held in that format. 
+	 * If another thread is already decoding it, this waits for that instead of decoding it twice. Every track acquired 
+	 * must be released once it is no longer used.
+	 * @param key what identifies the track, such as the identifier of its audio file.
+	 * @param sampleRate the sample rate to convert the track to, or 0 to keep the rate it was decoded at.
+	 * @param channels the amount of channels to convert the track to. Ignored if the sample rate is 0.
+	 * @param loader decodes the track. Invoked on the calling thread.
+	 * @return the decoded <code>Track</code>.
+	 */
+	public Track acquire(String key, float sampleRate, int channels, Supplier<Track> loader) {
+		if (sampleRate == 0)
+			channels = 0;
+		String variantKey = key + FORMAT_SEPARATOR + sampleRate + "/" + channels;
+		Entry entry;
+		boolean load = false;
+		synchronized (this) {
+			entry = entries.get(variantKey);
+			if (entry == null) {
+				entry = new Entry(key);
+				entries.put(variantKey, entry);
+				load = true;
+				Set<String> evictedVariants = evicted.get(key);
+				if (evictedVariants != null && evictedVariants.remove(variantKey)) {
+					reloads++;
+					if (evictedVariants.isEmpty())
+						evicted.remove(key);
+				} else
+					loads++;
+			} else {
+				hits++;
+			}
+			entry.users++;
+		}
+		
+		if (load) {
+			Track track;
+			try {
+				track = loader.get();
+				if (sampleRate != 0 && track.isDecoded())
+					track = track.convert(sampleRate, channels);
+			} catch (RuntimeException e) {
+				synchronized (this) {
+					if (entries.get(variantKey) == entry)
+						entries.remove(variantKey);
+				}
+				entry.loaded.completeExceptionally(e);
+				throw e;
+			}
+			synchronized (this) {
+				entry.track = track;
+				if (entries.get(variantKey) == entry) {
+					if (track.isDecoded()) {
+						entriesByTrack.put(track, entry);
+						addUsedBytes(track.getByteCount());
+					} else
+						entries.remove(variantKey);
+				}
+				evict();
+			}
+			entry.loaded.complete(track);
+		}
+		return entry.loaded.join();
+	}
+	
+	/**
+	 * Releases a track that was acquired, which lets it be evicted once no one else is using it.
+	 * @param key what identifies the track.
+	 * @param track the track that was acquired. Nothing happens if the key has since been removed.
+	 */
+	public synchronized void release(String key, Track track) {
+		Entry entry = entriesByTrack.get(track);
+		if (entry != null && entry.key.equals(key)) {
+			entry.users--;
+			evict();
+		}
+	}
+	
+	/**
+	 * Forgets a track in every format, such as when its audio file has changed or been removed, so that it is decoded 
+	 * again the next time it is acquired. Anyone still using the track may go on using it, but it no longer counts 
+	 * against the budget.
+	 * @param key what identifies the track.
+	 */
+	public synchronized void remove(String key) {
+		evicted.remove(key);
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if (entry.key.equals(key)) {
+				iterator.remove();
+				if (entry.track != null) {
+					entriesByTrack.remove(entry.track);
+					usedBytes -= entry.track.getByteCount();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Formats how much memory the tracks take up and how often they were decoded or evicted, for display.
+	 * @return the lines of text.
+	 */
+	public synchronized List<String> toLines() {
+		int inUse = 0;
+		for (Entry entry : entries.values()) {
+			if (entry.users > 0)
+				inUse++;
+		}
+		List<String> lines = new ArrayList<String>();
+		lines.add(String.format("used       %.1f / %.1f MB", usedBytes / 1048576.0, budget / 1048576.0));
+		lines.add(String.format("peak       %.1f MB", peakBytes / 1048576.0));
+		lines.add(String.format("tracks     %d (%d in use)", entries.size(), inUse));
+		lines.add(String.format("loads      %d (%d reloads)", loads + reloads, reloads));
+		lines.add(String.format("hits       %d", hits));
+		lines.add(String.format("evictions  %d", evictions));
+		return lines;
+	}
+	
+	/**
+	 * Adds to the memory taken up by the tracks held, keeping track of the peak.
+	 * @param bytes how many bytes to add.
+	 */
+	private void addUsedBytes(long bytes) {
+		usedBytes += bytes;
+		peakBytes = Math.max(peakBytes, usedBytes);
+	}
+	
+	/**
+	 * Evicts tracks that aren't in use, least recently used first, until the tracks held fit the budget or only tracks 
+	 * in use are left.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while (usedBytes > budget && iterator.hasNext()) {
+			Map.Entry<String, Entry> mapEntry = iterator.next();
+			Entry entry = mapEntry.getValue();
+			if (entry.users > 0 || entry.track == null)
+				continue;
+			
+			// The samples are freed once nothing refers to the track anymore.
+			iterator.remove();
+			entriesByTrack.remove(entry.track);
+			usedBytes -= entry.track.getByteCount();
+			evictions++;
+			Set<String> evictedVariants = evicted.get(entry.key);
+			if (evictedVariants == null) {
+				evictedVariants = new HashSet<String>();
+				evicted.put(entry.key, evictedVariants);
+			}
+			evictedVariants.add(mapEntry.getKey());
+		}
+	}
+	
+	/**
+	 * Represents a single track held in memory.
+	 * 
+	 * @author Adam
+	 */
+	private static class Entry {
+		private String key;
+		private Track track;
+		private int users;
+		private CompletableFuture<Track> loaded;
+		
+		/**
+		 * Creates a new <code>Entry</code> for a track that is about to be decoded.
+		 * @param key what identifies the track.
+		 */
+		public Entry(String key) {
+			this.key = key;
+			loaded = new CompletableFuture<Track>();
+		}
+	}
+}
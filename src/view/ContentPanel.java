@@ -1,91 +1,167 @@
 package view;
 
-import java.awt.Dimension;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.event.ActionEvent;
 import java.awt.event.AdjustmentEvent;
-import java.awt.event.ComponentAdapter;
-import java.awt.event.ComponentEvent;
 import java.awt.event.MouseWheelEvent;
 import java.util.ArrayList;
+import java.util.Collections;
 
 import javax.swing.DefaultBoundedRangeModel;
+import javax.swing.JComponent;
 import javax.swing.JPanel;
 import javax.swing.JScrollBar;
-import javax.swing.SpringLayout;
+import javax.swing.RepaintManager;
+import javax.swing.event.ChangeEvent;
 
+import model.SearchIndex;
+import model.Waveform;
 import view.util.CustomScrollbar;
 import view.util.CustomScrollbarUI;
+import view.util.DirectLayout;
 import view.util.GUIConstants;
 
 /**
- * Represents a visual container for <code>UserSelectionPanel</code> objects.
+ * Represents a visual container for user selections. The user selections can be filtered, which hides the ones that 
+ * don't match rather than removing them.
  * 
+ * <p>The list is virtualized: the state of every user selection lives in a {@link UserSelectionModel}, and only enough 
+ * <code>UserSelectionPanel</code> objects to fill the visible area are created. As the list scrolls, those panels are 
+ * bound to whichever user selections are in their rows. Scrolling copies what is already on screen and paints only the 
+ * strip scrolling into view. Pressing a user selection's control button fires a <code>userSelectionToggled</code> 
+ * property change, and moving its volume slider fires <code>userSelectionVolumeChanged</code>; both carry the name of 
+ * the user selection.
+ *
  * @author Adam
  */
 @SuppressWarnings("serial")
 public class ContentPanel extends JPanel {
-	private SpringLayout layout;
-	
-	private ArrayList<UserSelectionPanel> userSelections;
+	private UserSelectionModel model;
+	private ArrayList<UserSelectionPanel> rows;
 	private CustomScrollbar scrollbar;
 	private int scrollOffset;
 	private int selectionsHeight;
 	private int viewableHeight;
+	private int boundFirstRow;
+	private boolean binding;
+	private boolean placingScrollbar;
 	
 	/**
 	 * Creates a new <code>ContentPanel</code> instance.
 	 */
 	public ContentPanel() {
-		layout = new SpringLayout();
-		setLayout(layout);
+		setLayout(new DirectLayout(() -> onPanelResized()));
 		setFocusable(false);
 		setBackground(GUIConstants.COLOR_SECONDARY);
 		
-		userSelections = new ArrayList<UserSelectionPanel>();
+		model = new UserSelectionModel();
+		rows = new ArrayList<UserSelectionPanel>();
 		setupEventHandling();
 	}
 	
 	/**
-	 * Adds a new user selection to this panel.
+	 * Returns true so that adding, removing, or filtering user selections only lays out this panel rather than the 
+	 * whole window. The size of this panel never depends on its contents.
+	 */
+	@Override
+	public boolean isValidateRoot() {
+		return true;
+	}
+	
+	/**
+	 * Returns the state of every user selection in this panel.
+	 * @return the <code>UserSelectionModel</code> of this panel.
+	 */
+	public UserSelectionModel getModel() {
+		return model;
+	}
+	
+	/**
+	 * Adds a new user selection to this panel. User selections are kept in alphabetical order of their names, no matter 
+	 * the order they are added in. Nothing happens if a user selection with the same name already exists.
 	 * 
 	 * <p>If enough user selections are added to the panel in that not all of the user selections can be fully seen, 
-	 * then a scrollbar is added.
-	 * @param userSelection the <code>UserSelectionPanel</code> object to add to this panel.
+	 * then a scrollbar is added. Adding many user selections in a row only updates the panel once.
+	 * @param name the name of the user selection.
+	 */
+	public void addUserSelection(String name) {
+		if (model.add(name))
+			onUserSelectionsChanged();
+	}
+	
+	/**
+	 * Removes a user selection from this panel, removing the scrollbar too if it is no longer needed.
+	 * @param name the name of the user selection.
+	 */
+	public void removeUserSelection(String name) {
+		if (model.remove(name))
+			onUserSelectionsChanged();
+	}
+	
+	/**
+	 * Determines whether this panel has a user selection with the given name.
+	 * @param name the name of the user selection.
+	 * @return true if the user selection exists, false otherwise.
+	 */
+	public boolean containsUserSelection(String name) {
+		return model.contains(name);
+	}
+	
+	/**
+	 * Sets whether a user selection is shown as playing.
+	 * @param name the name of the user selection.
+	 * @param playing true if the user selection is playing, false otherwise.
 	 */
-	public void addUserSelection(UserSelectionPanel userSelection) {
-		userSelections.add(userSelection);
-		add(userSelection);
-		firePropertyChange("userSelectionAdded", null, userSelection);
-		onUserSelectionAdded();
+	public void setUserSelectionPlaying(String name, boolean playing) {
+		model.setPlaying(name, playing);
+		bindRows();
+	}
+	
+	/**
+	 * Sets the waveform shown behind a user selection's name.
+	 * @param name the name of the user selection.
+	 * @param waveform the waveform of the user selection's audio file.
+	 */
+	public void setUserSelectionWaveform(String name, Waveform waveform) {
+		model.setWaveform(name, waveform);
+		bindRows();
+	}
+	
+	/**
+	 * Shows only the user selections whose names are in a given set, hiding the rest. Hidden user selections keep their 
+	 * state, so a playing one keeps playing and reappears as it was once the filter changes.
+	 * @param names the names of the user selections to show, or <code>null</code> to show all of them.
+	 */
+	public void setFilter(SearchIndex.Result names) {
+		model.setFilter(names);
+		scrollOffset = 0;
+		onUserSelectionsChanged();
 	}
 	
 	/**
 	 * Sets up some of the events that this panel will need to recieve or notify about.
 	 */
 	private void setupEventHandling() {
-		// The event that this panel has been resized.
-		addComponentListener(new ComponentAdapter() {
-			@Override
-			public void componentResized(ComponentEvent e) {
-				onPanelResized();
-			}
-		});
-		
 		// The event that the user has scrolled the mouse wheel over this panel.
 		addMouseWheelListener((MouseWheelEvent e) -> onMouseWheelRotated(e.getWheelRotation()));
 	}
 	
 	/**
-	 * The actions to be performed whenever a user selection is added.
+	 * The actions to be performed whenever user selections are added, removed, or filtered. The panel is only marked as 
+	 * needing layout; Swing lays it out once before the next paint, so that loading a large library doesn't lay out the 
+	 * panel per file.
 	 */
-	private void onUserSelectionAdded() {
-		onPanelResized(); // As of now there is no distinction between the two so we'll reuse this.
+	private void onUserSelectionsChanged() {
+		revalidate();
+		repaint();
 	}
 	
 	/**
-	 * The actions to be performed whenever this panel is resized.
+	 * The actions to be performed whenever this panel is laid out. Invoked by the panel's <code>DirectLayout</code>.
 	 */
 	private void onPanelResized() {
-		selectionsHeight = userSelections.size() * UserSelectionPanel.PANEL_HEIGHT;
+		selectionsHeight = model.getVisibleCount() * UserSelectionPanel.PANEL_HEIGHT;
 		viewableHeight = getHeight();
 		
 		// Remove the current scrollbar from the panel if it exists and isn't needed anymore.
@@ -97,11 +173,12 @@ public class ContentPanel extends JPanel {
 				createScrollbar();
 			
 			// Place the scrollbar and "poke" it to get rid of visual glitches.
+			placingScrollbar = true;
 			placeScrollbar();
 			pokeScrollbar();
+			placingScrollbar = false;
 		}
 		placeUserSelections();
-		revalidate();
 	}
 	
 	/**
@@ -110,7 +187,7 @@ public class ContentPanel extends JPanel {
 	 */
 	private void onMouseWheelRotated(int rotation) {
 		if (scrollbar != null) {
-			final int ROTATION_MULTIPLIER = 15;
+			final int ROTATION_MULTIPLIER = GUIConstants.scale(15);
 			int offset = rotation * ROTATION_MULTIPLIER;
 			int newValue = scrollbar.getValue() + offset;
 			if (newValue < 0)
@@ -122,29 +199,79 @@ public class ContentPanel extends JPanel {
 	}
 	
 	/**
-	 * Places the user selections in their correct spot, accounting for the scroll offset.
+	 * Places the row panels in their correct spot, accounting for the scroll offset, and binds each one to the user 
+	 * selection in its row. Enough row panels are created to cover the visible area, even when it is scrolled part way 
+	 * through a row.
 	 * 
+	 * <p>Row panels that stay on screen keep their user selection. Only the ones that scrolled out of view are moved to 
+	 * the other end of the list and bound to the user selections scrolling into view.
+	 *
 	 * <p>Note that this also accounts for whether or not the scrollbar exists. Any scrollbar creation or deletion 
 	 * should occur before this method is invoked.
 	 */
 	private void placeUserSelections() {
-		int yOffset = 0;
+		int rowsNeeded = (viewableHeight / UserSelectionPanel.PANEL_HEIGHT) + 2;
+		while (rows.size() < rowsNeeded)
+			createRow();
+		
+		int scroll = (scrollbar != null) ? scrollOffset : 0;
+		int firstRow = scroll / UserSelectionPanel.PANEL_HEIGHT;
+		int shift = firstRow - boundFirstRow;
+		if (shift != 0 && Math.abs(shift) < rows.size())
+			Collections.rotate(rows, -shift);
+		boundFirstRow = firstRow;
+		int yOffset = (firstRow * UserSelectionPanel.PANEL_HEIGHT) - scroll;
+		int widthOffset = 0;
 		if (scrollbar != null)
-			yOffset = -scrollOffset;
+			widthOffset = -scrollbar.getPreferredSize().width;
 		
-		for (UserSelectionPanel userSelection : userSelections) {
-			int widthOffset = 0;
-			if (scrollbar != null)
-				widthOffset = -scrollbar.getPreferredSize().width;
-			
-			layout.putConstraint(SpringLayout.NORTH, userSelection, yOffset, SpringLayout.NORTH, this);
-			layout.putConstraint(SpringLayout.WEST, userSelection, 0, SpringLayout.WEST, this);
-			Dimension size = new Dimension(getWidth() + widthOffset, UserSelectionPanel.PANEL_HEIGHT);
-			userSelection.setSize(size);
-			userSelection.setPreferredSize(size);			
-			
+		for (UserSelectionPanel row : rows) {
+			row.setBounds(0, yOffset, getWidth() + widthOffset, UserSelectionPanel.PANEL_HEIGHT);
 			yOffset += UserSelectionPanel.PANEL_HEIGHT;
 		}
+		bindRows();
+	}
+	
+	/**
+	 * Binds each row panel to the user selection currently in its row, hiding row panels that are past the end of the 
+	 * list.
+	 */
+	private void bindRows() {
+		int firstRow = ((scrollbar != null) ? scrollOffset : 0) / UserSelectionPanel.PANEL_HEIGHT;
+		int count = model.getVisibleCount();
+		binding = true;
+		for (int i = 0; i < rows.size(); i++) {
+			UserSelectionPanel row = rows.get(i);
+			int index = firstRow + i;
+			if (index < count) {
+				String name = model.getVisibleName(index);
+				row.bind(name, model.getVolume(name), model.isPlaying(name), model.getWaveform(name));
+			}
+			if (row.isVisible() != (index < count))
+				row.setVisible(index < count);
+		}
+		binding = false;
+	}
+	
+	/**
+	 * Creates a row panel and adds it to this panel. Its control button and volume slider act on whichever user 
+	 * selection the row is bound to at the time.
+	 */
+	private void createRow() {
+		UserSelectionPanel row = new UserSelectionPanel();
+		row.getControlButton().addActionListener((ActionEvent e) -> 
+				firePropertyChange("userSelectionToggled", null, row.getNameLabel().getText()));
+		row.getVolumeSlider().addChangeListener((ChangeEvent e) -> {
+			if (binding)
+				return;
+			
+			String name = row.getNameLabel().getText();
+			model.setVolume(name, row.getVolumeSlider().getValue());
+			firePropertyChange("userSelectionVolumeChanged", null, name);
+		});
+		rows.add(row);
+		add(row);
+		firePropertyChange("userSelectionAdded", null, row);
 	}
 	
 	/**
@@ -179,11 +306,8 @@ public class ContentPanel extends JPanel {
 			scrollOffset = (selectionsHeight - viewableHeight);
 		scrollbar.setModel(new DefaultBoundedRangeModel(scrollOffset, viewableHeight, 0, selectionsHeight));
 		
-		Dimension size = new Dimension(scrollbar.getPreferredSize().width, getHeight());
-		scrollbar.setSize(size);
-		scrollbar.setPreferredSize(size);
-		layout.putConstraint(SpringLayout.NORTH, scrollbar, 0, SpringLayout.NORTH, this);
-		layout.putConstraint(SpringLayout.EAST, scrollbar, 0, SpringLayout.EAST, this);
+		int width = scrollbar.getPreferredSize().width;
+		scrollbar.setBounds(getWidth() - width, 0, width, getHeight());
 	}
 	
 	/**
@@ -203,12 +327,60 @@ public class ContentPanel extends JPanel {
 	}
 	
 	/**
-	 * The actions to be performed whenever the scrollbar is used.
+	 * The actions to be performed whenever the scrollbar is used. Only the row panels move, so nothing needs to be 
+	 * validated.
 	 */
 	private void onScrollbarUsed() {
+		int delta = scrollbar.getValue() - scrollOffset;
 		scrollOffset = scrollbar.getValue();
-		scrollbar.revalidate();
+		if (placingScrollbar || !blitScroll(delta))
+			placeUserSelections();
+	}
+	
+	/**
+	 * Scrolls the row panels by copying the part of the panel that stays in view and painting only the strip that 
+	 * scrolls into view, much like the blit scroll mode of <code>JViewport</code>. The strip is painted with 
+	 * <code>paintImmediately</code>, so that it goes through the <code>RepaintManager</code>'s back buffer and reaches 
+	 * the screen in one piece rather than one component at a time. The row panels are still moved, but the repaints 
+	 * that moving them asks for are dropped, since the panel is already up to date on screen.
+	 * 
+	 * <p>This only works when the panel is on screen and nothing is painted over top of it, such as the diagnostics 
+	 * overlay. Otherwise the panel has to be repainted normally.
+	 * @param delta how many pixels the panel was scrolled by, where a positive amount scrolls down.
+	 * @return true if the panel was scrolled, false if it needs to be repainted normally instead.
+	 */
+	private boolean blitScroll(int delta) {
+		if (delta == 0 || Math.abs(delta) >= viewableHeight || !isShowing())
+			return false;
+		if (!(getParent() instanceof JComponent) || !((JComponent)getParent()).isOptimizedDrawingEnabled())
+			return false;
+		Graphics graphics = getGraphics();
+		if (graphics == null)
+			return false;
+		
+		// Anything already waiting to be painted has to reach the screen before it is copied.
+		RepaintManager repaintManager = RepaintManager.currentManager(this);
+		repaintManager.paintDirtyRegions();
 		placeUserSelections();
-		revalidate();
+		
+		int width = getWidth() - scrollbar.getWidth();
+		try {
+			graphics.clipRect(0, 0, width, viewableHeight);
+			if (delta > 0)
+				graphics.copyArea(0, delta, width, viewableHeight - delta, 0, -delta);
+			else
+				graphics.copyArea(0, 0, width, viewableHeight + delta, 0, -delta);
+		} finally {
+			graphics.dispose();
+		}
+		paintImmediately(0, (delta > 0) ? viewableHeight - delta : 0, width, Math.abs(delta));
+		
+		repaintManager.markCompletelyClean(this);
+		for (UserSelectionPanel row : rows) {
+			repaintManager.markCompletelyClean(row);
+			for (Component component : row.getComponents())
+				repaintManager.markCompletelyClean((JComponent)component);
+		}
+		return true;
 	}
 }
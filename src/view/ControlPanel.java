@@ -2,16 +2,15 @@ package view;
 
 import java.awt.Dimension;
 import java.awt.Graphics;
-import java.awt.event.ComponentAdapter;
-import java.awt.event.ComponentEvent;
 
-import javax.swing.JLabel;
 import javax.swing.JPanel;
-import javax.swing.SpringLayout;
 
+import view.util.ChromeCache;
 import view.util.ControlButton;
 import view.util.CustomSlider;
+import view.util.DirectLayout;
 import view.util.GUIConstants;
+import view.util.PixelLabel;
 import view.util.ViewResources;
 
 /**
@@ -22,22 +21,21 @@ import view.util.ViewResources;
  */
 @SuppressWarnings("serial")
 public class ControlPanel extends JPanel {
-	private static final int PANEL_HEIGHT = 30;
+	private static final int PANEL_HEIGHT = GUIConstants.scale(30);
 	
-	private SpringLayout layout;
-	
-	private JLabel label;
+	private PixelLabel label;
 	private ControlButton controlButton;	
 	private CustomSlider volumeSlider;
+	private ChromeCache chrome;
 	
 	/**
 	 * Constructs a <code>ControlPanel</code> and all of its subcomponents.
 	 */
 	public ControlPanel() {
-		layout = new SpringLayout();
-		setLayout(layout);
+		setLayout(new DirectLayout(() -> onPanelResized()));
 		setFocusable(false);
 		setBackground(GUIConstants.COLOR_SECONDARY);
+		chrome = new ChromeCache(this, graphics -> drawOutline(graphics));
 		
 		Dimension startSize = new Dimension(0, PANEL_HEIGHT);
 		setSize(startSize);
@@ -46,14 +44,13 @@ public class ControlPanel extends JPanel {
 		createLabel();
 		createControlButton();
 		createVolumeSlider();
-		setupEventHandling();
 	}
 	
 	/**
 	 * Returns the selection label.
-	 * @return the <code>JLabel</code> representing the selection label.
+	 * @return the <code>PixelLabel</code> representing the selection label.
 	 */
-	public JLabel getLabel() {
+	public PixelLabel getLabel() {
 		return label;
 	}
 	
@@ -75,7 +72,14 @@ public class ControlPanel extends JPanel {
 	
 	@Override
 	public void paintComponent(Graphics graphics) {
-		super.paintComponent(graphics);
+		chrome.paint(graphics);
+	}
+	
+	/**
+	 * Paints the outline along the top edge of the panel.
+	 * @param graphics the graphics context.
+	 */
+	private void drawOutline(Graphics graphics) {
 		graphics.setColor(GUIConstants.COLOR_OUTLINE);
 		graphics.fillRect(0, 0, getWidth(), GUIConstants.SIZE_THUMB_EDGE);
 	}
@@ -84,9 +88,9 @@ public class ControlPanel extends JPanel {
 	 * Creates and adds the selection label to this panel.
 	 */
 	private void createLabel() {
-		label = new JLabel("master controls");
+		label = new PixelLabel("master controls");
 		label.setForeground(GUIConstants.COLOR_OUTLINE);
-		label.setFont(ViewResources.get().getFont("prstart.ttf").deriveFont(9.0f));
+		label.setFont(ViewResources.get().getFont("prstart.ttf", 9.0f));
 		add(label);
 	}
 	
@@ -107,27 +111,13 @@ public class ControlPanel extends JPanel {
 	}
 	
 	/**
-	 * Subscribes to events that this panel will need.
-	 */
-	private void setupEventHandling() {
-		// The event that this panel was resized.
-		addComponentListener(new ComponentAdapter() {
-			@Override
-			public void componentResized(ComponentEvent e) {
-				onPanelResized();
-			}
-		});
-	}
-	
-	/**
-	 * Places the selection label, control button, and volume slider in their correct spots and revalidates the panel. 
-	 * This method should be invoked whenever the panel is resized.
+	 * Places the selection label, control button, and volume slider in their correct spots. Invoked by the panel's 
+	 * <code>DirectLayout</code> whenever the panel is resized.
 	 */
 	private void onPanelResized() {
 		placeLabel();
 		placeControlButton();
 		placeVolumeSlider();
-		revalidate();
 	}
 	
 	/**
@@ -137,12 +127,7 @@ public class ControlPanel extends JPanel {
 		int x = GUIConstants.SIZE_PADDING;
 		int y = (getHeight() / 2) - (label.getFont().getSize() / 2) + GUIConstants.SIZE_THUMB_EDGE;
 		int width = (getWidth() / 2) - (controlButton.getWidth() / 2) - (GUIConstants.SIZE_PADDING * 2);
-		
-		Dimension size = new Dimension(width, label.getFont().getSize());
-		label.setSize(size);
-		label.setPreferredSize(size);
-		layout.putConstraint(SpringLayout.WEST, label, x, SpringLayout.WEST, this);
-		layout.putConstraint(SpringLayout.NORTH, label, y, SpringLayout.NORTH, this);
+		label.setBounds(x, y, width, label.getFont().getSize());
 	}
 	
 	/**
@@ -151,8 +136,7 @@ public class ControlPanel extends JPanel {
 	private void placeControlButton() {
 		int x = (getWidth() / 2) - (controlButton.getWidth() / 2);
 		int y = (getHeight() / 2) - (controlButton.getHeight() / 2) + GUIConstants.SIZE_THUMB_EDGE;
-		layout.putConstraint(SpringLayout.WEST, controlButton, x, SpringLayout.WEST, this);
-		layout.putConstraint(SpringLayout.NORTH, controlButton, y, SpringLayout.NORTH, this);
+		controlButton.setLocation(x, y);
 	}
 	
 	/**
@@ -160,7 +144,6 @@ public class ControlPanel extends JPanel {
 	 */
 	private void placeVolumeSlider() {
 		int y = (getHeight() / 2) - (volumeSlider.getHeight() / 2) + GUIConstants.SIZE_THUMB_EDGE;
-		layout.putConstraint(SpringLayout.EAST, volumeSlider, -GUIConstants.SIZE_PADDING, SpringLayout.EAST, this);
-		layout.putConstraint(SpringLayout.NORTH, volumeSlider, y, SpringLayout.NORTH, this);
+		volumeSlider.setLocation(getWidth() - volumeSlider.getWidth() - GUIConstants.SIZE_PADDING, y);
 	}
 }
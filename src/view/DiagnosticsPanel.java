@@ -0,0 +1,144 @@
+package view;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.event.ActionEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.swing.JPanel;
+import javax.swing.Timer;
+
+import view.util.ChromeCache;
+import view.util.GUIConstants;
+import view.util.ViewResources;
+
+/**
+ * Represents an optional overlay that displays diagnostic statistics over top of the content panel. The statistics are 
+ * organized into titled sections, each of which supplies its own lines of text. While visible, the panel refreshes 
+ * itself a few times per second.
+ * 
+ * @author Adam
+ */
+@SuppressWarnings("serial")
+public class DiagnosticsPanel extends JPanel {
+	private static final int REFRESH_MILLIS = 250;
+	private static final int PANEL_WIDTH = GUIConstants.scale(230);
+	private static final int LINE_HEIGHT = GUIConstants.scale(11);
+	
+	private List<String> titles;
+	private List<Supplier<List<String>>> sections;
+	private List<String> lines;
+	private Font font;
+	private ChromeCache chrome;
+	private Timer refreshTimer;
+	private boolean paused;
+	
+	/**
+	 * Creates a new <code>DiagnosticsPanel</code> instance. The panel starts out hidden.
+	 */
+	public DiagnosticsPanel() {
+		setFocusable(false);
+		setBackground(GUIConstants.COLOR_SECONDARY);
+		setVisible(false);
+		
+		titles = new ArrayList<String>();
+		sections = new ArrayList<Supplier<List<String>>>();
+		lines = new ArrayList<String>();
+		font = ViewResources.get().getFont("prstart.ttf", 8.0f);
+		chrome = new ChromeCache(this, graphics -> drawOutline(graphics));
+		refreshTimer = new Timer(REFRESH_MILLIS, (ActionEvent e) -> refresh());
+		updateSize();
+	}
+	
+	/**
+	 * Adds a titled section of statistics to this panel.
+	 * @param title the title of the section.
+	 * @param source supplies the lines of the section each time the panel refreshes.
+	 */
+	public void addSection(String title, Supplier<List<String>> source) {
+		titles.add(title);
+		sections.add(source);
+	}
+	
+	/**
+	 * Shows or hides this panel, starting or stopping its refreshing accordingly.
+	 */
+	@Override
+	public void setVisible(boolean visible) {
+		super.setVisible(visible);
+		if (refreshTimer == null)
+			return;
+		
+		if (visible && !paused) {
+			refresh();
+			refreshTimer.start();
+		} else
+			refreshTimer.stop();
+	}
+	
+	/**
+	 * Pauses or resumes refreshing, such as while the window is minimized and the panel can't be seen anyway. Once 
+	 * resumed, the panel refreshes right away if it is showing.
+	 * @param paused true to stop refreshing, false to refresh again while showing.
+	 */
+	public void setPaused(boolean paused) {
+		this.paused = paused;
+		setVisible(isVisible());
+	}
+	
+	@Override
+	public void paintComponent(Graphics graphics) {
+		chrome.paint(graphics);
+		
+		// Text.
+		graphics.setColor(GUIConstants.COLOR_OUTLINE);
+		graphics.setFont(font);
+		int y = GUIConstants.SIZE_PADDING + LINE_HEIGHT;
+		for (String line : lines) {
+			graphics.drawString(line, GUIConstants.SIZE_PADDING + GUIConstants.SIZE_THUMB_EDGE, y);
+			y += LINE_HEIGHT;
+		}
+	}
+	
+	/**
+	 * Paints the outline around the edges of the panel.
+	 * @param graphics the graphics context.
+	 */
+	private void drawOutline(Graphics graphics) {
+		graphics.setColor(GUIConstants.COLOR_OUTLINE);
+		graphics.fillRect(0, 0, getWidth(), GUIConstants.SIZE_THUMB_EDGE);
+		graphics.fillRect(0, 0, GUIConstants.SIZE_THUMB_EDGE, getHeight());
+		graphics.fillRect(0, getHeight() - GUIConstants.SIZE_THUMB_EDGE, getWidth(), GUIConstants.SIZE_THUMB_EDGE);
+		graphics.fillRect(getWidth() - GUIConstants.SIZE_THUMB_EDGE, 0, GUIConstants.SIZE_THUMB_EDGE, getHeight());
+	}
+	
+	/**
+	 * Gathers fresh lines from every section and repaints the panel.
+	 */
+	private void refresh() {
+		int lineCount = lines.size();
+		lines.clear();
+		for (int i = 0; i < sections.size(); i++) {
+			lines.add("-- " + titles.get(i) + " --");
+			lines.addAll(sections.get(i).get());
+		}
+		
+		if (lines.size() != lineCount)
+			updateSize();
+		repaint();
+	}
+	
+	/**
+	 * Resizes this panel to fit its lines of text.
+	 */
+	private void updateSize() {
+		int height = (lines.size() * LINE_HEIGHT) + (GUIConstants.SIZE_PADDING * 2) + LINE_HEIGHT / 2;
+		Dimension size = new Dimension(PANEL_WIDTH, height);
+		setSize(size);
+		setPreferredSize(size);
+		revalidate();
+	}
+}
@@ -2,12 +2,18 @@ package view;
 
 import java.awt.Dimension;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.WindowEvent;
 
 import javax.swing.JFrame;
+import javax.swing.Timer;
 
+import view.util.AnimationClock;
 import view.util.CursorManager;
+import view.util.GUIConstants;
+import view.util.PowerStats;
+import view.util.Tween;
 import view.util.ViewResources;
 
 /**
@@ -18,11 +24,17 @@ import view.util.ViewResources;
 @SuppressWarnings("serial")
 public class MainUI extends JFrame {
 	private static final String TITLE = "RetroRain";
-	private static final int MINIMUM_WIDTH = 400;
-	private static final int MINIMUM_HEIGHT = 250;
+	private static final int MINIMUM_WIDTH = GUIConstants.scale(400);
+	private static final int MINIMUM_HEIGHT = GUIConstants.scale(250);
+	private static final int MINIMIZE_MILLIS = 70;
 	
 	private OverlayPanel overlayPanel;
 	
+	private Timer frameTimer;
+	private Point pendingLocation;
+	private Rectangle pendingBounds;
+	private Tween minimizeTween;
+	
 	private CursorManager cursorManager;
 	
 	/**
@@ -45,6 +57,8 @@ public class MainUI extends JFrame {
 		setIcon();
 		createOverlayPanel();
 		createCursorManager();
+		createFrameTimer();
+		createMinimizeTween();
 		setupEventHandling();
 		
 		pack();
@@ -82,6 +96,25 @@ public class MainUI extends JFrame {
 		cursorManager.start();
 	}
 	
+	/**
+	 * Creates the timer that moves and resizes the window at most once per display frame, no matter how many mouse 
+	 * events arrive in between.
+	 */
+	private void createFrameTimer() {
+		frameTimer = new Timer(AnimationClock.get().getFrameMillis(), (ActionEvent e) -> applyPendingBounds());
+		frameTimer.setRepeats(false);
+	}
+	
+	/**
+	 * Creates the tween that fades the window out before it is minimized.
+	 */
+	private void createMinimizeTween() {
+		minimizeTween = new Tween(MINIMIZE_MILLIS, progress -> setOpacity((float)(1 - progress)), () -> {
+			setExtendedState(JFrame.ICONIFIED);
+			setOpacity(1.0f);
+		});
+	}
+	
 	/**
 	 * Sets up the events that the main UI will have to work with.
 	 */
@@ -92,75 +125,114 @@ public class MainUI extends JFrame {
 			Point extendedInfo = (Point)propertyChange.getNewValue();
 			onWindowExtended(extendedInfo.x, extendedInfo.y);
 		});
+		overlayPanel.addPropertyChangeListener("overlayReleased", propertyChange -> onWindowExtendEnded());
 		overlayPanel.getToolbarPanel().getMinimizeButton().addActionListener((ActionEvent e) -> minimize());
 		overlayPanel.getToolbarPanel().getExitButton().addActionListener((ActionEvent e) -> close());
+		addWindowStateListener((WindowEvent e) -> onWindowStateChanged(e));
 	}
 	
 	/**
-	 * Handles the logic for when the window is being dragged around the screen.
+	 * Handles the logic for when the window is minimized or restored. Nothing in the UI can be seen while the window 
+	 * is minimized, so animations and the diagnostics overlay are paused until it is restored. A 
+	 * <code>windowHidden</code> property change is then fired so that other work meant for the UI can wait as well.
+	 * @param e the window event describing the old and new state.
+	 */
+	private void onWindowStateChanged(WindowEvent e) {
+		boolean wasHidden = (e.getOldState() & JFrame.ICONIFIED) != 0;
+		boolean hidden = (e.getNewState() & JFrame.ICONIFIED) != 0;
+		if (hidden == wasHidden)
+			return;
+		
+		AnimationClock.get().setPaused(hidden);
+		overlayPanel.getDiagnosticsPanel().setPaused(hidden);
+		PowerStats.get().setHidden(hidden);
+		firePropertyChange("windowHidden", wasHidden, hidden);
+	}
+	
+	/**
+	 * Handles the logic for when the window is being dragged around the screen. The window is moved on the next frame.
 	 * @param offset the (x, y) pair of how much the window should move.
 	 */
 	private void onWindowDragged(Point offset) {
-		Point newLocation = new Point((int)(getLocation().getX() + offset.getX()), (int)(getLocation().getY() + 
-				offset.getY()));
-		setLocation(newLocation);
+		// The offset is relative to where the window is now, so it replaces any move that hasn't happened yet.
+		pendingLocation = new Point(getX() + offset.x, getY() + offset.y);
+		scheduleFrame();
 	}
 	
 	/**
-	 * Handles the logic for when the window is being extended.
+	 * Handles the logic for when the window is being extended. The window is resized on the next frame, and until the 
+	 * user lets go, the overlay panel shows a snapshot of itself instead of being laid out for every frame.
 	 * @param direction the direction of the extension.
 	 * @param amount how much the window should extend in the given direction.
 	 */
 	private void onWindowExtended(int direction, int amount) {
-		// Extend up.
-		if (direction == OverlayPanel.DIRECTION_UP) {
-			if (getPreferredSize().height + amount < MINIMUM_HEIGHT)
-				amount = 0;
-			setPreferredSize(new Dimension(getPreferredSize().width, getPreferredSize().height + amount));
-			setLocation(new Point(getLocation().x, getLocation().y - amount));
+		if (pendingBounds == null) {
+			pendingBounds = getBounds();
+			overlayPanel.setShowingSnapshot(true);
 		}
-		// Extend left.
-		if (direction == OverlayPanel.DIRECTION_LEFT) {
-			if (getPreferredSize().width + amount < MINIMUM_WIDTH)
-				amount = 0;
-			setPreferredSize(new Dimension(getPreferredSize().width + amount, getPreferredSize().height));
-			setLocation(new Point(getLocation().x - amount, getLocation().y));
+		
+		// Extending up or left is relative to where the window is now, so it replaces any resizing that hasn't
+		// happened yet. Extending down or right is relative to the previous mouse event, so it adds up.
+		if (direction == OverlayPanel.DIRECTION_UP && getHeight() + amount >= MINIMUM_HEIGHT) {
+			pendingBounds.y = getY() - amount;
+			pendingBounds.height = getHeight() + amount;
 		}
-		// Extend down.
-		if (direction == OverlayPanel.DIRECTION_DOWN) {
-			if (getPreferredSize().height + amount < MINIMUM_HEIGHT)
-				amount = 0;
-			setPreferredSize(new Dimension(getPreferredSize().width, getPreferredSize().height + amount));
+		if (direction == OverlayPanel.DIRECTION_LEFT && getWidth() + amount >= MINIMUM_WIDTH) {
+			pendingBounds.x = getX() - amount;
+			pendingBounds.width = getWidth() + amount;
 		}
-		// Extend right.
-		if (direction == OverlayPanel.DIRECTION_RIGHT) {
-			if (getPreferredSize().width + amount < MINIMUM_WIDTH)
-				amount = 0;
-			setPreferredSize(new Dimension(getPreferredSize().width + amount, getPreferredSize().height));
+		if (direction == OverlayPanel.DIRECTION_DOWN && pendingBounds.height + amount >= MINIMUM_HEIGHT)
+			pendingBounds.height += amount;
+		if (direction == OverlayPanel.DIRECTION_RIGHT && pendingBounds.width + amount >= MINIMUM_WIDTH)
+			pendingBounds.width += amount;
+		scheduleFrame();
+	}
+	
+	/**
+	 * Handles the logic for when the user lets go of the window's edge. The window takes its final size right away and 
+	 * the overlay panel is laid out once.
+	 */
+	private void onWindowExtendEnded() {
+		if (pendingBounds == null)
+			return;
+		
+		frameTimer.stop();
+		applyPendingBounds();
+		pendingBounds = null;
+		setPreferredSize(getSize());
+		overlayPanel.setShowingSnapshot(false);
+	}
+	
+	/**
+	 * Makes sure the pending move or resize happens on the next frame. Further mouse events before then only change 
+	 * what it will be.
+	 */
+	private void scheduleFrame() {
+		if (!frameTimer.isRunning())
+			frameTimer.start();
+	}
+	
+	/**
+	 * Moves or resizes the window to wherever the mouse events since the last frame have asked for.
+	 */
+	private void applyPendingBounds() {
+		if (pendingBounds != null) {
+			if (!pendingBounds.equals(getBounds())) {
+				setBounds(pendingBounds);
+				validate();
+			}
+		} else if (pendingLocation != null) {
+			setLocation(pendingLocation);
+			pendingLocation = null;
 		}
-		pack();
 	}
 	
 	/**
 	 * Minimizes the window by quickly fading out.
 	 */
 	private void minimize() {
-		Thread thread = new Thread(() -> {
-			final float OPACITY_DECREMENT = 0.15f;
-			float opacity = getOpacity();
-			while (opacity > 0.0f) {
-				opacity = Math.max(opacity - OPACITY_DECREMENT, 0);
-				setOpacity(opacity);
-				try {
-					Thread.sleep(10);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-			}
-			setExtendedState(JFrame.ICONIFIED);
-			setOpacity(1.0f);
-		});
-		thread.start();
+		if (!minimizeTween.isRunning())
+			minimizeTween.start();
 	}
 	
 	/**
@@ -1,17 +1,18 @@
 package view;
 
-import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.Image;
 import java.awt.Point;
-import java.awt.event.ComponentAdapter;
-import java.awt.event.ComponentEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
 
 import javax.swing.JPanel;
-import javax.swing.SpringLayout;
 
+import view.util.ChromeCache;
+import view.util.DirectLayout;
 import view.util.GUIConstants;
+import view.util.UIStats;
 
 /**
  * Represents the top-most panel of the UI. This panel is mainly comprised of the toolbar panel and the content panel, 
@@ -31,15 +32,16 @@ public class OverlayPanel extends JPanel {
 	public static final int EXTENDED_VERTICAL = 2;
 	public static final int EXTENDED_BIDIRECTIONAL = 3;
 	
-	private static final int OUTER_BORDER_SIZE = 6;
-	private static final int INNER_BORDER_SIZE = 3;
-	
-	private SpringLayout layout;
+	private static final int OUTER_BORDER_SIZE = GUIConstants.scale(6);
+	private static final int INNER_BORDER_SIZE = GUIConstants.scale(3);
 	
 	private ToolbarPanel toolbarPanel;
 	private ContentPanel contentPanel;
 	private ControlPanel controlPanel;
+	private DiagnosticsPanel diagnosticsPanel;
 	
+	private ChromeCache chrome;
+	private Image snapshot;
 	private boolean leftMouseButtonDown;
 	private Point initialMousePosition;
 	private Point lastMousePosition;
@@ -51,11 +53,16 @@ public class OverlayPanel extends JPanel {
 	 * Constructs a new <code>OverlayPanel</code> instance, also creating the toolbar panel and content panel. 
 	 */
 	public OverlayPanel() {
-		layout = new SpringLayout();
-		setLayout(layout);
+		setLayout(new DirectLayout(() -> onPanelResized()));
 		setFocusable(false);
 		setBackground(GUIConstants.COLOR_SECONDARY);
+		chrome = new ChromeCache(this, graphics -> {
+			drawOuterBorder(graphics);
+			drawInnerBorder(graphics);
+			drawShine(graphics);
+		});
 		
+		createDiagnosticsPanel();
 		createToolbarPanel();
 		createContentPanel();
 		createControlPanel();
@@ -86,6 +93,14 @@ public class OverlayPanel extends JPanel {
 		return controlPanel;
 	}
 	
+	/**
+	 * Returns the diagnostics panel.
+	 * @return the <code>DiagnosticsPanel</code> object representing the diagnostics overlay.
+	 */
+	public DiagnosticsPanel getDiagnosticsPanel() {
+		return diagnosticsPanel;
+	}
+	
 	/**
 	 * Returns the type of extending that occured, if at all, on this panel.
 	 * 
@@ -110,12 +125,78 @@ public class OverlayPanel extends JPanel {
 			return EXTENDED_NONE;
 	}
 	
+	/**
+	 * Sets whether this panel shows a snapshot of how it last looked instead of laying out and painting its children. 
+	 * This is meant for while the window is being resized, so that the panel is only laid out once the user lets go.
+	 * @param showingSnapshot true to take a snapshot and show it, false to go back to laying out and painting normally.
+	 */
+	public void setShowingSnapshot(boolean showingSnapshot) {
+		if (showingSnapshot == (snapshot != null))
+			return;
+		
+		if (showingSnapshot) {
+			Image image = (getGraphicsConfiguration() != null) ? 
+					getGraphicsConfiguration().createCompatibleImage(getWidth(), getHeight()) :
+					new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+			Graphics graphics = image.getGraphics();
+			paint(graphics);
+			graphics.dispose();
+			snapshot = image;
+		} else {
+			snapshot = null;
+			revalidate();
+			repaint();
+		}
+	}
+	
+	/**
+	 * Paints this panel normally, or while a snapshot is being shown, paints the snapshot inside of a border that fits 
+	 * the panel's current size. The time taken is recorded while the UI is being timed.
+	 */
 	@Override
-	public void paintComponent(Graphics graphics) {
-		super.paintComponent(graphics);
+	public void paint(Graphics graphics) {
+		UIStats stats = UIStats.get();
+		long start = stats.start();
+		if (snapshot == null)
+			super.paint(graphics);
+		else
+			paintSnapshot(graphics);
+		stats.getPaint().stop(start);
+	}
+	
+	/**
+	 * Paints the snapshot inside of a border that fits the panel's current size.
+	 * @param graphics the graphics context.
+	 */
+	private void paintSnapshot(Graphics graphics) {
+		graphics.setColor(getBackground());
+		graphics.fillRect(0, 0, getWidth(), getHeight());
+		Graphics inside = graphics.create();
+		inside.clipRect(OUTER_BORDER_SIZE, OUTER_BORDER_SIZE, getWidth() - (OUTER_BORDER_SIZE * 2), 
+				getHeight() - (OUTER_BORDER_SIZE * 2));
+		inside.drawImage(snapshot, 0, 0, null);
+		inside.dispose();
 		drawOuterBorder(graphics);
-		drawInnerBorder(graphics);
-		drawShine(graphics);
+	}
+	
+	@Override
+	public boolean isOptimizedDrawingEnabled() {
+		// The diagnostics panel overlaps the content panel, so children can't be painted independently while it shows.
+		return diagnosticsPanel == null || !diagnosticsPanel.isVisible();
+	}
+	
+	@Override
+	public void paintComponent(Graphics graphics) {
+		chrome.paint(graphics);
+	}
+	
+	/**
+	 * Creates the diagnostics panel and adds it to this panel. It is added first so that it is painted over top of the 
+	 * other panels.
+	 */
+	private void createDiagnosticsPanel() {
+		diagnosticsPanel = new DiagnosticsPanel();
+		add(diagnosticsPanel);
 	}
 	
 	/**
@@ -146,14 +227,6 @@ public class OverlayPanel extends JPanel {
 	 * Sets up the various events that this panel will need to either subscribe to or notify about.
 	 */
 	private void setupEventHandling() {
-		// The event that the panel was resized.
-		addComponentListener(new ComponentAdapter() {
-			@Override
-			public void componentResized(ComponentEvent e) {
-				onPanelResized();
-			}
-		});
-		
 		// The event that the user is dragging the panel from the edges. This is to resize the UI.
 		leftMouseButtonDown = false;
 		movedMousePosition = new Point();
@@ -171,8 +244,10 @@ public class OverlayPanel extends JPanel {
 			
 			@Override
 			public void mouseReleased(MouseEvent e) {
-				if (e.getButton() == MouseEvent.BUTTON1)
+				if (e.getButton() == MouseEvent.BUTTON1) {
 					leftMouseButtonDown = false;
+					firePropertyChange("overlayReleased", null, e.getPoint());
+				}
 			}
 			
 			@Override
@@ -218,24 +293,25 @@ public class OverlayPanel extends JPanel {
 	}
 	
 	/**
-	 * The actions to take place when this panel is resized.
+	 * The actions to take place when this panel is resized. Invoked by the panel's <code>DirectLayout</code>.
 	 */
 	private void onPanelResized() {
+		// The children keep their places while a snapshot is shown, and are placed once it is put away.
+		if (snapshot != null)
+			return;
+		
 		placeToolbarPanel();
 		placeControlPanel();
 		placeContentPanel();
-		revalidate();
+		placeDiagnosticsPanel();
 	}
 	
 	/**
 	 * Determines the size of the toolbar panel and places it in its correct spot.
 	 */
 	private void placeToolbarPanel() {
-		layout.putConstraint(SpringLayout.WEST, toolbarPanel, OUTER_BORDER_SIZE, SpringLayout.WEST, this);
-		layout.putConstraint(SpringLayout.NORTH, toolbarPanel, OUTER_BORDER_SIZE, SpringLayout.NORTH, this);
-		Dimension toolbarSize = new Dimension(getWidth() - (OUTER_BORDER_SIZE * 2), toolbarPanel.getHeight());
-		toolbarPanel.setSize(toolbarSize);
-		toolbarPanel.setPreferredSize(toolbarSize);
+		toolbarPanel.setBounds(OUTER_BORDER_SIZE, OUTER_BORDER_SIZE, getWidth() - (OUTER_BORDER_SIZE * 2), 
+				toolbarPanel.getHeight());
 	}
 	
 	/**
@@ -250,27 +326,29 @@ public class OverlayPanel extends JPanel {
 		int width = getWidth() - (OUTER_BORDER_SIZE * 2) - (GUIConstants.SIZE_PADDING * 2) - (INNER_BORDER_SIZE * 2);
 		int height = getHeight() - (OUTER_BORDER_SIZE * 2) - toolbarPanel.getHeight() - GUIConstants.SIZE_PADDING - 
 				(INNER_BORDER_SIZE * 2) - controlPanel.getHeight();
-		
-		Dimension contentSize = new Dimension(width, height);
-		contentPanel.setSize(contentSize);
-		contentPanel.setPreferredSize(contentSize);
-		layout.putConstraint(SpringLayout.WEST, contentPanel, x, SpringLayout.WEST, this);
-		layout.putConstraint(SpringLayout.NORTH, contentPanel, y, SpringLayout.NORTH, this);
+		contentPanel.setBounds(x, y, width, height);
 	}
 	
 	/**
 	 * Determines the size of the control panel and places it in its correct spot. 
 	 */
 	private void placeControlPanel() {
+		int x = OUTER_BORDER_SIZE + GUIConstants.SIZE_PADDING + INNER_BORDER_SIZE;
+		int y = getHeight() - (OUTER_BORDER_SIZE + GUIConstants.SIZE_PADDING + INNER_BORDER_SIZE) - 
+				controlPanel.getHeight();
 		int width = getWidth() - (OUTER_BORDER_SIZE * 2) - (GUIConstants.SIZE_PADDING * 2) - (INNER_BORDER_SIZE * 2);
-		
-		Dimension size = new Dimension(width, controlPanel.getHeight());
-		controlPanel.setSize(size);
-		controlPanel.setPreferredSize(size);
-		layout.putConstraint(SpringLayout.WEST, controlPanel, OUTER_BORDER_SIZE + GUIConstants.SIZE_PADDING + 
-				INNER_BORDER_SIZE, SpringLayout.WEST, this);
-		layout.putConstraint(SpringLayout.SOUTH, controlPanel, -(OUTER_BORDER_SIZE + GUIConstants.SIZE_PADDING + 
-				INNER_BORDER_SIZE), SpringLayout.SOUTH, this);
+		controlPanel.setBounds(x, y, width, controlPanel.getHeight());
+	}
+	
+	/**
+	 * Places the diagnostics panel in the top right corner of the content panel.
+	 * 
+	 * <p>Note that this depends on the position of the content panel, so {@link #placeContentPanel()} should be invoked 
+	 * first.
+	 */
+	private void placeDiagnosticsPanel() {
+		diagnosticsPanel.setLocation(contentPanel.getX() + contentPanel.getWidth() - diagnosticsPanel.getWidth() - 
+				(GUIConstants.SIZE_PADDING * 4), contentPanel.getY() + GUIConstants.SIZE_PADDING);
 	}
 	
 	/**
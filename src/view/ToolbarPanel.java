@@ -4,36 +4,40 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Point;
-import java.awt.event.ComponentAdapter;
-import java.awt.event.ComponentEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 
-import javax.swing.JLabel;
 import javax.swing.JPanel;
-import javax.swing.SpringLayout;
 
 import view.util.ViewResources;
+import view.util.ChromeCache;
 import view.util.CustomButton;
+import view.util.DirectLayout;
 import view.util.GUIConstants;
+import view.util.PixelLabel;
+import view.util.PowerButton;
+import view.util.SearchField;
 
 /**
  * Represents the toolbar.
- * <p>The toolbar consists of a title label along with a minimize, maximize, and exit button. It also supports dragging.
+ * <p>The toolbar consists of a title label and a search field along with a low-power, diagnostics, minimize, maximize, 
+ * and exit button. It also supports dragging.
  * 
  * @author Adam
  */
 @SuppressWarnings("serial")
 public class ToolbarPanel extends JPanel {
-	private static final int TOOLBAR_HEIGHT = 30;
+	private static final int TOOLBAR_HEIGHT = GUIConstants.scale(30);
 	
-	private SpringLayout layout;
-	
-	private JLabel titleLabel;
+	private PixelLabel titleLabel;
+	private SearchField searchField;
+	private PowerButton powerButton;
+	private CustomButton diagnosticsButton;
 	private CustomButton minimizeButton;
 	private CustomButton maximizeButton;
 	private CustomButton exitButton;
 	
+	private ChromeCache chrome;
 	private Point initialMousePosition;
 	private boolean leftMouseButtonDown;
 	
@@ -41,27 +45,52 @@ public class ToolbarPanel extends JPanel {
 	 * Creates a new <code>ToolbarPanel</code> instance along with its subcomponents.
 	 */
 	public ToolbarPanel() {
-		layout = new SpringLayout();
-		setLayout(layout);
+		setLayout(new DirectLayout(() -> onPanelResized()));
 		setBackground(GUIConstants.COLOR_PRIMARY);
 		setFocusable(false);
+		chrome = new ChromeCache(this, graphics -> drawShine(graphics));
 		Dimension startSize = new Dimension(0, TOOLBAR_HEIGHT);
 		setSize(startSize);
 		setPreferredSize(startSize);
 		
 		createTitleLabel();
+		createSearchField();
 		createButtons();
 		setupEventHandling();
 	}
 	
 	/**
 	 * Returns the title label.
-	 * @return the {@link JLabel} representing the title.
+	 * @return the {@link PixelLabel} representing the title.
 	 */
-	public JLabel getTitleLabel() {
+	public PixelLabel getTitleLabel() {
 		return titleLabel;
 	}
 	
+	/**
+	 * Returns the search field.
+	 * @return the {@link SearchField} used to filter the user selections.
+	 */
+	public SearchField getSearchField() {
+		return searchField;
+	}
+	
+	/**
+	 * Returns the low-power button.
+	 * @return the {@link PowerButton} that switches the low-power mode on and off.
+	 */
+	public PowerButton getPowerButton() {
+		return powerButton;
+	}
+	
+	/**
+	 * Returns the diagnostics button.
+	 * @return the {@link CustomButton} representing the diagnostics button.
+	 */
+	public CustomButton getDiagnosticsButton() {
+		return diagnosticsButton;
+	}
+	
 	/**
 	 * Returns the minimize button.
 	 * @return the {@link CustomButton} representing the minimize button.
@@ -88,9 +117,14 @@ public class ToolbarPanel extends JPanel {
 	
 	@Override
 	public void paintComponent(Graphics graphics) {
-		super.paintComponent(graphics);
-		
-		// Paint a shine effect on the top and left edges of the panel.
+		chrome.paint(graphics);
+	}
+	
+	/**
+	 * Paints a shine effect on the top and left edges of the panel.
+	 * @param graphics the graphics context.
+	 */
+	private void drawShine(Graphics graphics) {
 		graphics.setColor(GUIConstants.COLOR_SHINE);
 		graphics.fillRect(0, 0, getWidth(), GUIConstants.SIZE_SHINE);
 		graphics.fillRect(0, 0, GUIConstants.SIZE_SHINE, getHeight());
@@ -100,19 +134,31 @@ public class ToolbarPanel extends JPanel {
 	 * Creates the title label and adds it to the panel.
 	 */
 	private void createTitleLabel() {
-		titleLabel = new JLabel("RetroRain.exe");
-		titleLabel.setFont(ViewResources.get().getFont("prstart.ttf").deriveFont(12.0f));
+		titleLabel = new PixelLabel("RetroRain.exe");
+		titleLabel.setFont(ViewResources.get().getFont("prstart.ttf", 12.0f));
 		titleLabel.setForeground(Color.WHITE);
 		add(titleLabel);
 	}
 	
 	/**
-	 * Creates the minimize, maximize, and exit buttons and adds them to the panel.
+	 * Creates the search field and adds it to the panel.
+	 */
+	private void createSearchField() {
+		searchField = new SearchField("search");
+		add(searchField);
+	}
+	
+	/**
+	 * Creates the low-power, diagnostics, minimize, maximize, and exit buttons and adds them to the panel.
 	 */
 	private void createButtons() {
+		powerButton = new PowerButton();
+		diagnosticsButton = new CustomButton(ViewResources.get().getImage("button_diagnostics.png"));
 		minimizeButton = new CustomButton(ViewResources.get().getImage("button_minimize.png"));
 		maximizeButton = new CustomButton(ViewResources.get().getImage("button_maximize.png"));
 		exitButton = new CustomButton(ViewResources.get().getImage("button_exit.png"));
+		add(powerButton);
+		add(diagnosticsButton);
 		add(minimizeButton);
 		add(maximizeButton);
 		add(exitButton);
@@ -121,15 +167,7 @@ public class ToolbarPanel extends JPanel {
 	/**
 	 * Sets up the few events that this panel will work with.
 	 */
-	private void setupEventHandling() {		
-		// The event that the toolbar has been resized.
-		addComponentListener(new ComponentAdapter() {
-			@Override
-			public void componentResized(ComponentEvent e) {
-				onPanelResized();
-			}
-		});
-
+	private void setupEventHandling() {
 		// The event that the toolbar has been dragged by the user.
 		leftMouseButtonDown = false;
 		MouseAdapter mouseAdapter = new MouseAdapter() {
@@ -161,43 +199,46 @@ public class ToolbarPanel extends JPanel {
 	}
 	
 	/**
-	 * Dictates what happens whenever the toolbar is resized.
+	 * Dictates what happens whenever the toolbar is resized. Invoked by the toolbar's <code>DirectLayout</code>.
 	 */
 	private void onPanelResized() {
 		placeButtons();
+		placeSearchField();
 		placeTitleLabel();
-		revalidate();
 	}
 	
 	/**
 	 * Places the title label in its correct spot and calculates how wide the label can be. 
 	 * 
-	 * <p>The width of the title label is based on how much real estate is left over after the buttons have been 
-	 * placed, so {@link #placeButtons()} should be invoked first. The reason for this is that the label's text should 
-	 * never appear over the buttons.
+	 * <p>The width of the title label is based on how much real estate is left over after the buttons and search field 
+	 * have been placed, so {@link #placeButtons()} and {@link #placeSearchField()} should be invoked first. The reason 
+	 * for this is that the label's text should never appear over the buttons.
 	 */
 	private void placeTitleLabel() {
-		int availableWidth = getWidth() - (int)(exitButton.getSize().getWidth() * 3) - (GUIConstants.SIZE_PADDING * 5);
-		Dimension titleLabelSize = new Dimension(availableWidth, titleLabel.getFont().getSize());
-		titleLabel.setSize(titleLabelSize);
-		titleLabel.setPreferredSize(titleLabelSize);
-		layout.putConstraint(SpringLayout.NORTH, titleLabel, (getHeight() / 2) - (titleLabel.getFont().getSize() / 2), 
-				SpringLayout.NORTH, this);
-		layout.putConstraint(SpringLayout.WEST, titleLabel, GUIConstants.SIZE_PADDING, SpringLayout.WEST, this);
+		int availableWidth = getWidth() - (int)(exitButton.getSize().getWidth() * 5) - searchField.getWidth() - 
+				(GUIConstants.SIZE_PADDING * 8);
+		int height = titleLabel.getFont().getSize();
+		titleLabel.setBounds(GUIConstants.SIZE_PADDING, (getHeight() / 2) - (height / 2), availableWidth, height);
+	}
+	
+	/**
+	 * Places the search field to the left of the low-power button.
+	 */
+	private void placeSearchField() {
+		searchField.setLocation(powerButton.getX() - searchField.getWidth() - GUIConstants.SIZE_PADDING, 
+				(getHeight() / 2) - (searchField.getHeight() / 2));
 	}
 	
 	/**
-	 * Places the exit, maximize, and minimize buttons in their correct spots.
+	 * Places the exit, maximize, minimize, diagnostics, and low-power buttons in their correct spots.
 	 */
 	private void placeButtons() {
-		layout.putConstraint(SpringLayout.NORTH, exitButton, (getHeight() / 2) - (exitButton.getHeight() / 2), 
-				SpringLayout.NORTH, this);
-		layout.putConstraint(SpringLayout.EAST, exitButton, -GUIConstants.SIZE_PADDING, SpringLayout.EAST, this);
-		layout.putConstraint(SpringLayout.NORTH, maximizeButton, 0, SpringLayout.NORTH, exitButton);
-		layout.putConstraint(SpringLayout.EAST, maximizeButton, -GUIConstants.SIZE_PADDING, SpringLayout.WEST, 
-				exitButton);
-		layout.putConstraint(SpringLayout.NORTH, minimizeButton, 0, SpringLayout.NORTH, exitButton);
-		layout.putConstraint(SpringLayout.EAST, minimizeButton, -GUIConstants.SIZE_PADDING, SpringLayout.WEST, 
-				maximizeButton);
+		int y = (getHeight() / 2) - (exitButton.getHeight() / 2);
+		int x = getWidth();
+		for (CustomButton button : new CustomButton[] { exitButton, maximizeButton, minimizeButton, diagnosticsButton, 
+				powerButton }) {
+			x -= button.getWidth() + GUIConstants.SIZE_PADDING;
+			button.setLocation(x, y);
+		}
 	}
 }
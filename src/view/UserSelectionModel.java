@@ -0,0 +1,228 @@
+package view;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import model.SearchIndex;
+import model.Waveform;
+
+/**
+ * Represents the state of every user selection in a <code>ContentPanel</code>, whether or not it is on screen. Only the 
+ * rows that are visible get a {@link UserSelectionPanel}; everything else is just a name in a sorted list, so a library 
+ * of tens of thousands of audio files costs little more than their names.
+ * 
+ * <p>Volumes and play states are only stored for the user selections that differ from the defaults (full volume and 
+ * not playing), and waveforms only once they have been computed. The list is sorted lazily, the first time a row is 
+ * asked for after names were added.
+ * 
+ * <p>A filter is a search result, and only the names that are in the model are shown from it. Rather than looking up 
+ * every match, the model keeps the ordinals its names have in the snapshot the filter was taken from, so filtering is 
+ * a single pass over the bits of both. The ordinals are only looked up again once a filter comes from a new snapshot.
+ * 
+ * @author Adam
+ */
+public class UserSelectionModel {
+	public static final int DEFAULT_VOLUME = 100;
+	
+	private ArrayList<String> names;
+	private Set<String> nameSet;
+	private Map<String, Integer> volumes;
+	private Set<String> playing;
+	private Map<String, Waveform> waveforms;
+	private SearchIndex.Result filter;
+	private SearchIndex.Result visibleMatches;
+	private SearchIndex.Result heldSnapshot;
+	private BitSet heldOrdinals;
+	private boolean sorted;
+	
+	/**
+	 * Creates a new, empty <code>UserSelectionModel</code>.
+	 */
+	public UserSelectionModel() {
+		names = new ArrayList<String>();
+		nameSet = new HashSet<String>();
+		volumes = new HashMap<String, Integer>();
+		playing = new HashSet<String>();
+		waveforms = new HashMap<String, Waveform>();
+		sorted = true;
+	}
+	
+	/**
+	 * Adds a user selection.
+	 * @param name the name of the user selection.
+	 * @return true if the user selection was added, false if it already existed.
+	 */
+	public boolean add(String name) {
+		if (!nameSet.add(name))
+			return false;
+		
+		names.add(name);
+		sorted = false;
+		if (heldSnapshot != null) {
+			int ordinal = heldSnapshot.getOrdinal(name);
+			if (ordinal >= 0)
+				heldOrdinals.set(ordinal);
+		}
+		visibleMatches = null;
+		return true;
+	}
+	
+	/**
+	 * Removes a user selection along with its state.
+	 * @param name the name of the user selection.
+	 * @return true if the user selection was removed, false if it didn't exist.
+	 */
+	public boolean remove(String name) {
+		if (!nameSet.remove(name))
+			return false;
+		
+		names.remove(name);
+		volumes.remove(name);
+		playing.remove(name);
+		waveforms.remove(name);
+		if (heldSnapshot != null) {
+			int ordinal = heldSnapshot.getOrdinal(name);
+			if (ordinal >= 0)
+				heldOrdinals.clear(ordinal);
+		}
+		visibleMatches = null;
+		return true;
+	}
+	
+	/**
+	 * Determines whether a user selection exists.
+	 * @param name the name of the user selection.
+	 * @return true if the user selection exists, false otherwise.
+	 */
+	public boolean contains(String name) {
+		return nameSet.contains(name);
+	}
+	
+	/**
+	 * Returns the volume of a user selection.
+	 * @param name the name of the user selection.
+	 * @return the volume, between 0 and 100.
+	 */
+	public int getVolume(String name) {
+		Integer volume = volumes.get(name);
+		return (volume == null) ? DEFAULT_VOLUME : volume;
+	}
+	
+	/**
+	 * Sets the volume of a user selection.
+	 * @param name the name of the user selection.
+	 * @param volume the volume, between 0 and 100.
+	 */
+	public void setVolume(String name, int volume) {
+		if (volume == DEFAULT_VOLUME)
+			volumes.remove(name);
+		else if (nameSet.contains(name))
+			volumes.put(name, volume);
+	}
+	
+	/**
+	 * Returns whether a user selection is playing.
+	 * @param name the name of the user selection.
+	 * @return true if the user selection is playing, false otherwise.
+	 */
+	public boolean isPlaying(String name) {
+		return playing.contains(name);
+	}
+	
+	/**
+	 * Sets whether a user selection is playing.
+	 * @param name the name of the user selection.
+	 * @param isPlaying true if the user selection is playing, false otherwise.
+	 */
+	public void setPlaying(String name, boolean isPlaying) {
+		if (!isPlaying)
+			playing.remove(name);
+		else if (nameSet.contains(name))
+			playing.add(name);
+	}
+	
+	/**
+	 * Returns the waveform of a user selection.
+	 * @param name the name of the user selection.
+	 * @return the waveform, or <code>null</code> if it hasn't been computed yet.
+	 */
+	public Waveform getWaveform(String name) {
+		return waveforms.get(name);
+	}
+	
+	/**
+	 * Sets the waveform of a user selection. Nothing happens if the model has no user selection with the name, so a 
+	 * waveform that is computed before its user selection is added has to be set again once it is.
+	 * @param name the name of the user selection.
+	 * @param waveform the waveform of the user selection's audio file.
+	 */
+	public void setWaveform(String name, Waveform waveform) {
+		if (nameSet.contains(name))
+			waveforms.put(name, waveform);
+	}
+	
+	/**
+	 * Limits the visible user selections to the ones whose names are in a search result.
+	 * @param names the names of the user selections to show, or <code>null</code> to show all of them.
+	 */
+	public void setFilter(SearchIndex.Result names) {
+		filter = names;
+		visibleMatches = null;
+	}
+	
+	/**
+	 * Returns the amount of user selections that pass the filter.
+	 * @return the amount of visible rows.
+	 */
+	public int getVisibleCount() {
+		return (filter == null) ? getSortedNames().size() : getVisibleMatches().size();
+	}
+	
+	/**
+	 * Returns the name of a visible row.
+	 * @param row the index of the row, counting only the user selections that pass the filter.
+	 * @return the name of the user selection in that row.
+	 */
+	public String getVisibleName(int row) {
+		return (filter == null) ? getSortedNames().get(row) : getVisibleMatches().get(row);
+	}
+	
+	/**
+	 * Returns the names of all user selections in alphabetical order, sorting them first if names were added.
+	 * @return the sorted names.
+	 */
+	private List<String> getSortedNames() {
+		if (!sorted) {
+			// Names are mostly added in order or in small batches, which the sort handles in close to linear time.
+			names.sort(SearchIndex.ORDER);
+			sorted = true;
+		}
+		return names;
+	}
+	
+	/**
+	 * Returns the matches of the filter that are user selections, looking up the ordinals of the user selections first 
+	 * if the filter comes from a different snapshot than they were looked up in.
+	 * @return the visible matches.
+	 */
+	private SearchIndex.Result getVisibleMatches() {
+		if (visibleMatches == null) {
+			if (!filter.hasSameSnapshot(heldSnapshot)) {
+				heldSnapshot = filter;
+				heldOrdinals = new BitSet();
+				for (String name : names) {
+					int ordinal = filter.getOrdinal(name);
+					if (ordinal >= 0)
+						heldOrdinals.set(ordinal);
+				}
+			}
+			visibleMatches = filter.retain(heldOrdinals);
+		}
+		return visibleMatches;
+	}
+}
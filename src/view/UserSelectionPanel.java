@@ -1,50 +1,48 @@
 package view;
 
 import java.awt.Color;
-import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.event.ComponentAdapter;
-import java.awt.event.ComponentEvent;
 
-import javax.swing.JLabel;
 import javax.swing.JPanel;
-import javax.swing.SpringLayout;
 
-import controller.util.TrackPlayer;
+import model.Waveform;
 import view.util.ControlButton;
 import view.util.CustomSlider;
+import view.util.DirectLayout;
 import view.util.GUIConstants;
+import view.util.PixelLabel;
 import view.util.ViewResources;
+import view.util.WaveformStrip;
 
 /**
  * Graphically represents a user selection. This panel contains a play / pause button (the control button), a label 
- * describing the user selection, and a volume slider.
+ * describing the user selection with a strip of its waveform beneath it, and a volume slider.
  * 
+ * <p>A <code>UserSelectionPanel</code> doesn't own the user selection it shows. The <code>ContentPanel</code> keeps 
+ * only enough of them to fill the screen and binds each one to whichever user selection currently sits in its row.
+ *
  * @author Adam
  */
 @SuppressWarnings("serial")
 public class UserSelectionPanel extends JPanel {
-	public static final int PANEL_HEIGHT = 30;
+	public static final int PANEL_HEIGHT = GUIConstants.scale(30);
+	
+	private static final int WAVEFORM_HEIGHT = GUIConstants.scale(6);
 	
 	private static boolean LOADED_RESOURCES = false;
 	private static Font FONT;
 	
-	private SpringLayout layout;
-	
 	private ControlButton controlButton;
-	private JLabel nameLabel;
+	private PixelLabel nameLabel;
+	private WaveformStrip waveformStrip;
 	private CustomSlider volumeSlider;
 	
-	private TrackPlayer trackPlayer;
-	
 	/**
 	 * Constructs a new <code>UserSelectionPanel</code> object, setting up its control button, name label, and 
-	 * volume slider.
-	 * @param audioLabel the text for the label to present.
+	 * volume slider. The panel shows nothing until it is bound to a user selection.
 	 */
-	public UserSelectionPanel(String audioName) {
-		layout = new SpringLayout();
-		setLayout(layout);
+	public UserSelectionPanel() {
+		setLayout(new DirectLayout(() -> onPanelResized()));
 		setFocusable(false);
 		setBackground(GUIConstants.COLOR_SECONDARY);
 		
@@ -54,11 +52,24 @@ public class UserSelectionPanel extends JPanel {
 		}
 		
 		createControlButton();
-		createNameLabel(audioName);
+		createNameLabel("");
+		createWaveformStrip();
 		createVolumeSlider();
-		setupEventHandling();
-		
-		trackPlayer = new TrackPlayer();
+	}
+	
+	/**
+	 * Makes this panel show a user selection.
+	 * @param name the name of the user selection.
+	 * @param volume the volume of the user selection, between 0 and 100.
+	 * @param playing whether or not the user selection is playing.
+	 * @param waveform the waveform of the user selection, or <code>null</code> if it hasn't been computed yet.
+	 */
+	public void bind(String name, int volume, boolean playing, Waveform waveform) {
+		if (!name.equals(nameLabel.getText()))
+			nameLabel.setText(name);
+		waveformStrip.setWaveform(waveform);
+		volumeSlider.setValue(volume);
+		controlButton.setMode(playing ? ControlButton.ControlMode.PLAY : ControlButton.ControlMode.PAUSE);
 	}
 	
 	/**
@@ -71,9 +82,9 @@ public class UserSelectionPanel extends JPanel {
 	
 	/**
 	 * Returns the name label.
-	 * @return the <code>JLabel</code> associated with this user selection's name.
+	 * @return the <code>PixelLabel</code> associated with this user selection's name.
 	 */
-	public JLabel getNameLabel() {
+	public PixelLabel getNameLabel() {
 		return nameLabel;
 	}
 	
@@ -85,19 +96,11 @@ public class UserSelectionPanel extends JPanel {
 		return volumeSlider;
 	}
 	
-	/**
-	 * Return the track player.
-	 * @return the <code>TrackPlayer</code> associated with this user selection.
-	 */
-	public TrackPlayer getTrackPlayer() {
-		return trackPlayer;
-	}
-	
 	/**
 	 * Loads resources that are common to all <code>UserSelectionPanel</code> objects.
 	 */
 	private void loadResources() {
-		FONT = ViewResources.get().getFont("prstart.ttf").deriveFont(12.0f);
+		FONT = ViewResources.get().getFont("prstart.ttf", 12.0f);
 		LOADED_RESOURCES = true;
 	}
 	
@@ -114,50 +117,43 @@ public class UserSelectionPanel extends JPanel {
 	 * @param text the initial text of the name label.
 	 */
 	private void createNameLabel(String text) {
-		nameLabel = new JLabel(text);
+		nameLabel = new PixelLabel(text);
 		nameLabel.setFont(FONT);
 		nameLabel.setForeground(Color.BLACK);
 		add(nameLabel);
 	}
 	
 	/**
-	 * Creates and adds the volume slider to this panel.
+	 * Creates and adds the waveform strip to this panel.
 	 */
-	private void createVolumeSlider() {
-		volumeSlider = new CustomSlider(0, 100, 100);
-		add(volumeSlider);
+	private void createWaveformStrip() {
+		waveformStrip = new WaveformStrip();
+		add(waveformStrip);
 	}
 	
 	/**
-	 * Sets up the events that this panel will need to receive or notify.
+	 * Creates and adds the volume slider to this panel.
 	 */
-	private void setupEventHandling() {
-		// The event that this panel was resized.
-		addComponentListener(new ComponentAdapter() {
-			@Override
-			public void componentResized(ComponentEvent e) {
-				onPanelResized();
-			}
-		});
+	private void createVolumeSlider() {
+		volumeSlider = new CustomSlider(0, 100, 100);
+		add(volumeSlider);
 	}
 	
 	/**
-	 * The actions to be performed whenever this panel is resized.
+	 * The actions to be performed whenever this panel is resized. Invoked by the panel's <code>DirectLayout</code>.
 	 */
 	private void onPanelResized() {
 		placeControlButton();
 		placeVolumeSlider();
 		placeNameLabel();
-		revalidate();
+		placeWaveformStrip();
 	}
 	
 	/**
 	 * Places the control button in its correct spot.
 	 */
 	private void placeControlButton() {
-		layout.putConstraint(SpringLayout.NORTH, controlButton, (getHeight() / 2) - 
-				(controlButton.getSize().height / 2), SpringLayout.NORTH, this);
-		layout.putConstraint(SpringLayout.WEST, controlButton, GUIConstants.SIZE_PADDING, SpringLayout.WEST, this);
+		controlButton.setLocation(GUIConstants.SIZE_PADDING, (getHeight() / 2) - (controlButton.getHeight() / 2));
 	}
 	
 	/**
@@ -168,20 +164,29 @@ public class UserSelectionPanel extends JPanel {
 	 */
 	private void placeNameLabel() {
 		int width = getWidth() - controlButton.getWidth() - volumeSlider.getWidth() - (GUIConstants.SIZE_PADDING * 4);
-		Dimension size = new Dimension(width, nameLabel.getPreferredSize().height);
-		nameLabel.setSize(size);
-		nameLabel.setPreferredSize(size);
-		layout.putConstraint(SpringLayout.NORTH, nameLabel, (getHeight() / 2) - (nameLabel.getSize().height / 2), 
-				SpringLayout.NORTH, this);
-		layout.putConstraint(SpringLayout.WEST, nameLabel, GUIConstants.SIZE_PADDING, SpringLayout.EAST, controlButton);
+		int height = nameLabel.getFontMetrics(FONT).getHeight();
+		nameLabel.setBounds(controlButton.getX() + controlButton.getWidth() + GUIConstants.SIZE_PADDING, 
+				(getHeight() / 2) - (height / 2), width, height);
+	}
+	
+	/**
+	 * Places the waveform strip in the free space beneath the name label, as wide as the name label.
+	 * 
+	 * <p>The strip is placed based on the name label, so {@link #placeNameLabel()} should be invoked before this 
+	 * method.
+	 */
+	private void placeWaveformStrip() {
+		int top = nameLabel.getY() + nameLabel.getHeight();
+		int height = Math.min(WAVEFORM_HEIGHT, getHeight() - top);
+		waveformStrip.setBounds(nameLabel.getX(), top + ((getHeight() - top - height) / 2), nameLabel.getWidth(), 
+				height);
 	}
 	
 	/**
 	 * Places the volume slider in its correct spot.
 	 */
 	private void placeVolumeSlider() {
-		layout.putConstraint(SpringLayout.NORTH, volumeSlider, (getHeight() / 2) - (volumeSlider.getSize().height / 2), 
-				SpringLayout.NORTH, this);
-		layout.putConstraint(SpringLayout.EAST, volumeSlider, -GUIConstants.SIZE_PADDING, SpringLayout.EAST, this);
+		volumeSlider.setLocation(getWidth() - volumeSlider.getWidth() - GUIConstants.SIZE_PADDING, 
+				(getHeight() / 2) - (volumeSlider.getHeight() / 2));
 	}
 }
@@ -0,0 +1,152 @@
+package view.util;
+
+import java.awt.Component;
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.awt.event.ActionEvent;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.swing.Timer;
+
+/**
+ * Drives every running {@link Tween} from a single timer on the event dispatching thread, ticking once per frame of the 
+ * display's refresh rate. Components that change during a frame can ask the clock to repaint them, and each one is 
+ * repainted once at the end of the frame no matter how many tweens asked.
+ * 
+ * <p>The timer only runs while at least one tween is running, so the clock uses no CPU time while nothing is animating. 
+ * It can also be paused, such as while the window is minimized, in which case tweens wait until it resumes and then 
+ * jump to wherever they would have been by then.
+ * 
+ * @author Adam
+ */
+public class AnimationClock {
+	private static final int DEFAULT_REFRESH_RATE = 60;
+	
+	private static AnimationClock instance;
+	
+	private List<Tween> tweens;
+	private List<Tween> frameTweens;
+	private Set<Component> dirtyComponents;
+	private int frameMillis;
+	private Timer timer;
+	private boolean paused;
+	
+	/**
+	 * Creates a new <code>AnimationClock</code> instance. Private for the Singleton pattern.
+	 */
+	private AnimationClock() {
+		tweens = new ArrayList<Tween>();
+		frameTweens = new ArrayList<Tween>();
+		dirtyComponents = new LinkedHashSet<Component>();
+		frameMillis = 1000 / getRefreshRate();
+		timer = new Timer(frameMillis, (ActionEvent e) -> tick());
+		timer.setCoalesce(true);
+	}
+	
+	/**
+	 * Returns the Singleton instance of this class.
+	 * @return the single <code>AnimationClock</code> instance.
+	 */
+	public static synchronized AnimationClock get() {
+		if (instance == null)
+			instance = new AnimationClock();
+		return instance;
+	}
+	
+	/**
+	 * Returns how long each frame of the clock lasts.
+	 * @return the frame length in milliseconds.
+	 */
+	public int getFrameMillis() {
+		return frameMillis;
+	}
+	
+	/**
+	 * Returns whether or not any tweens are running, meaning the clock is ticking.
+	 * @return true if the clock is ticking, false if it is idle.
+	 */
+	public boolean isAnimating() {
+		return !tweens.isEmpty();
+	}
+	
+	/**
+	 * Pauses or resumes the clock. While paused, the timer doesn't run even if tweens are running.
+	 * @param paused true to pause the clock, false to resume it.
+	 */
+	public void setPaused(boolean paused) {
+		this.paused = paused;
+		if (paused)
+			timer.stop();
+		else if (!tweens.isEmpty())
+			timer.start();
+	}
+	
+	/**
+	 * Repaints a component at the end of the current frame. If nothing is animating, the component is repainted right 
+	 * away instead.
+	 * @param component the component to repaint.
+	 */
+	public void repaint(Component component) {
+		if (timer.isRunning())
+			dirtyComponents.add(component);
+		else
+			component.repaint();
+	}
+	
+	/**
+	 * Starts updating a tween every frame, starting the timer if it was idle and the clock isn't paused.
+	 * @param tween the <code>Tween</code> to update.
+	 */
+	void add(Tween tween) {
+		if (!tweens.contains(tween))
+			tweens.add(tween);
+		if (!paused && !timer.isRunning())
+			timer.start();
+	}
+	
+	/**
+	 * Stops updating a tween. The timer stops at the end of the frame if this was the last one.
+	 * @param tween the <code>Tween</code> to stop updating.
+	 */
+	void remove(Tween tween) {
+		tweens.remove(tween);
+	}
+	
+	/**
+	 * Updates every running tween for a single frame, then repaints whatever they changed.
+	 */
+	private void tick() {
+		long frameNanos = System.nanoTime();
+		
+		// Tweens may start or cancel other tweens while being updated, so they're stepped from a copy.
+		frameTweens.addAll(tweens);
+		for (Tween tween : frameTweens) {
+			if (!tween.step(frameNanos) && !tween.isRunning())
+				tweens.remove(tween);
+		}
+		frameTweens.clear();
+		
+		for (Component component : dirtyComponents)
+			component.repaint();
+		dirtyComponents.clear();
+		
+		if (tweens.isEmpty())
+			timer.stop();
+	}
+	
+	/**
+	 * Returns the refresh rate of the default screen.
+	 * @return the refresh rate in hertz, or a sensible default if it can't be determined.
+	 */
+	private static int getRefreshRate() {
+		if (GraphicsEnvironment.isHeadless())
+			return DEFAULT_REFRESH_RATE;
+		
+		int refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode() 
+				.getRefreshRate();
+		return (refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN) ? DEFAULT_REFRESH_RATE : refreshRate;
+	}
+}
@@ -0,0 +1,76 @@
+package view.util;
+
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.image.BufferedImage;
+import java.util.function.Consumer;
+
+import javax.swing.JComponent;
+
+/**
+ * Keeps a pre-rendered image of a component's chrome, meaning its background along with any borders or effects that 
+ * only depend on its size. Painting the chrome then takes a single <code>drawImage</code>, and it is only rendered 
+ * again once the component has been resized.
+ * 
+ * <p>The image is created to be compatible with the component's screen, so Java2D can keep a copy of it in video 
+ * memory and draw it as a plain blit.
+ * 
+ * @author Adam
+ */
+public class ChromeCache {
+	private JComponent component;
+	private Consumer<Graphics> renderer;
+	private BufferedImage image;
+	
+	/**
+	 * Creates a new <code>ChromeCache</code>. Nothing is rendered until the chrome is first painted.
+	 * @param component the component the chrome belongs to.
+	 * @param renderer draws the chrome over top of the component's background, based on the component's current size.
+	 */
+	public ChromeCache(JComponent component, Consumer<Graphics> renderer) {
+		this.component = component;
+		this.renderer = renderer;
+	}
+	
+	/**
+	 * Paints the chrome, rendering it first if the component's size has changed since it was last rendered.
+	 * @param graphics the graphics context of the component.
+	 */
+	public void paint(Graphics graphics) {
+		int width = component.getWidth();
+		int height = component.getHeight();
+		if (width <= 0 || height <= 0)
+			return;
+		
+		if (image == null || image.getWidth() != width || image.getHeight() != height)
+			render(width, height);
+		graphics.drawImage(image, 0, 0, null);
+	}
+	
+	/**
+	 * Throws away the rendered chrome so that it is rendered again the next time it is painted. This only needs to be 
+	 * invoked if something other than the component's size changes how the chrome looks.
+	 */
+	public void invalidate() {
+		image = null;
+	}
+	
+	/**
+	 * Renders the component's background and chrome into a new image.
+	 * @param width the width of the component.
+	 * @param height the height of the component.
+	 */
+	private void render(int width, int height) {
+		GraphicsConfiguration configuration = component.getGraphicsConfiguration();
+		if (configuration != null)
+			image = configuration.createCompatibleImage(width, height);
+		else
+			image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		
+		Graphics graphics = image.createGraphics();
+		graphics.setColor(component.getBackground());
+		graphics.fillRect(0, 0, width, height);
+		renderer.accept(graphics);
+		graphics.dispose();
+	}
+}
@@ -1,6 +1,8 @@
 package view.util;
 
 import java.awt.Cursor;
+import java.awt.Dimension;
+import java.awt.Image;
 import java.awt.Point;
 import java.awt.Toolkit;
 import java.awt.event.MouseAdapter;
@@ -65,28 +67,42 @@ public class CursorManager {
 	 * Creates the various custom cursors that will be used in the UI.
 	 */
 	private void createCursors() {
-		ViewResources resources = ViewResources.get();
-		Toolkit toolkit = Toolkit.getDefaultToolkit();
-		
-		selectCursor = toolkit.createCustomCursor(resources.getImage("cursor_select.png"), new Point(8, 0), 
-				"select cursor");
-		selectingCursor = toolkit.createCustomCursor(resources.getImage("cursor_selecting.png"), new Point(8, 2), 
-				"selecting cursor");
-		grabCursor = toolkit.createCustomCursor(resources.getImage("cursor_grab.png"), new Point(6, 1), "grab cursor");
-		grabbingCursor = toolkit.createCustomCursor(resources.getImage("cursor_grabbing.png"), new Point(6, 1), 
-				"grabbing cursor");
-		bidirectionalCursor = toolkit.createCustomCursor(resources.getImage("cursor_bidirectional.png"), 
-				new Point(13, 12), "bidirectional cursor");
-		horizontalCursor = toolkit.createCustomCursor(resources.getImage("cursor_horizontal.png"), new Point(13, 4), 
-				"horizontal cursor");
-		verticalCursor = toolkit.createCustomCursor(resources.getImage("cursor_vertical.png"), new Point(5, 11), 
-				"vertical cursor");
+		selectCursor = createCursor("cursor_select.png", 8, 0, "select cursor");
+		selectingCursor = createCursor("cursor_selecting.png", 8, 2, "selecting cursor");
+		grabCursor = createCursor("cursor_grab.png", 6, 1, "grab cursor");
+		grabbingCursor = createCursor("cursor_grabbing.png", 6, 1, "grabbing cursor");
+		bidirectionalCursor = createCursor("cursor_bidirectional.png", 13, 12, "bidirectional cursor");
+		horizontalCursor = createCursor("cursor_horizontal.png", 13, 4, "horizontal cursor");
+		verticalCursor = createCursor("cursor_vertical.png", 5, 11, "vertical cursor");
 		
 		mainUI.setCursor(selectCursor);
 		nextCursor = selectCursor;
 		canChangeCursors = true;
 	}
 	
+	/**
+	 * Creates a custom cursor at the display scale, or the largest smaller scale that the platform's cursors can fit.
+	 * @param identifier the name of the cursor's image in the image pool.
+	 * @param hotSpotX the x coordinate of the cursor's hot spot, in unscaled pixels.
+	 * @param hotSpotY the y coordinate of the cursor's hot spot, in unscaled pixels.
+	 * @param name the name of the cursor.
+	 * @return the new <code>Cursor</code>.
+	 */
+	private static Cursor createCursor(String identifier, int hotSpotX, int hotSpotY, String name) {
+		Toolkit toolkit = Toolkit.getDefaultToolkit();
+		Image original = ViewResources.get().getImage(identifier, 1);
+		int scale = GUIConstants.SCALE;
+		while (scale > 1) {
+			Dimension bestSize = toolkit.getBestCursorSize(original.getWidth(null) * scale, 
+					original.getHeight(null) * scale);
+			if (bestSize.width >= original.getWidth(null) * scale && bestSize.height >= original.getHeight(null) * scale)
+				break;
+			scale--;
+		}
+		return toolkit.createCustomCursor(ViewResources.get().getImage(identifier, scale), 
+				new Point(hotSpotX * scale, hotSpotY * scale), name);
+	}
+	
 	/**
 	 * Creates the behaviour for all cursors.
 	 */
@@ -181,6 +197,7 @@ public class CursorManager {
 
 		// Toolbar panel.
 		toolbarPanel.addMouseListener(grabCursorBehaviour);
+		toolbarPanel.getDiagnosticsButton().addMouseListener(selectCursorBehaviour);
 		toolbarPanel.getMinimizeButton().addMouseListener(selectCursorBehaviour);
 		toolbarPanel.getMaximizeButton().addMouseListener(selectCursorBehaviour);
 		toolbarPanel.getExitButton().addMouseListener(selectCursorBehaviour);
@@ -46,6 +46,8 @@ public class CustomButton extends JButton {
 	
 	@Override
 	public void paintComponent(Graphics graphics) {
+		UIStats stats = UIStats.get();
+		long start = stats.start();
 		super.paintComponent(graphics);
 		
 		if (pressed) {
@@ -55,6 +57,7 @@ public class CustomButton extends JButton {
 			graphics.setColor(HOVERED_TINT);
 			graphics.fillRect(0, 0, getWidth(), getHeight());
 		}
+		stats.getButtonPaint().stop(start);
 	}
 	
 	/**
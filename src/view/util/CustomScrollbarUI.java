@@ -1,5 +1,6 @@
 package view.util;
 
+import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Rectangle;
 
@@ -30,6 +31,14 @@ public class CustomScrollbarUI extends BasicScrollBarUI {
 		scrollbar.setButtons(incrButton, decrButton);
 	}
 	
+	@Override
+	protected void installDefaults() {
+		super.installDefaults();
+		scrollBarWidth = GUIConstants.scale(scrollBarWidth);
+		minimumThumbSize = new Dimension(GUIConstants.scale(minimumThumbSize.width), 
+				GUIConstants.scale(minimumThumbSize.height));
+	}
+	
 	@Override
 	public JButton createIncreaseButton(int orientation) {
 		return new CustomButton(ViewResources.get().getImage("button_increase.png"));
@@ -40,6 +49,14 @@ public class CustomScrollbarUI extends BasicScrollBarUI {
 		return new CustomButton(ViewResources.get().getImage("button_decrease.png"));
 	}
 	
+	@Override
+	public void paint(Graphics graphics, JComponent component) {
+		UIStats stats = UIStats.get();
+		long start = stats.start();
+		super.paint(graphics, component);
+		stats.getScrollbarPaint().stop(start);
+	}
+	
 	@Override
 	public void paintTrack(Graphics graphics, JComponent component, Rectangle trackBounds) {
 		// Fill.
@@ -11,8 +11,8 @@ import javax.swing.JSlider;
  */
 @SuppressWarnings("serial")
 public class CustomSlider extends JSlider {	
-	private static final int WIDTH = 75;
-	private static final int HEIGHT = 20;
+	private static final int WIDTH = GUIConstants.scale(75);
+	private static final int HEIGHT = GUIConstants.scale(20);
 	
 	/**
 	 * Creates a new <code>CustomSlider</code> instance and sets the UI to a new <code>CustomSliderUI</code> instance.
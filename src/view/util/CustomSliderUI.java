@@ -1,7 +1,9 @@
 package view.util;
 
+import java.awt.Dimension;
 import java.awt.Graphics;
 
+import javax.swing.JComponent;
 import javax.swing.JSlider;
 import javax.swing.plaf.basic.BasicSliderUI;
 
@@ -11,7 +13,7 @@ import javax.swing.plaf.basic.BasicSliderUI;
  * @author Adam
  */
 public class CustomSliderUI extends BasicSliderUI {
-	private static final int TRACK_HEIGHT = 3;
+	private static final int TRACK_HEIGHT = GUIConstants.scale(3);
 	
 	/**
 	 * Creates a new <code>CustomSliderUI</code> object that can be applied to a slider.
@@ -21,6 +23,20 @@ public class CustomSliderUI extends BasicSliderUI {
 		super(slider);
 	}
 	
+	@Override
+	protected Dimension getThumbSize() {
+		Dimension size = super.getThumbSize();
+		return new Dimension(GUIConstants.scale(size.width), GUIConstants.scale(size.height));
+	}
+	
+	@Override
+	public void paint(Graphics graphics, JComponent component) {
+		UIStats stats = UIStats.get();
+		long start = stats.start();
+		super.paint(graphics, component);
+		stats.getSliderPaint().stop(start);
+	}
+	
 	@Override
 	public void paintTrack(Graphics graphics) {
 		graphics.setColor(GUIConstants.COLOR_OUTLINE);
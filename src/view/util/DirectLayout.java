@@ -0,0 +1,56 @@
+package view.util;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.LayoutManager;
+
+/**
+ * Represents a layout manager that hands the layout back to the panel it belongs to. Every panel in the UI already 
+ * knows exactly where each of its children goes, so rather than describing that with constraints to be solved, the 
+ * panel's placement code simply calls {@link Component#setBounds(int, int, int, int)} on each child whenever the panel 
+ * is laid out. No springs or constraint objects are created, and nothing is solved.
+ * 
+ * <p>Swing lays out a container whenever it is validated after its size has changed, so panels using this layout 
+ * don't need to listen for being resized or revalidate themselves afterwards.
+ * 
+ * @author Adam
+ */
+public class DirectLayout implements LayoutManager {
+	private Runnable placer;
+	
+	/**
+	 * Creates a new <code>DirectLayout</code>.
+	 * @param placer places every child of the container, based on the container's current size.
+	 */
+	public DirectLayout(Runnable placer) {
+		this.placer = placer;
+	}
+	
+	@Override
+	public void addLayoutComponent(String name, Component component) {}
+	
+	@Override
+	public void removeLayoutComponent(Component component) {}
+	
+	/**
+	 * Returns the current size of the container, since the panels using this layout are always sized by their parent.
+	 */
+	@Override
+	public Dimension preferredLayoutSize(Container parent) {
+		return parent.getSize();
+	}
+	
+	@Override
+	public Dimension minimumLayoutSize(Container parent) {
+		return new Dimension(0, 0);
+	}
+	
+	@Override
+	public void layoutContainer(Container parent) {
+		UIStats stats = UIStats.get();
+		long start = stats.start();
+		placer.run();
+		stats.getLayout().stop(start);
+	}
+}
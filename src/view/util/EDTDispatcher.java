@@ -5,8 +5,9 @@ import java.lang.reflect.InvocationTargetException;
 import javax.swing.SwingUtilities;
 
 /**
- * Contains static methods for invoking code on the AWT event dispatching thread for convenience.
- * 
+ * Contains static methods for invoking code on the AWT event dispatching thread for convenience. While the UI is being 
+ * timed, how long each task waited to run is recorded in {@link UIStats}.
+ *
  * @author Adam
  */
 public class EDTDispatcher {
@@ -15,7 +16,7 @@ public class EDTDispatcher {
 	 * @param runnable what to perform asynchronously on the AWT event dispatching thread.
 	 */
 	public static void doLater(Runnable runnable) {
-		SwingUtilities.invokeLater(runnable);
+		SwingUtilities.invokeLater(timed(runnable));
 	}
 	
 	/**
@@ -25,9 +26,26 @@ public class EDTDispatcher {
 	public static void doAndWait(Runnable runnable) {
 		// This was the main reason for wrapping these methods in a class.
 		try {
-			SwingUtilities.invokeAndWait(runnable);
+			SwingUtilities.invokeAndWait(timed(runnable));
 		} catch (InvocationTargetException | InterruptedException e) {
 			e.printStackTrace();
 		}
 	}
+	
+	/**
+	 * Wraps a task so that how long it waits in the event queue is recorded, if the UI is being timed.
+	 * @param runnable the task to wrap.
+	 * @return the wrapped task, or the task itself if the UI isn't being timed.
+	 */
+	private static Runnable timed(Runnable runnable) {
+		UIStats stats = UIStats.get();
+		long queued = stats.start();
+		if (queued == 0)
+			return runnable;
+		
+		return () -> {
+			stats.getQueue().stop(queued);
+			runnable.run();
+		};
+	}
 }
@@ -1,22 +1,71 @@
 package view.util;
 
 import java.awt.Color;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
 
 /**
  * Represents a container for common colors and metrics used in the UI. Note that some UI components might still define 
  * their own specific constants if needed.
  * 
+ * <p>Every metric is in screen pixels, already multiplied by the display scale. The scale is a whole number so that the 
+ * pixel art stays sharp: it is the screen's DPI divided by 96 and rounded down, or whatever the 
+ * <code>retrorain.scale</code> system property asks for. If the JVM already scales the UI for a HiDPI screen itself, 
+ * the display scale is 1.
+ * 
  * @author Adam
  */
 public class GUIConstants {
+	public static final int SCALE = getDisplayScale();
+	
 	public static final Color COLOR_PRIMARY = new Color(128, 144, 156);
 	public static final Color COLOR_SECONDARY = new Color(213, 201, 192);
 	public static final Color COLOR_OUTLINE = Color.BLACK;
 	public static final Color COLOR_SHINE = new Color(255, 246, 232);
 	
-	public static final int SIZE_PADDING = 5;
-	public static final int SIZE_SHINE = 2;
-	public static final int SIZE_THUMB_EDGE = 2;
+	public static final int SIZE_PADDING = scale(5);
+	public static final int SIZE_SHINE = scale(2);
+	public static final int SIZE_THUMB_EDGE = scale(2);
+	
+	private static final String SCALE_PROPERTY = "retrorain.scale";
+	private static final int BASE_DPI = 96;
 	
 	private GUIConstants() {}
+	
+	/**
+	 * Scales a metric from the size it was designed at to the display scale.
+	 * @param size the size in unscaled pixels.
+	 * @return the size in screen pixels.
+	 */
+	public static int scale(int size) {
+		return size * SCALE;
+	}
+	
+	/**
+	 * Scales a font size from the size it was designed at to the display scale.
+	 * @param size the font size in unscaled points.
+	 * @return the font size to use on screen.
+	 */
+	public static float scale(float size) {
+		return size * SCALE;
+	}
+	
+	/**
+	 * Determines the display scale of the UI.
+	 * @return the display scale, which is at least 1.
+	 */
+	private static int getDisplayScale() {
+		Integer requested = Integer.getInteger(SCALE_PROPERTY);
+		if (requested != null)
+			return Math.max(1, requested);
+		if (GraphicsEnvironment.isHeadless())
+			return 1;
+		
+		// Newer JVMs scale everything that is painted on HiDPI screens, so scaling here too would double it.
+		double jvmScale = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice() 
+				.getDefaultConfiguration().getDefaultTransform().getScaleX();
+		if (jvmScale > 1)
+			return 1;
+		return Math.max(1, Toolkit.getDefaultToolkit().getScreenResolution() / BASE_DPI);
+	}
 }
@@ -0,0 +1,244 @@
+package view.util;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds every glyph of a font, at one size and in one pair of colors, rasterized once into a single opaque image. A 
+ * string is drawn by copying the rows of its glyphs out of the atlas into a line and blitting the line, so no font 
+ * rasterizing or blending happens while painting. Since the glyphs are rasterized without antialiasing, pixel fonts 
+ * such as <code>prstart.ttf</code> also stay sharp at every size.
+ * 
+ * <p>Each glyph is given a cell exactly as wide as its advance, which suits monospaced pixel fonts whose glyphs never 
+ * reach past their advance. The atlas covers the characters from 32 to 255 that the font can display. Strings with any 
+ * other character are drawn with the font as usual.
+ * 
+ * @author Adam
+ */
+public class GlyphAtlas {
+	private static final int FIRST_CHARACTER = 32;
+	private static final int CHARACTER_COUNT = 256;
+	
+	private static Map<Font, Map<Color, Map<Color, GlyphAtlas>>> atlases = 
+			new HashMap<Font, Map<Color, Map<Color, GlyphAtlas>>>();
+	
+	private Font font;
+	private Color foreground;
+	private Color background;
+	private FontMetrics metrics;
+	private int top;
+	private int height;
+	
+	// The metrics table, indexed by character. An advance of 0 means the character isn't in the atlas.
+	private int[] atlasX;
+	private int[] advances;
+	private int[] atlasPixels;
+	private int atlasStride;
+	
+	private BufferedImage line;
+	private int[] linePixels;
+	
+	/**
+	 * Creates a new <code>GlyphAtlas</code> and rasterizes its glyphs.
+	 * @param font the font to rasterize.
+	 * @param foreground the color of the glyphs.
+	 * @param background the color behind the glyphs.
+	 */
+	private GlyphAtlas(Font font, Color foreground, Color background) {
+		this.font = font;
+		this.foreground = foreground;
+		this.background = background;
+		atlasX = new int[CHARACTER_COUNT];
+		advances = new int[CHARACTER_COUNT];
+		rasterize();
+	}
+	
+	/**
+	 * Returns the atlas of a font in a pair of colors, rasterizing it the first time it is asked for.
+	 * @param font the font of the atlas.
+	 * @param foreground the color of the glyphs.
+	 * @param background the color behind the glyphs.
+	 * @return the <code>GlyphAtlas</code> of that font and those colors.
+	 */
+	public static synchronized GlyphAtlas get(Font font, Color foreground, Color background) {
+		return atlases.computeIfAbsent(font, key -> new HashMap<Color, Map<Color, GlyphAtlas>>()) 
+				.computeIfAbsent(foreground, key -> new HashMap<Color, GlyphAtlas>())
+				.computeIfAbsent(background, key -> new GlyphAtlas(font, foreground, background));
+	}
+	
+	/**
+	 * Returns the metrics of the font this atlas was rasterized from.
+	 * @return the <code>FontMetrics</code> of the font.
+	 */
+	public FontMetrics getFontMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Returns how wide a string is when drawn.
+	 * @param text the string to measure.
+	 * @return the width of the string in pixels.
+	 */
+	public int stringWidth(String text) {
+		int width = 0;
+		for (int i = 0; i < text.length(); i++)
+			width += charWidth(text.charAt(i));
+		return width;
+	}
+	
+	/**
+	 * Returns how far a character moves the pen when drawn.
+	 * @param character the character to measure.
+	 * @return the advance of the character in pixels.
+	 */
+	public int charWidth(char character) {
+		return (character < CHARACTER_COUNT && advances[character] > 0) ? advances[character] : 
+				metrics.charWidth(character);
+	}
+	
+	/**
+	 * Draws a string over the atlas's background color. The rows covered by the glyphs are filled with the background 
+	 * along the way, but nothing else is.
+	 * 
+	 * <p>The line the glyphs are copied into is shared by every string drawn with this atlas, so this must only be 
+	 * invoked on the event dispatching thread.
+	 * @param graphics the graphics context to draw with.
+	 * @param text the string to draw.
+	 * @param x the x coordinate of the start of the string.
+	 * @param baseline the y coordinate of the baseline of the string.
+	 */
+	public void drawString(Graphics graphics, String text, int x, int baseline) {
+		int width = stringWidth(text);
+		int y = baseline + top;
+		if (width == 0)
+			return;
+		if (!canDraw(text)) {
+			graphics.setColor(background);
+			graphics.fillRect(x, y, width, height);
+			if (graphics instanceof Graphics2D)
+				setHints((Graphics2D)graphics);
+			graphics.setFont(font);
+			graphics.setColor(foreground);
+			graphics.drawString(text, x, baseline);
+			return;
+		}
+		
+		if (line == null || line.getWidth() < width) {
+			line = new BufferedImage(Math.max(width, (line == null) ? 0 : line.getWidth() * 2), height, 
+					BufferedImage.TYPE_INT_RGB);
+			linePixels = ((DataBufferInt)line.getRaster().getDataBuffer()).getData();
+		}
+		
+		// The cells of the glyphs tile the line exactly, so copying them overwrites the whole line.
+		int lineStride = line.getWidth();
+		int pen = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char character = text.charAt(i);
+			int source = atlasX[character];
+			int advance = advances[character];
+			for (int row = 0; row < height; row++)
+				System.arraycopy(atlasPixels, row * atlasStride + source, linePixels, row * lineStride + pen, advance);
+			pen += advance;
+		}
+		graphics.drawImage(line, x, y, x + width, y + height, 0, 0, width, height, null);
+	}
+	
+	/**
+	 * Returns how far above the baseline the drawn glyphs reach, which can be further than the font's ascent.
+	 * @return the distance from the top of a drawn string to its baseline.
+	 */
+	public int getTop() {
+		return -top;
+	}
+	
+	/**
+	 * Returns how tall a drawn string is.
+	 * @return the height of a drawn string in pixels.
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Returns whether or not every character of a string is in the atlas.
+	 * @param text the string to check.
+	 * @return true if the whole string can be drawn from the atlas, false otherwise.
+	 */
+	private boolean canDraw(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			char character = text.charAt(i);
+			if (character >= CHARACTER_COUNT || advances[character] == 0)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Measures every glyph, lays them out side by side, and draws them into the atlas image.
+	 */
+	private void rasterize() {
+		BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+		Graphics2D scratchGraphics = scratch.createGraphics();
+		setHints(scratchGraphics);
+		metrics = scratchGraphics.getFontMetrics(font);
+		FontRenderContext context = scratchGraphics.getFontRenderContext();
+		scratchGraphics.dispose();
+		
+		// Some glyphs reach above the ascent or below the descent, so their pixel bounds decide the height.
+		top = -metrics.getAscent();
+		int bottom = metrics.getDescent();
+		int width = 0;
+		for (char character = FIRST_CHARACTER; character < CHARACTER_COUNT; character++) {
+			if (!font.canDisplay(character) || metrics.charWidth(character) <= 0)
+				continue;
+			
+			Rectangle bounds = font.createGlyphVector(context, String.valueOf(character)).getPixelBounds(context, 0, 0);
+			advances[character] = metrics.charWidth(character);
+			atlasX[character] = width;
+			width += advances[character];
+			if (!bounds.isEmpty()) {
+				top = Math.min(top, bounds.y);
+				bottom = Math.max(bottom, bounds.y + bounds.height);
+			}
+		}
+		height = bottom - top;
+		
+		BufferedImage image = new BufferedImage(Math.max(width, 1), height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = image.createGraphics();
+		graphics.setColor(background);
+		graphics.fillRect(0, 0, image.getWidth(), height);
+		setHints(graphics);
+		graphics.setFont(font);
+		graphics.setColor(foreground);
+		for (char character = FIRST_CHARACTER; character < CHARACTER_COUNT; character++) {
+			if (advances[character] > 0) {
+				// Clipping to the cell cuts off anything that would spill into the neighbouring glyphs.
+				Graphics cell = graphics.create(atlasX[character], 0, advances[character], height);
+				cell.drawString(String.valueOf(character), 0, -top);
+				cell.dispose();
+			}
+		}
+		graphics.dispose();
+		atlasPixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+		atlasStride = image.getWidth();
+	}
+	
+	/**
+	 * Turns off antialiasing and fractional metrics, so that every glyph lands on whole pixels.
+	 * @param graphics the graphics context to set up.
+	 */
+	private static void setHints(Graphics2D graphics) {
+		graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+		graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
+	}
+}
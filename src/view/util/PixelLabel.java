@@ -0,0 +1,133 @@
+package view.util;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Insets;
+
+import javax.swing.JComponent;
+
+/**
+ * Represents a lightweight label that draws its text from a {@link GlyphAtlas}. It lays out its single line of text 
+ * the same way a left-aligned <code>JLabel</code> does, centering it vertically and cutting it short with "..." when 
+ * it doesn't fit.
+ * 
+ * <p>The label is opaque and fills itself with its background color, which it inherits from its parent unless one is 
+ * set, so that the atlas can hold its glyphs already drawn over that color.
+ * 
+ * @author Adam
+ */
+@SuppressWarnings("serial")
+public class PixelLabel extends JComponent {
+	private static final String ELLIPSIS = "...";
+	
+	private String text;
+	private GlyphAtlas atlas;
+	private Font atlasFont;
+	private Color atlasForeground;
+	private Color atlasBackground;
+	
+	/**
+	 * Creates a new <code>PixelLabel</code> instance.
+	 * @param text the text to show.
+	 */
+	public PixelLabel(String text) {
+		this.text = text;
+		setFocusable(false);
+		setOpaque(true);
+	}
+	
+	/**
+	 * Returns the text this label shows.
+	 * @return the text of this label.
+	 */
+	public String getText() {
+		return text;
+	}
+	
+	/**
+	 * Sets the text this label shows. Labels are sized by their parents, so this only repaints the label.
+	 * @param text the text to show.
+	 */
+	public void setText(String text) {
+		if (!text.equals(this.text)) {
+			this.text = text;
+			repaint();
+		}
+	}
+	
+	@Override
+	public Dimension getPreferredSize() {
+		if (isPreferredSizeSet())
+			return super.getPreferredSize();
+		
+		Insets insets = getInsets();
+		return new Dimension(getAtlas().stringWidth(text) + insets.left + insets.right, 
+				getAtlas().getFontMetrics().getHeight() + insets.top + insets.bottom);
+	}
+	
+	@Override
+	public void paintComponent(Graphics graphics) {
+		GlyphAtlas atlas = getAtlas();
+		Insets insets = getInsets();
+		int width = getWidth() - insets.left - insets.right;
+		int height = getHeight() - insets.top - insets.bottom;
+		int baseline = insets.top + (height / 2) - (atlas.getFontMetrics().getHeight() / 2) + 
+				atlas.getFontMetrics().getAscent();
+		String shown = clip(atlas, text, width);
+		atlas.drawString(graphics, shown, insets.left, baseline);
+		
+		// The atlas fills the background behind the text, so only the rest of the label is filled here.
+		int textRight = insets.left + atlas.stringWidth(shown);
+		int textTop = baseline - atlas.getTop();
+		int textBottom = textTop + atlas.getHeight();
+		graphics.setColor(getBackground());
+		graphics.fillRect(0, 0, getWidth(), textTop);
+		graphics.fillRect(0, textBottom, getWidth(), getHeight() - textBottom);
+		graphics.fillRect(0, textTop, insets.left, textBottom - textTop);
+		graphics.fillRect(textRight, textTop, getWidth() - textRight, textBottom - textTop);
+	}
+	
+	/**
+	 * Returns the atlas to draw with, fetching it first if the font or colors have changed, including when they are 
+	 * inherited from a parent.
+	 * @return the <code>GlyphAtlas</code> of this label's font and colors.
+	 */
+	private GlyphAtlas getAtlas() {
+		Font font = getFont();
+		Color foreground = getForeground();
+		Color background = getBackground();
+		if (atlas == null || !font.equals(atlasFont) || !foreground.equals(atlasForeground) || 
+				!background.equals(atlasBackground)) {
+			atlas = GlyphAtlas.get(font, foreground, background);
+			atlasFont = font;
+			atlasForeground = foreground;
+			atlasBackground = background;
+		}
+		return atlas;
+	}
+	
+	/**
+	 * Cuts a string short with "..." if it is too wide to fit.
+	 * @param atlas the atlas the string will be drawn with.
+	 * @param text the string to fit.
+	 * @param width the width available.
+	 * @return the string itself if it fits, or as much of it as fits followed by "..." otherwise.
+	 */
+	private static String clip(GlyphAtlas atlas, String text, int width) {
+		if (atlas.stringWidth(text) <= width)
+			return text;
+		
+		int available = width - atlas.stringWidth(ELLIPSIS);
+		int length = 0;
+		int used = 0;
+		while (length < text.length()) {
+			used += atlas.charWidth(text.charAt(length));
+			if (used > available)
+				break;
+			length++;
+		}
+		return text.substring(0, length) + ELLIPSIS;
+	}
+}
@@ -0,0 +1,44 @@
+package view.util;
+
+import javax.swing.ImageIcon;
+
+/**
+ * Represents a button that switches between full quality and the low-power mode, showing a full battery or a low 
+ * battery accordingly.
+ * 
+ * @author Adam
+ */
+@SuppressWarnings("serial")
+public class PowerButton extends CustomButton {
+	private ImageIcon fullIcon;
+	private ImageIcon lowIcon;
+	private boolean lowPower;
+	
+	/**
+	 * Creates a new <code>PowerButton</code>, starting out at full quality.
+	 */
+	public PowerButton() {
+		super(ViewResources.get().getImage("button_power_full.png"));
+		fullIcon = (ImageIcon)getIcon();
+		lowIcon = new ImageIcon(ViewResources.get().getImage("button_power_low.png"));
+	}
+	
+	/**
+	 * Sets whether this button shows the low-power mode as on.
+	 * @param lowPower true to show the low-power mode as on, false to show full quality.
+	 */
+	public void setLowPower(boolean lowPower) {
+		if (lowPower != this.lowPower) {
+			this.lowPower = lowPower;
+			setIcon(lowPower ? lowIcon : fullIcon);
+		}
+	}
+	
+	/**
+	 * Returns whether this button shows the low-power mode as on.
+	 * @return true if the low-power mode is shown as on, false if full quality is.
+	 */
+	public boolean isLowPower() {
+		return lowPower;
+	}
+}
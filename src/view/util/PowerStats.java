@@ -0,0 +1,143 @@
+package view.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects how much CPU time the program uses while its window is minimized, when nothing but the audio should still 
+ * be running. The CPU time of the whole process and of the event dispatching thread are read as the window is 
+ * minimized and restored, so a UI that keeps working while it can't be seen shows up as CPU time on the event 
+ * dispatching thread.
+ * 
+ * <p>The process's CPU time can only be read on JVMs whose operating system MXBean is the HotSpot extension of it, and 
+ * is reported as unavailable elsewhere.
+ * 
+ * @author Adam
+ */
+public class PowerStats {
+	private static PowerStats instance;
+	
+	private OperatingSystemMXBean system;
+	private ThreadMXBean threads;
+	private long edtThreadId;
+	
+	private boolean hidden;
+	private int hides;
+	private long hiddenNanos;
+	private long processCpuNanos;
+	private long edtCpuNanos;
+	private long hideNanos;
+	private long hideProcessCpuNanos;
+	private long hideEdtCpuNanos;
+	
+	/**
+	 * Creates a new <code>PowerStats</code> instance. Private for the Singleton pattern.
+	 */
+	private PowerStats() {
+		system = ManagementFactory.getOperatingSystemMXBean();
+		threads = ManagementFactory.getThreadMXBean();
+		edtThreadId = -1;
+	}
+	
+	/**
+	 * Returns the Singleton instance of this class.
+	 * @return the single <code>PowerStats</code> instance.
+	 */
+	public static synchronized PowerStats get() {
+		if (instance == null)
+			instance = new PowerStats();
+		return instance;
+	}
+	
+	/**
+	 * Records that the window was minimized or restored. Must be invoked on the event dispatching thread.
+	 * @param hidden true if the window was minimized, false if it was restored.
+	 */
+	public synchronized void setHidden(boolean hidden) {
+		if (hidden == this.hidden)
+			return;
+		
+		this.hidden = hidden;
+		edtThreadId = Thread.currentThread().getId();
+		if (hidden) {
+			hides++;
+			hideNanos = System.nanoTime();
+			hideProcessCpuNanos = getProcessCpuNanos();
+			hideEdtCpuNanos = getEdtCpuNanos();
+		} else {
+			hiddenNanos += System.nanoTime() - hideNanos;
+			processCpuNanos += getProcessCpuNanos() - hideProcessCpuNanos;
+			edtCpuNanos += getEdtCpuNanos() - hideEdtCpuNanos;
+		}
+	}
+	
+	/**
+	 * Returns whether or not the window is minimized.
+	 * @return true if the window is minimized, false if it is showing.
+	 */
+	public synchronized boolean isHidden() {
+		return hidden;
+	}
+	
+	/**
+	 * Formats how long the window has been minimized and how much CPU time was used meanwhile, for display. Time 
+	 * minimized so far counts even while the window is still minimized.
+	 * @return the lines of text.
+	 */
+	public synchronized List<String> toLines() {
+		long wallNanos = hiddenNanos;
+		long processNanos = processCpuNanos;
+		long edtNanos = edtCpuNanos;
+		if (hidden) {
+			wallNanos += System.nanoTime() - hideNanos;
+			processNanos += getProcessCpuNanos() - hideProcessCpuNanos;
+			edtNanos += getEdtCpuNanos() - hideEdtCpuNanos;
+		}
+		
+		List<String> lines = new ArrayList<String>();
+		lines.add(String.format("window     %s", hidden ? "minimized" : "showing"));
+		lines.add(String.format("minimized  %d times, %.1f s", hides, wallNanos / 1e9));
+		if (system instanceof com.sun.management.OperatingSystemMXBean)
+			lines.add(String.format("cpu        %.1f%% of a core", getPercent(processNanos, wallNanos)));
+		else
+			lines.add("cpu        unavailable");
+		if (threads.isThreadCpuTimeSupported())
+			lines.add(String.format("edt cpu    %.1f ms", edtNanos / 1e6));
+		else
+			lines.add("edt cpu    unavailable");
+		return lines;
+	}
+	
+	/**
+	 * Returns how much CPU time the whole process has used so far.
+	 * @return the CPU time in nanoseconds, or 0 if it can't be read.
+	 */
+	private long getProcessCpuNanos() {
+		if (system instanceof com.sun.management.OperatingSystemMXBean)
+			return Math.max(0, ((com.sun.management.OperatingSystemMXBean)system).getProcessCpuTime());
+		return 0;
+	}
+	
+	/**
+	 * Returns how much CPU time the event dispatching thread has used so far.
+	 * @return the CPU time in nanoseconds, or 0 if it can't be read.
+	 */
+	private long getEdtCpuNanos() {
+		if (edtThreadId == -1 || !threads.isThreadCpuTimeSupported())
+			return 0;
+		return Math.max(0, threads.getThreadCpuTime(edtThreadId));
+	}
+	
+	/**
+	 * Works out how much of a single core some CPU time took up over some wall time.
+	 * @param cpuNanos the CPU time in nanoseconds.
+	 * @param wallNanos the wall time in nanoseconds.
+	 * @return the percentage of a core, or 0 if no wall time has passed.
+	 */
+	private static double getPercent(long cpuNanos, long wallNanos) {
+		return (wallNanos == 0) ? 0 : cpuNanos * 100.0 / wallNanos;
+	}
+}
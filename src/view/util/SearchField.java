@@ -0,0 +1,86 @@
+package view.util;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyEvent;
+
+import javax.swing.BorderFactory;
+import javax.swing.JTextField;
+
+/**
+ * Represents a small text field in the style of the rest of the UI, used to type search queries. While empty and not 
+ * focused, it shows a hint of what it is for. Pressing escape clears it.
+ * 
+ * @author Adam
+ */
+@SuppressWarnings("serial")
+public class SearchField extends JTextField {
+	private static final int FIELD_WIDTH = GUIConstants.scale(140);
+	private static final int FIELD_HEIGHT = GUIConstants.scale(20);
+	
+	private String hint;
+	
+	/**
+	 * Creates a new <code>SearchField</code> instance.
+	 * @param hint the text to show while the field is empty.
+	 */
+	public SearchField(String hint) {
+		this.hint = hint;
+		setFont(ViewResources.get().getFont("prstart.ttf", 8.0f));
+		setForeground(GUIConstants.COLOR_OUTLINE);
+		setBackground(GUIConstants.COLOR_SECONDARY);
+		setCaretColor(GUIConstants.COLOR_OUTLINE);
+		setSelectionColor(GUIConstants.COLOR_PRIMARY);
+		setSelectedTextColor(Color.WHITE);
+		setBorder(BorderFactory.createCompoundBorder( 
+				BorderFactory.createLineBorder(GUIConstants.COLOR_OUTLINE, GUIConstants.SIZE_THUMB_EDGE),
+				BorderFactory.createEmptyBorder(0, GUIConstants.SIZE_PADDING, 0, GUIConstants.SIZE_PADDING)));
+		
+		Dimension size = new Dimension(FIELD_WIDTH, FIELD_HEIGHT);
+		setSize(size);
+		setPreferredSize(size);
+		setupEventHandling();
+	}
+	
+	@Override
+	public void paintComponent(Graphics graphics) {
+		super.paintComponent(graphics);
+		
+		if (getDocument().getLength() == 0 && !hasFocus()) {
+			graphics.setColor(GUIConstants.COLOR_PRIMARY);
+			graphics.setFont(getFont());
+			int y = (getHeight() + graphics.getFontMetrics().getAscent()) / 2;
+			graphics.drawString(hint, getInsets().left, y);
+		}
+	}
+	
+	/**
+	 * Repaints the field whenever it gains or loses focus, so that the hint appears and disappears.
+	 */
+	private void setupEventHandling() {
+		addFocusListener(new FocusAdapter() {
+			@Override
+			public void focusGained(FocusEvent e) {
+				repaint();
+			}
+			
+			@Override
+			public void focusLost(FocusEvent e) {
+				repaint();
+			}
+		});
+	}
+	
+	@Override
+	protected void processKeyEvent(KeyEvent e) {
+		if (e.getID() == KeyEvent.KEY_PRESSED && e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+			setText("");
+			e.consume();
+			return;
+		}
+		super.processKeyEvent(e);
+	}
+}
@@ -0,0 +1,81 @@
+package view.util;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * Represents a single animation driven by the {@link AnimationClock}. Once started, a tween is told its progress every 
+ * frame, from 0 at the start to 1 once its duration has passed, after which it finishes.
+ * 
+ * <p>Like the rest of Swing, tweens are only meant to be started, cancelled and updated on the event dispatching 
+ * thread.
+ * 
+ * @author Adam
+ */
+public class Tween {
+	private long durationNanos;
+	private DoubleConsumer updater;
+	private Runnable finisher;
+	private long startNanos;
+	private boolean running;
+	
+	/**
+	 * Creates a new <code>Tween</code>. Nothing happens until it is started.
+	 * @param durationMillis how long the tween lasts.
+	 * @param updater told the progress of the tween every frame, as a value between 0 and 1.
+	 * @param finisher invoked after the final update, unless the tween was cancelled. May be <code>null</code>.
+	 */
+	public Tween(long durationMillis, DoubleConsumer updater, Runnable finisher) {
+		this.durationNanos = Math.max(0, durationMillis) * 1000000L;
+		this.updater = updater;
+		this.finisher = finisher;
+	}
+	
+	/**
+	 * Starts this tween from the beginning. It is first updated on the next frame of the animation clock. Starting a 
+	 * tween that is already running restarts it.
+	 */
+	public void start() {
+		startNanos = System.nanoTime();
+		running = true;
+		AnimationClock.get().add(this);
+	}
+	
+	/**
+	 * Stops this tween where it is, without updating it again or invoking its finisher.
+	 */
+	public void cancel() {
+		if (running) {
+			running = false;
+			AnimationClock.get().remove(this);
+		}
+	}
+	
+	/**
+	 * Returns whether or not this tween has been started and has not yet finished or been cancelled.
+	 * @return true if the tween is running, false otherwise.
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+	
+	/**
+	 * Updates this tween for a frame. Invoked by the animation clock.
+	 * @param frameNanos the time of the frame.
+	 * @return true if the tween should be updated again next frame, false if it has finished.
+	 */
+	boolean step(long frameNanos) {
+		if (!running)
+			return false;
+		
+		long elapsed = frameNanos - startNanos;
+		double progress = (durationNanos == 0) ? 1 : Math.min(1, (double)elapsed / durationNanos);
+		updater.accept(progress);
+		if (progress < 1)
+			return true;
+		
+		running = false;
+		if (finisher != null)
+			finisher.run();
+		return false;
+	}
+}
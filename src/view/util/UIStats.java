@@ -0,0 +1,322 @@
+package view.util;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.InputEvent;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Collects timing information about the UI, such as how long tasks wait in the event queue, how long each event takes 
+ * to dispatch, and how long layout and painting take. This tells whether a stutter in the UI comes from painting, 
+ * layout, or from something blocking the event dispatching thread.
+ * 
+ * <p>Timing is off until it is enabled, so the instrumented code only pays for a single check. Once enabled, the 
+ * statistics are also published as the <code>retrorain:type=UIStats</code> MXBean so that JConsole or Java Mission 
+ * Control can chart and record them.
+ * 
+ * <p>Only the event dispatching thread records timings, so any thread can safely read them at any time.
+ * 
+ * @author Adam
+ */
+public class UIStats implements UIStatsMXBean {
+	private static final String OBJECT_NAME = "retrorain:type=UIStats";
+	
+	private static UIStats instance;
+	
+	private volatile boolean enabled;
+	private boolean installed;
+	
+	private Timing queue;
+	private Timing input;
+	private Timing dispatch;
+	private Timing layout;
+	private Timing paint;
+	private Timing buttonPaint;
+	private Timing sliderPaint;
+	private Timing scrollbarPaint;
+	
+	/**
+	 * Creates a new <code>UIStats</code> instance. Private for the Singleton pattern.
+	 */
+	private UIStats() {
+		queue = new Timing();
+		input = new Timing();
+		dispatch = new Timing();
+		layout = new Timing();
+		paint = new Timing();
+		buttonPaint = new Timing();
+		sliderPaint = new Timing();
+		scrollbarPaint = new Timing();
+	}
+	
+	/**
+	 * Returns the Singleton instance of this class.
+	 * @return the single <code>UIStats</code> instance.
+	 */
+	public static synchronized UIStats get() {
+		if (instance == null)
+			instance = new UIStats();
+		return instance;
+	}
+	
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * Enables or disables timing of the UI. Enabling it zeroes every timing, and the first time, also starts timing 
+	 * every event dispatched by the event queue and publishes the statistics as an MXBean.
+	 * @param enabled true to start timing, false to stop.
+	 */
+	@Override
+	public void setEnabled(boolean enabled) {
+		if (enabled) {
+			reset();
+			install();
+		}
+		this.enabled = enabled;
+	}
+	
+	/**
+	 * Returns the current time if the UI is being timed, to be handed to a <code>Timing</code> once the timed work is 
+	 * done.
+	 * @return the current time in nanoseconds, or 0 if timing is disabled.
+	 */
+	public long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+	
+	/**
+	 * Returns how long tasks handed to the {@link EDTDispatcher} waited before running.
+	 * @return the queue latency <code>Timing</code>.
+	 */
+	public Timing getQueue() {
+		return queue;
+	}
+	
+	/**
+	 * Returns how long the event dispatching thread took to dispatch each event, including any painting it did.
+	 * @return the dispatch <code>Timing</code>.
+	 */
+	public Timing getDispatch() {
+		return dispatch;
+	}
+	
+	/**
+	 * Returns how long containers took to lay out their children.
+	 * @return the layout <code>Timing</code>.
+	 */
+	public Timing getLayout() {
+		return layout;
+	}
+	
+	/**
+	 * Returns how long the whole window took to paint.
+	 * @return the paint <code>Timing</code>.
+	 */
+	public Timing getPaint() {
+		return paint;
+	}
+	
+	/**
+	 * Returns how long custom buttons took to paint.
+	 * @return the button paint <code>Timing</code>.
+	 */
+	public Timing getButtonPaint() {
+		return buttonPaint;
+	}
+	
+	/**
+	 * Returns how long custom sliders took to paint.
+	 * @return the slider paint <code>Timing</code>.
+	 */
+	public Timing getSliderPaint() {
+		return sliderPaint;
+	}
+	
+	/**
+	 * Returns how long custom scrollbars took to paint.
+	 * @return the scrollbar paint <code>Timing</code>.
+	 */
+	public Timing getScrollbarPaint() {
+		return scrollbarPaint;
+	}
+	
+	@Override
+	public long getAverageQueueMicros() {
+		return queue.getAverageNanos() / 1000;
+	}
+	
+	@Override
+	public long getMaxQueueMicros() {
+		return queue.getMaxNanos() / 1000;
+	}
+	
+	@Override
+	public long getAverageDispatchMicros() {
+		return dispatch.getAverageNanos() / 1000;
+	}
+	
+	@Override
+	public long getMaxDispatchMicros() {
+		return dispatch.getMaxNanos() / 1000;
+	}
+	
+	@Override
+	public long getAverageLayoutMicros() {
+		return layout.getAverageNanos() / 1000;
+	}
+	
+	@Override
+	public long getMaxLayoutMicros() {
+		return layout.getMaxNanos() / 1000;
+	}
+	
+	@Override
+	public long getAveragePaintMicros() {
+		return paint.getAverageNanos() / 1000;
+	}
+	
+	@Override
+	public long getMaxPaintMicros() {
+		return paint.getMaxNanos() / 1000;
+	}
+	
+	@Override
+	public void reset() {
+		queue.reset();
+		input.reset();
+		dispatch.reset();
+		layout.reset();
+		paint.reset();
+		buttonPaint.reset();
+		sliderPaint.reset();
+		scrollbarPaint.reset();
+	}
+	
+	/**
+	 * Formats the statistics into human readable lines, suitable for the diagnostics overlay or a log file. Each line 
+	 * shows the average and maximum time.
+	 * @return the formatted statistics.
+	 */
+	public List<String> toLines() {
+		List<String> lines = new ArrayList<String>();
+		lines.add(queue.toLine("queue"));
+		lines.add(input.toLine("input"));
+		lines.add(dispatch.toLine("dispatch"));
+		lines.add(layout.toLine("layout"));
+		lines.add(paint.toLine("paint"));
+		lines.add(buttonPaint.toLine("button"));
+		lines.add(sliderPaint.toLine("slider"));
+		lines.add(scrollbarPaint.toLine("scrollbar"));
+		return lines;
+	}
+	
+	/**
+	 * Starts timing every event dispatched by the event queue and registers the MXBean, if this hasn't been done 
+	 * already.
+	 */
+	private synchronized void install() {
+		if (installed)
+			return;
+		installed = true;
+		
+		Toolkit.getDefaultToolkit().getSystemEventQueue().push(new TimedEventQueue());
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Keeps a running count, total and maximum of how long something took.
+	 * 
+	 * @author Adam
+	 */
+	public static class Timing {
+		private volatile long count;
+		private volatile long totalNanos;
+		private volatile long maxNanos;
+		
+		/**
+		 * Records how long something took, if it was timed.
+		 * @param startNanos what {@link UIStats#start()} returned before the work was done.
+		 */
+		public void stop(long startNanos) {
+			if (startNanos != 0)
+				record(System.nanoTime() - startNanos);
+		}
+		
+		/**
+		 * Returns the average time recorded.
+		 * @return the average time in nanoseconds, or 0 if nothing has been recorded.
+		 */
+		public long getAverageNanos() {
+			long count = this.count;
+			return (count == 0) ? 0 : totalNanos / count;
+		}
+		
+		/**
+		 * Returns the longest time recorded.
+		 * @return the maximum time in nanoseconds.
+		 */
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+		
+		/**
+		 * Records a time.
+		 * @param nanos the time in nanoseconds.
+		 */
+		void record(long nanos) {
+			count++;
+			totalNanos += nanos;
+			if (nanos > maxNanos)
+				maxNanos = nanos;
+		}
+		
+		/**
+		 * Zeroes this timing.
+		 */
+		void reset() {
+			count = 0;
+			totalNanos = 0;
+			maxNanos = 0;
+		}
+		
+		/**
+		 * Formats this timing as a line of the diagnostics overlay.
+		 * @param name the name to start the line with.
+		 * @return the formatted line.
+		 */
+		String toLine(String name) {
+			return String.format("%-10s %.2f / %.2f ms", name, getAverageNanos() / 1e6, maxNanos / 1e6);
+		}
+	}
+	
+	/**
+	 * Times how long each event takes to dispatch, and how long input events waited since they happened.
+	 * 
+	 * @author Adam
+	 */
+	private class TimedEventQueue extends EventQueue {
+		@Override
+		protected void dispatchEvent(AWTEvent event) {
+			long start = start();
+			if (start != 0 && event instanceof InputEvent) {
+				long waitedMillis = System.currentTimeMillis() - ((InputEvent)event).getWhen();
+				input.record(Math.max(0, waitedMillis) * 1000000L);
+			}
+			super.dispatchEvent(event);
+			dispatch.stop(start);
+		}
+	}
+}
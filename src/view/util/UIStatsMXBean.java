@@ -0,0 +1,74 @@
+package view.util;
+
+/**
+ * The management interface of {@link UIStats}, through which tools such as JConsole and Java Mission Control can 
+ * watch and record the UI's timings. Every time is in microseconds.
+ * 
+ * @author Adam
+ */
+public interface UIStatsMXBean {
+	/**
+	 * Returns whether or not the UI is currently being timed.
+	 * @return true if timing is enabled, false otherwise.
+	 */
+	boolean isEnabled();
+	
+	/**
+	 * Enables or disables timing of the UI.
+	 * @param enabled true to start timing, false to stop.
+	 */
+	void setEnabled(boolean enabled);
+	
+	/**
+	 * Returns the average time tasks waited in the event queue before running.
+	 * @return the average queue latency.
+	 */
+	long getAverageQueueMicros();
+	
+	/**
+	 * Returns the longest time a task waited in the event queue before running.
+	 * @return the maximum queue latency.
+	 */
+	long getMaxQueueMicros();
+	
+	/**
+	 * Returns the average time the event dispatching thread spent dispatching an event.
+	 * @return the average dispatch time.
+	 */
+	long getAverageDispatchMicros();
+	
+	/**
+	 * Returns the longest time the event dispatching thread spent dispatching an event.
+	 * @return the maximum dispatch time.
+	 */
+	long getMaxDispatchMicros();
+	
+	/**
+	 * Returns the average time a container took to lay out its children.
+	 * @return the average layout time.
+	 */
+	long getAverageLayoutMicros();
+	
+	/**
+	 * Returns the longest time a container took to lay out its children.
+	 * @return the maximum layout time.
+	 */
+	long getMaxLayoutMicros();
+	
+	/**
+	 * Returns the average time the whole window took to paint.
+	 * @return the average paint time.
+	 */
+	long getAveragePaintMicros();
+	
+	/**
+	 * Returns the longest time the whole window took to paint.
+	 * @return the maximum paint time.
+	 */
+	long getMaxPaintMicros();
+	
+	/**
+	 * Zeroes every timing.
+	 */
+	void reset();
+}
@@ -2,38 +2,62 @@ package view.util;
 
 import java.awt.Font;
 import java.awt.FontFormatException;
+import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
 
 import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+import model.util.DirectoryResourceProvider;
+import model.util.ResourceProvider;
 
 /**
- * Represents the resource pools needed by UI components.
+ * Represents the resource pools needed by UI components. The pools are safe to fill from several loader threads at 
+ * once.
+ * 
+ * <p>Images and fonts are handed out at the display scale of {@link GUIConstants#SCALE}. Each image is scaled up with 
+ * nearest-neighbour sampling the first time it is asked for at a scale, and the result is kept, so nothing is scaled 
+ * while painting.
  * 
+ * <p>Resources can be loaded from any {@link ResourceProvider}, such as a directory or a resource pack.
+ *
  * @author Adam
  */
 public class ViewResources {
 	private static ViewResources instance;
 	
 	private Map<String, Image> imagePool;
+	private Map<Integer, Map<String, Image>> scaledImagePools;
 	private Map<String, Font> fontPool;
+	private Map<String, Font> sizedFontPool;
 	
 	/**
 	 * Creates a new <code>ViewResources</code> instance. Private for the Singleton pattern.
 	 */
 	private ViewResources() {
-		imagePool = new HashMap<String, Image>();
-		fontPool = new HashMap<String, Font>();
+		imagePool = new ConcurrentHashMap<String, Image>();
+		scaledImagePools = new ConcurrentHashMap<Integer, Map<String, Image>>();
+		fontPool = new ConcurrentHashMap<String, Font>();
+		sizedFontPool = new ConcurrentHashMap<String, Font>();
 	}
 	
 	/**
 	 * Returns the Singleton instance of this class.
 	 * @return the single <code>ViewResources</code> instance.
 	 */
-	public static ViewResources get() {
+	public static synchronized ViewResources get() {
 		if (instance == null)
 			instance = new ViewResources();
 		return instance;
@@ -41,62 +65,105 @@ public class ViewResources {
 	
 	/**
 	 * Loads each image from a folder / directory given it has a supported extension. Note that when the image is added 
-	 * to the image pool, the identifier given to it is determined by {@link File#getName()} of the image file.
+	 * to the image pool, the identifier given to it is its path relative to the directory, which is just 
+	 * {@link File#getName()} of the image file unless it is in a subdirectory.
 	 * @param directory where to load the images from.
 	 * @param supportedExtensions a list of file extensions supported (ex: {".jpg", ".png"}).
 	 */
 	public void loadImagesFromDirectory(String directory, String[] supportedExtensions) {
-		File imagesDirectory = new File(directory);
-		File[] imageFiles = imagesDirectory.listFiles((File file, String name) -> {
-			boolean hasSupportedExtension = false;
-			for (String extension : supportedExtensions) {
-				if (name.endsWith(extension)) {
-					hasSupportedExtension = true;
-					break;
-				}
-			}
-			return hasSupportedExtension;
-		});
-		
-		for (File imageFile : imageFiles) {
-			try {
-				imagePool.put(imageFile.getName(), ImageIO.read(imageFile));
+		loadImagesFromDirectory(directory, supportedExtensions, Runnable::run).join();
+	}
+	
+	/**
+	 * Loads each image from a folder / directory given it has a supported extension, decoding the images in parallel.
+	 * @param directory where to load the images from.
+	 * @param supportedExtensions a list of file extensions supported (ex: {".jpg", ".png"}).
+	 * @param executor runs the directory listing and the decoding of each image.
+	 * @return a future that completes once every image is in the image pool.
+	 * @see #loadImagesFromDirectory(String, String[])
+	 */
+	public CompletableFuture<Void> loadImagesFromDirectory(String directory, String[] supportedExtensions, 
+			Executor executor) {
+		return loadImages(new DirectoryResourceProvider(new File(directory)), "", supportedExtensions, executor);
+	}
+	
+	/**
+	 * Loads each image in a directory of a <code>ResourceProvider</code> given it has a supported extension, decoding 
+	 * the images in parallel. The identifier given to each image is its path relative to the directory.
+	 * @param resources where to load the images from.
+	 * @param directory the path of the directory holding the images.
+	 * @param supportedExtensions a list of file extensions supported (ex: {".jpg", ".png"}).
+	 * @param executor runs the listing and the decoding of each image.
+	 * @return a future that completes once every image is in the image pool.
+	 */
+	public CompletableFuture<Void> loadImages(ResourceProvider resources, String directory, 
+			String[] supportedExtensions, Executor executor) {
+		return loadFromProvider(resources, directory, supportedExtensions, executor, (identifier, path) -> {
+			// Without a cache in memory, ImageIO would copy every stream into a temporary file before decoding it.
+			// Reading closes the image stream.
+			try (InputStream stream = resources.open(path)) {
+				ImageInputStream imageStream = new MemoryCacheImageInputStream(stream);
+				imagePool.put(identifier, ImageIO.read(imageStream));
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
-		}
+		});
 	}
 	
 	/**
 	 * Loads each font from a folder / directory given it has a supported extension. Note that when the font is added 
-	 * to the font pool, the identifier given to it is determined by {@link File#getName()} of the font file.
+	 * to the font pool, the identifier given to it is its path relative to the directory, which is just 
+	 * {@link File#getName()} of the font file unless it is in a subdirectory.
 	 * @param directory where to load the fonts from.
 	 * @param supportedExtensions a list of font extensions supported (ex: {".ttf"}).
 	 */
 	public void loadFontsFromDirectory(String directory, String[] supportedExtensions) {
-		File fontsDirectory = new File(directory);
-		File[] fontFiles = fontsDirectory.listFiles((File file, String name) -> {
-			boolean hasSupportedExtension = false;
-			for (String extension : supportedExtensions) {
-				if (name.endsWith(extension)) {
-					hasSupportedExtension = true;
-					break;
-				}
-			}
-			return hasSupportedExtension;
-		});
-		
-		for (File fontFile : fontFiles) {
+		loadFontsFromDirectory(directory, supportedExtensions, Runnable::run).join();
+	}
+	
+	/**
+	 * Loads each font from a folder / directory given it has a supported extension, reading the fonts in parallel.
+	 * @param directory where to load the fonts from.
+	 * @param supportedExtensions a list of font extensions supported (ex: {".ttf"}).
+	 * @param executor runs the directory listing and the reading of each font.
+	 * @return a future that completes once every font is in the font pool.
+	 * @see #loadFontsFromDirectory(String, String[])
+	 */
+	public CompletableFuture<Void> loadFontsFromDirectory(String directory, String[] supportedExtensions, 
+			Executor executor) {
+		return loadFonts(new DirectoryResourceProvider(new File(directory)), "", supportedExtensions, executor);
+	}
+	
+	/**
+	 * Loads each font in a directory of a <code>ResourceProvider</code> given it has a supported extension, reading the 
+	 * fonts in parallel. The identifier given to each font is its path relative to the directory.
+	 * @param resources where to load the fonts from.
+	 * @param directory the path of the directory holding the fonts.
+	 * @param supportedExtensions a list of font extensions supported (ex: {".ttf"}).
+	 * @param executor runs the listing and the reading of each font.
+	 * @return a future that completes once every font is in the font pool.
+	 */
+	public CompletableFuture<Void> loadFonts(ResourceProvider resources, String directory, 
+			String[] supportedExtensions, Executor executor) {
+		return loadFromProvider(resources, directory, supportedExtensions, executor, (identifier, path) -> {
+			// A font read from a stream is copied into a temporary file first, so fonts that are files are read directly.
+			File fontFile = resources.getFile(path);
 			try {
-				fontPool.put(fontFile.getName(), Font.createFont(Font.TRUETYPE_FONT, fontFile));
+				if (fontFile != null) {
+					fontPool.put(identifier, Font.createFont(Font.TRUETYPE_FONT, fontFile));
+				} else {
+					try (InputStream stream = resources.open(path)) {
+						fontPool.put(identifier, Font.createFont(Font.TRUETYPE_FONT, stream));
+					}
+				}
 			} catch (FontFormatException | IOException e) {
 				e.printStackTrace();
 			}
-		}
+		});
 	}
 	
 	/**
-	 * Returns an image from the image pool.
+	 * Returns an image from the image pool, scaled to the display scale.
 	 * @param identifier the name given to the image when it was added to the pool.
 	 * @return the <code>Image</code> associated with the key <code>identifier</code>, or <code>null</code> if it does 
 	 * not exist.
@@ -104,11 +171,29 @@ public class ViewResources {
 	 * pool.
 	 */
 	public Image getImage(String identifier) {
+		return getImage(identifier, GUIConstants.SCALE);
+	}
+	
+	/**
+	 * Returns an image from the image pool, scaled by a whole number with nearest-neighbour sampling. The scaled image 
+	 * is only created the first time it is asked for.
+	 * @param identifier the name given to the image when it was added to the pool.
+	 * @param scale how many times larger the image should be, where 1 is its original size.
+	 * @return the <code>Image</code> associated with the key <code>identifier</code> at the given scale.
+	 * @throws NullPointerException thrown if the image associated with that identifier does not exist in the image 
+	 * pool.
+	 */
+	public Image getImage(String identifier, int scale) {
 		Image result = imagePool.get(identifier);
 		if (result == null)
 			throw new NullPointerException("An image does not exist in the image pool with the identifier \"" + 
 					identifier + "\"");
-		return result;
+		if (scale <= 1)
+			return result;
+		
+		Image original = result;
+		return scaledImagePools.computeIfAbsent(scale, key -> new ConcurrentHashMap<String, Image>()) 
+				.computeIfAbsent(identifier, key -> scaleImage(original, scale));
 	}
 	
 	/**
@@ -125,4 +210,58 @@ public class ViewResources {
 					identifier + "\"");
 		return result;
 	}
+	
+	/**
+	 * Returns a font from the font pool at a given size, scaled to the display scale. Each size is only derived from 
+	 * the font once.
+	 * @param identifier the name given to the font when it was added to the pool.
+	 * @param size the size of the font in unscaled points.
+	 * @return the <code>Font</code> associated with the key <code>identifier</code> at the given size.
+	 * @throws NullPointerException thrown if the font associated with that identifier does not exist in the font pool.
+	 */
+	public Font getFont(String identifier, float size) {
+		Font font = getFont(identifier);
+		return sizedFontPool.computeIfAbsent(identifier + "@" + size, key -> 
+				font.deriveFont(GUIConstants.scale(size)));
+	}
+	
+	/**
+	 * Scales an image up by a whole number, copying each pixel into a square of pixels so that pixel art stays sharp.
+	 * @param image the image to scale.
+	 * @param scale how many times larger the image should be.
+	 * @return the scaled image.
+	 */
+	private static Image scaleImage(Image image, int scale) {
+		int width = image.getWidth(null) * scale;
+		int height = image.getHeight(null) * scale;
+		BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = result.createGraphics();
+		graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+		graphics.drawImage(image, 0, 0, width, height, null);
+		graphics.dispose();
+		return result;
+	}
+	
+	/**
+	 * Lists each resource in a directory with a supported extension and loads each of them as a separate task.
+	 * @param resources where to load the resources from.
+	 * @param directory the path of the directory holding the resources.
+	 * @param supportedExtensions a list of file extensions supported.
+	 * @param executor runs the listing and each of the loading tasks.
+	 * @param loader loads a single resource into one of the resource pools, given its identifier and its full path.
+	 * @return a future that completes once every resource has been loaded.
+	 */
+	private static CompletableFuture<Void> loadFromProvider(ResourceProvider resources, String directory, 
+			String[] supportedExtensions, Executor executor, BiConsumer<String, String> loader) {
+		return CompletableFuture.supplyAsync(() -> resources.list(directory, supportedExtensions), executor) 
+				.thenCompose((List<String> identifiers) -> {
+					CompletableFuture<?>[] loads = new CompletableFuture<?>[identifiers.size()];
+					for (int i = 0; i < loads.length; i++) {
+						String identifier = identifiers.get(i);
+						loads[i] = CompletableFuture.runAsync(() -> 
+								loader.accept(identifier, ResourceProvider.resolve(directory, identifier)), executor);
+					}
+					return CompletableFuture.allOf(loads);
+				});
+	}
 }
@@ -0,0 +1,82 @@
+package view.util;
+
+import java.awt.Graphics;
+
+import javax.swing.JComponent;
+
+import model.Waveform;
+
+/**
+ * Represents a thin strip showing an overview of a track's waveform. The strip is drawn from whichever level of the 
+ * {@link Waveform} best matches its width, and the result is kept in a {@link ChromeCache}, so painting it again only 
+ * takes a single <code>drawImage</code> until the strip is resized or shows another waveform.
+ * 
+ * <p>The strip is opaque and fills itself with its background color, which it inherits from its parent unless one is 
+ * set. Without a waveform, it shows nothing but its background.
+ * 
+ * @author Adam
+ */
+@SuppressWarnings("serial")
+public class WaveformStrip extends JComponent {
+	private Waveform waveform;
+	private ChromeCache chromeCache;
+	
+	/**
+	 * Creates a new <code>WaveformStrip</code> instance that doesn't show a waveform yet.
+	 */
+	public WaveformStrip() {
+		chromeCache = new ChromeCache(this, graphics -> drawWaveform(graphics));
+		setForeground(GUIConstants.COLOR_PRIMARY);
+		setFocusable(false);
+		setOpaque(true);
+	}
+	
+	/**
+	 * Sets the waveform this strip shows.
+	 * @param waveform the waveform to show, or <code>null</code> to show nothing.
+	 */
+	public void setWaveform(Waveform waveform) {
+		if (waveform != this.waveform) {
+			this.waveform = waveform;
+			chromeCache.invalidate();
+			repaint();
+		}
+	}
+	
+	@Override
+	public void paintComponent(Graphics graphics) {
+		chromeCache.paint(graphics);
+	}
+	
+	/**
+	 * Draws each pixel column of the waveform as a line from its lowest to its highest peak, centered vertically.
+	 * @param graphics the graphics context to draw with.
+	 */
+	private void drawWaveform(Graphics graphics) {
+		if (waveform == null)
+			return;
+		
+		int width = getWidth();
+		int height = getHeight();
+		int level = waveform.getLevel(width);
+		byte[] minimums = waveform.getMinimums(level);
+		byte[] maximums = waveform.getMaximums(level);
+		int columns = minimums.length;
+		int middle = height / 2;
+		graphics.setColor(getForeground());
+		for (int x = 0; x < width; x++) {
+			// Each pixel covers at least one column, and more when the strip is narrower than the level.
+			int start = (int)((long)x * columns / width);
+			int end = Math.max(start + 1, (int)((long)(x + 1) * columns / width));
+			int minimum = 0;
+			int maximum = 0;
+			for (int column = start; column < end; column++) {
+				minimum = Math.min(minimum, minimums[column]);
+				maximum = Math.max(maximum, maximums[column]);
+			}
+			int top = middle - (maximum * height / 256);
+			int bottom = middle - (minimum * height / 256);
+			graphics.fillRect(x, top, 1, Math.max(1, bottom - top));
+		}
+	}
+}